@@ -2,25 +2,87 @@ package edu.uiuc.cs427app;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
 
 import com.google.gson.Gson;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.UnaryOperator;
 
 /**
  * Singleton class to manage user authentication.
  * Handles login, registration, logout, and session management.
- * Uses SQLite database for user storage and SharedPreferences for session management.
+ * Uses SQLite database for user storage and a {@link SessionStore} for the login session,
+ * which is read the first time a screen asks who is logged in.
+ * Passwords are hashed with {@link PasswordHasher}, whose cost is calibrated once per
+ * device; screens should use the async methods so hashing stays off the main thread.
+ * The last few users to log in stay warm in memory, so {@link #switchTo(String)} can
+ * switch between them without a password or a database query.
  */
 public class AuthenticationManager {
     private static final String PREFS_NAME = "CS427AppPrefs";
+    // Where the session lived before SessionStore; read once to migrate it
     private static final String KEY_CURRENT_USER = "current_user";
+    private static final String SESSION_FILE = "session.bin";
+    private static final String KEY_HASH_ITERATIONS = "password_hash_iterations";
     private static AuthenticationManager instance;
     private final SharedPreferences sharedPreferences;
     private final DatabaseHelper databaseHelper;
-    private final Gson gson;
-    private User currentUser;
+    private final SessionStore sessionStore;
+    // Password hashing takes ~100ms by design, so it runs here instead of on the UI thread
+    private final ExecutorService executor =
+            Executors.newSingleThreadExecutor(r -> new Thread(r, "auth-worker"));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private volatile PasswordHasher hasher;
+    // Null until the stored session is first read; replaced, never modified, on every change
+    private final AtomicReference<Session> session = new AtomicReference<>();
+    private final CopyOnWriteArrayList<SessionListener> sessionListeners = new CopyOnWriteArrayList<>();
+    /** How many recently active users stay warm for fast switching. */
+    static final int MAX_RECENT_SESSIONS = 4;
+    // Access-ordered, so the least recently active user is dropped first
+    private final Map<String, WarmSession> recentSessions =
+            new LinkedHashMap<String, WarmSession>(MAX_RECENT_SESSIONS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, WarmSession> eldest) {
+                    return size() > MAX_RECENT_SESSIONS;
+                }
+            };
+
+    /**
+     * Receives the result of an async authentication call on the main thread.
+     */
+    public interface AuthCallback {
+        /**
+         * Called with the result of the call.
+         *
+         * @param success true if the call succeeded
+         */
+        void onResult(boolean success);
+    }
+
+    /**
+     * Receives session changes, on the thread that made the change.
+     */
+    public interface SessionListener {
+        /**
+         * Called after the session changed.
+         *
+         * @param previous Session before the change
+         * @param current  Session after the change
+         */
+        void onSessionChanged(Session previous, Session current);
+    }
 
     /**
      * Private constructor for singleton pattern.
@@ -30,8 +92,22 @@ public class AuthenticationManager {
     private AuthenticationManager(Context context) {
         sharedPreferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         databaseHelper = new DatabaseHelper(context);
-        gson = new Gson();
-        loadCurrentUser();
+        sessionStore = new SessionStore(new File(context.getFilesDir(), SESSION_FILE));
+
+        int iterations = sharedPreferences.getInt(KEY_HASH_ITERATIONS, 0);
+        hasher = new PasswordHasher(iterations > 0 ? iterations : PasswordHasher.DEFAULT_ITERATIONS);
+        if (iterations <= 0) {
+            executor.execute(this::calibrateHasher);
+        }
+    }
+
+    /**
+     * Times password hashing on this device and stores the cost that fits the budget.
+     */
+    private void calibrateHasher() {
+        int calibrated = PasswordHasher.calibrate(PasswordHasher.TARGET_MS);
+        hasher = new PasswordHasher(calibrated);
+        sharedPreferences.edit().putInt(KEY_HASH_ITERATIONS, calibrated).apply();
     }
 
     /**
@@ -66,7 +142,7 @@ public class AuthenticationManager {
         }
 
         // Create new user with hashed password
-        String passwordHash = hashPassword(password);
+        String passwordHash = hasher.hash(password);
 
         // Insert user into database
         long userId = databaseHelper.insertUser(username, passwordHash, theme);
@@ -94,10 +170,17 @@ public class AuthenticationManager {
         }
 
         // Verify password
-        String passwordHash = hashPassword(password);
-        if (user.getPasswordHash().equals(passwordHash)) {
-            currentUser = user;
-            saveCurrentUser();
+        PasswordHasher current = hasher;
+        if (current.verify(password, user.getPasswordHash())) {
+            // Upgrade legacy or cheaper hashes now that we know the password
+            if (current.needsRehash(user.getPasswordHash())) {
+                String upgraded = current.hash(password);
+                if (databaseHelper.updateUserPassword(username, upgraded)) {
+                    user.setPasswordHash(upgraded);
+                }
+            }
+            setSession(Session.of(user));
+            sessionStore.write(user);
             return true;
         }
 
@@ -105,20 +188,101 @@ public class AuthenticationManager {
     }
 
     /**
-     * Logs out the current user.
+     * Logs out the current user, who also stops being available for fast switching.
      */
     public void logout() {
-        currentUser = null;
-        sharedPreferences.edit().remove(KEY_CURRENT_USER).apply();
+        Session previous = getSession();
+        setSession(Session.LOGGED_OUT);
+        sessionStore.clear();
+        if (previous.isLoggedIn()) forget(previous.getUsername());
+    }
+
+    /**
+     * Switches to a recently active user without asking for their password again.
+     *
+     * @param username The user to switch to
+     * @return true if switched, false if the user is not among the recent sessions
+     */
+    public boolean switchTo(String username) {
+        WarmSession warm = getWarmSession(username);
+        if (warm == null) return false;
+        Session next = warm.getSession();
+        setSession(next);
+        sessionStore.write(next.toUser());
+        return true;
+    }
+
+    /**
+     * Gets the users that {@link #switchTo(String)} can switch to, including the current one.
+     *
+     * @return Their sessions, most recently active first
+     */
+    public List<Session> getRecentSessions() {
+        List<Session> sessions = new ArrayList<>();
+        synchronized (recentSessions) {
+            for (WarmSession warm : recentSessions.values()) sessions.add(warm.getSession());
+        }
+        Collections.reverse(sessions);
+        return sessions;
+    }
+
+    /**
+     * Gets the in-memory state of a recently active user, without marking them active.
+     *
+     * @param username The user to look up
+     * @return Their warm session, or null if they are not among the recent sessions
+     */
+    public WarmSession getWarmSession(String username) {
+        if (username == null) return null;
+        synchronized (recentSessions) {
+            // Iterating instead of get() keeps the access order untouched
+            for (Map.Entry<String, WarmSession> entry : recentSessions.entrySet()) {
+                if (entry.getKey().equals(username)) return entry.getValue();
+            }
+        }
+        return null;
     }
 
     /**
-     * Gets the currently logged-in user.
+     * Gets the currently logged-in user. A session restored from a previous run
+     * carries no password hash or theme JSON; load those from the database if needed.
      *
-     * @return The current User object, or null if no user is logged in
+     * @return A copy of the current user, or null if no user is logged in
      */
     public User getCurrentUser() {
-        return currentUser;
+        return getSession().toUser();
+    }
+
+    /**
+     * Gets the current session without locking. Safe to call from any thread.
+     *
+     * @return The current session, {@link Session#LOGGED_OUT} if nobody is logged in
+     */
+    public Session getSession() {
+        Session current = session.get();
+        if (current != null) return current;
+        // First read: restore the stored session unless a login or logout got there first
+        Session restored = Session.of(loadCurrentUser());
+        if (session.compareAndSet(null, restored) && restored.isLoggedIn()) remember(restored);
+        return session.get();
+    }
+
+    /**
+     * Starts notifying a listener of session changes.
+     *
+     * @param listener Listener to add
+     */
+    public void addSessionListener(SessionListener listener) {
+        sessionListeners.addIfAbsent(listener);
+    }
+
+    /**
+     * Stops notifying a listener of session changes.
+     *
+     * @param listener Listener to remove
+     */
+    public void removeSessionListener(SessionListener listener) {
+        sessionListeners.remove(listener);
     }
 
     /**
@@ -127,7 +291,7 @@ public class AuthenticationManager {
      * @return true if a user is logged in, false otherwise
      */
     public boolean isLoggedIn() {
-        return currentUser != null;
+        return getSession().isLoggedIn();
     }
 
     /**
@@ -145,61 +309,138 @@ public class AuthenticationManager {
         if (user == null) return false;
 
         // update to new password
-        String newHash = hashPassword(newPassword);
+        String newHash = hasher.hash(newPassword);
         boolean updated = databaseHelper.updateUserPassword(username, newHash);
         if (!updated) return false;
 
-        // keep in-memory session consistent
-        if (currentUser != null && username.equals(currentUser.getUsername())) {
-            currentUser.setPasswordHash(newHash);
-            saveCurrentUser();
-        }
+        // keep in-memory session consistent; other users must log in again to come back
+        updateSession(s -> s.isFor(user.getUsername()) ? s.withPasswordHash(newHash) : s);
+        if (!getSession().isFor(user.getUsername())) forget(user.getUsername());
         return true;
     }
 
     /**
-     * Hashes a password using SHA-256.
+     * Registers a user on a background thread.
      *
-     * @param password The password to hash
-     * @return The hashed password as a hexadecimal string
+     * @param username The username to register
+     * @param password The password to register
+     * @param theme    The user's light or dark preference
+     * @param callback Receives the result of {@link #register} on the main thread
      */
-    private String hashPassword(String password) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(password.getBytes());
-            StringBuilder hexString = new StringBuilder();
-
-            for (byte b : hash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) hexString.append('0');
-                hexString.append(hex);
+    public void registerAsync(String username, String password, Theme theme, AuthCallback callback) {
+        runAsync(() -> register(username, password, theme), callback);
+    }
+
+    /**
+     * Logs a user in on a background thread.
+     *
+     * @param username The username to login
+     * @param password The password to login
+     * @param callback Receives the result of {@link #login} on the main thread
+     */
+    public void loginAsync(String username, String password, AuthCallback callback) {
+        runAsync(() -> login(username, password), callback);
+    }
+
+    /**
+     * Resets a user's password on a background thread.
+     *
+     * @param username    The username to reset password for
+     * @param newPassword The new password
+     * @param callback    Receives the result of {@link #resetPassword} on the main thread
+     */
+    public void resetPasswordAsync(String username, String newPassword, AuthCallback callback) {
+        runAsync(() -> resetPassword(username, newPassword), callback);
+    }
+
+    private void runAsync(BooleanSupplier call, AuthCallback callback) {
+        executor.execute(() -> {
+            boolean success;
+            try {
+                success = call.getAsBoolean();
+            } catch (RuntimeException e) {
+                success = false;
             }
+            boolean result = success;
+            mainHandler.post(() -> callback.onResult(result));
+        });
+    }
 
-            return hexString.toString();
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
-            return password; // Fallback (not secure, but prevents crash)
+    /**
+     * Replaces the session and notifies listeners.
+     */
+    private void setSession(Session next) {
+        Session previous = session.getAndSet(next);
+        if (previous == null) previous = Session.LOGGED_OUT;
+        if (next.isLoggedIn()) remember(next);
+        if (previous != next) notifySessionChanged(previous, next);
+    }
+
+    /**
+     * Applies a change to the current session, retrying if another thread changed it
+     * first, and notifies listeners if the session changed.
+     */
+    private void updateSession(UnaryOperator<Session> change) {
+        while (true) {
+            Session previous = getSession();
+            Session next = change.apply(previous);
+            if (next == previous) return;
+            if (session.compareAndSet(previous, next)) {
+                if (next.isLoggedIn()) remember(next);
+                notifySessionChanged(previous, next);
+                return;
+            }
         }
     }
 
     /**
-     * Saves the current user session to SharedPreferences.
+     * Marks a user as the most recently active, keeping what is already warm for them.
      */
-    private void saveCurrentUser() {
-        if (currentUser != null) {
-            String userJson = gson.toJson(currentUser);
-            sharedPreferences.edit().putString(KEY_CURRENT_USER, userJson).apply();
+    private void remember(Session active) {
+        synchronized (recentSessions) {
+            WarmSession warm = recentSessions.get(active.getUsername());
+            if (warm == null) {
+                recentSessions.put(active.getUsername(), new WarmSession(active));
+            } else {
+                warm.setSession(active);
+            }
+        }
+    }
+
+    private void forget(String username) {
+        synchronized (recentSessions) {
+            recentSessions.remove(username);
+        }
+    }
+
+    private void notifySessionChanged(Session previous, Session current) {
+        for (SessionListener listener : sessionListeners) {
+            listener.onSessionChanged(previous, current);
         }
     }
 
     /**
-     * Loads the current user session from SharedPreferences.
+     * Loads the session from the session store, migrating a session saved by an older
+     * version of the app, which kept the whole user as JSON in SharedPreferences.
      */
-    private void loadCurrentUser() {
+    private User loadCurrentUser() {
+        User user = sessionStore.read();
+        if (user != null) return user;
+
         String userJson = sharedPreferences.getString(KEY_CURRENT_USER, null);
-        if (userJson != null) {
-            currentUser = gson.fromJson(userJson, User.class);
+        if (userJson == null) return null;
+        try {
+            user = new Gson().fromJson(userJson, User.class);
+        } catch (RuntimeException e) {
+            user = null;
+        }
+        if (user != null && user.getUsername() != null) {
+            sessionStore.write(user);
+        } else {
+            user = null;
         }
+        sharedPreferences.edit().remove(KEY_CURRENT_USER).apply();
+        return user;
     }
 
     /**
@@ -214,12 +455,23 @@ public class AuthenticationManager {
         String json = spec.toJson();
         databaseHelper.updateUserThemeJson(username, json);
         // keep the in-memory user in sync if it's the current one
-        if (currentUser != null && username.equals(currentUser.getUsername())) {
-            currentUser.setThemeJson(json);
-            saveCurrentUser();
+        updateSession(s -> s.isFor(username) ? s.withThemeJson(json) : s);
+        WarmSession warm = getWarmSession(username);
+        if (warm != null && !getSession().isFor(username)) {
+            warm.setSession(warm.getSession().withThemeJson(json));
         }
     }
 
+    /**
+     * Loads a user's cities from the database. Does disk I/O, so call it off the main thread.
+     *
+     * @param username Username to load cities for
+     * @return The user's cities, empty if none
+     */
+    public List<City> loadCitiesForUser(String username) {
+        return databaseHelper.getUserCities(username);
+    }
+
     /**
      * Loads a theme specification for a user from the database.
      *
@@ -0,0 +1,185 @@
+package edu.uiuc.cs427app;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Pool of mutable bitmaps that image decodes reuse through
+ * {@link android.graphics.BitmapFactory.Options#inBitmap}.
+ * <p>
+ * Decoded scenes are copied into {@link Bitmap.Config#HARDWARE} bitmaps for display,
+ * which live in graphics memory, and the software decode buffer is returned here.
+ * Switching cities then decodes into the same few buffers instead of allocating a
+ * multi-megabyte pixel array per image. Buffers are bucketed by allocation size, so a
+ * decode takes the smallest pooled buffer that fits; the oldest buffers are dropped
+ * once the pool exceeds its byte budget.
+ */
+public class BitmapPool {
+    private static final long MAX_POOL_BYTES = 16L * 1024 * 1024;
+    // Reusing a buffer far larger than the decode would pin memory for a small image
+    private static final int MAX_SIZE_RATIO = 4;
+
+    private static BitmapPool instance;
+
+    private final long maxBytes;
+    private final TreeMap<Integer, ArrayDeque<Bitmap>> buckets = new TreeMap<>();
+    private final ArrayDeque<Bitmap> order = new ArrayDeque<>();
+    private long pooledBytes;
+    private int hits;
+    private int misses;
+
+    /**
+     * Creates a pool.
+     *
+     * @param maxBytes Byte budget of the pooled bitmaps
+     */
+    BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Gets the process-wide pool.
+     *
+     * @return The shared pool
+     */
+    public static synchronized BitmapPool getInstance() {
+        if (instance == null) {
+            instance = new BitmapPool(MAX_POOL_BYTES);
+        }
+        return instance;
+    }
+
+    /**
+     * Takes a buffer that can hold a decode of the given size.
+     *
+     * @param width  Decoded width in pixels
+     * @param height Decoded height in pixels
+     * @param config Decoded pixel format
+     * @return A mutable bitmap to decode into, or null if none fits
+     */
+    public synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        long needed = (long) width * height * bytesPerPixel(config);
+        if (needed <= 0 || needed > Integer.MAX_VALUE) {
+            misses++;
+            return null;
+        }
+        Map.Entry<Integer, ArrayDeque<Bitmap>> bucket = buckets.ceilingEntry((int) needed);
+        if (bucket == null || bucket.getKey() > needed * MAX_SIZE_RATIO) {
+            misses++;
+            return null;
+        }
+        Bitmap bitmap = bucket.getValue().poll();
+        if (bucket.getValue().isEmpty()) {
+            buckets.remove(bucket.getKey());
+        }
+        order.remove(bitmap);
+        pooledBytes -= bucket.getKey();
+        hits++;
+        return bitmap;
+    }
+
+    /**
+     * Returns a buffer to the pool. The caller must no longer use or display it.
+     * Immutable, hardware and recycled bitmaps cannot be decoded into and are ignored.
+     *
+     * @param bitmap Bitmap to reuse
+     */
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()
+                || bitmap.getConfig() == Bitmap.Config.HARDWARE) {
+            return;
+        }
+        int size = bitmap.getAllocationByteCount();
+        if (size > maxBytes || order.contains(bitmap)) {
+            return;
+        }
+        buckets.computeIfAbsent(size, s -> new ArrayDeque<>()).add(bitmap);
+        order.add(bitmap);
+        pooledBytes += size;
+        trim();
+    }
+
+    /**
+     * Copies a decoded bitmap into graphics memory for display and pools the software copy.
+     *
+     * @param decoded Bitmap from a pooled decode, or null
+     * @return A hardware bitmap, or the decoded bitmap if the copy fails
+     */
+    public Bitmap toDisplay(Bitmap decoded) {
+        if (decoded == null) return null;
+        Bitmap hardware = decoded.copy(Bitmap.Config.HARDWARE, false);
+        if (hardware == null) return decoded;
+        put(decoded);
+        return hardware;
+    }
+
+    /**
+     * Gets the number of decodes that reused a pooled buffer.
+     *
+     * @return Hit count
+     */
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of decodes that had to allocate a new buffer.
+     *
+     * @return Miss count
+     */
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the bytes currently held by the pool.
+     *
+     * @return Pooled bytes
+     */
+    public synchronized long getPooledBytes() {
+        return pooledBytes;
+    }
+
+    /**
+     * Drops every pooled buffer.
+     */
+    public synchronized void clear() {
+        buckets.clear();
+        order.clear();
+        pooledBytes = 0;
+    }
+
+    private void trim() {
+        Iterator<Bitmap> oldest = order.iterator();
+        while (pooledBytes > maxBytes && oldest.hasNext()) {
+            Bitmap bitmap = oldest.next();
+            oldest.remove();
+            int size = bitmap.getAllocationByteCount();
+            ArrayDeque<Bitmap> bucket = buckets.get(size);
+            if (bucket != null) {
+                bucket.remove(bitmap);
+                if (bucket.isEmpty()) {
+                    buckets.remove(size);
+                }
+            }
+            pooledBytes -= size;
+        }
+    }
+
+    /**
+     * Gets the bytes one pixel takes in a pixel format.
+     *
+     * @param config Pixel format, or null for the default ARGB_8888
+     * @return Bytes per pixel
+     */
+    static int bytesPerPixel(Bitmap.Config config) {
+        if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444) return 2;
+        if (config == Bitmap.Config.ALPHA_8) return 1;
+        if (config == Bitmap.Config.RGBA_F16) return 8;
+        return 4;
+    }
+}
@@ -0,0 +1,63 @@
+package edu.uiuc.cs427app;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cancellation signal shared between a screen and the LLM requests it started.
+ * An Activity creates one token, passes it with every request, and cancels it in
+ * {@code onDestroy}; the token then cancels the underlying Gemini futures and
+ * suppresses callbacks into the destroyed screen.
+ */
+public class CancellationToken {
+    private final List<Runnable> listeners = new ArrayList<>();
+    private boolean cancelled;
+
+    /**
+     * Cancels the token and runs every registered listener once.
+     */
+    public void cancel() {
+        List<Runnable> toRun;
+        synchronized (this) {
+            if (cancelled) return;
+            cancelled = true;
+            toRun = new ArrayList<>(listeners);
+            listeners.clear();
+        }
+        for (Runnable listener : toRun) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Checks whether the token has been cancelled.
+     *
+     * @return true once {@link #cancel()} has been called
+     */
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Registers a listener to run on cancellation.
+     * Runs it immediately if the token is already cancelled.
+     *
+     * @param listener Action to run when cancelled
+     * @return Action that unregisters the listener
+     */
+    public Runnable onCancel(Runnable listener) {
+        synchronized (this) {
+            if (!cancelled) {
+                listeners.add(listener);
+                return () -> {
+                    synchronized (CancellationToken.this) {
+                        listeners.remove(listener);
+                    }
+                };
+            }
+        }
+        listener.run();
+        return () -> {
+        };
+    }
+}
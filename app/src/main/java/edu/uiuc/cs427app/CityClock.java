@@ -0,0 +1,111 @@
+package edu.uiuc.cs427app;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * Renders a city's local time as {@code HH:mm:ss} into a caller-owned char buffer.
+ * <p>
+ * The zone is resolved once, and its UTC offset is cached until the zone's next
+ * transition, so a once-per-second tick does no zone lookup, formatting or allocation.
+ * Cities whose zone name is unknown fall back to the fixed offset OpenWeather reports.
+ */
+public class CityClock {
+    /** Number of characters written by {@link #render(long, char[], int)}. */
+    public static final int TEXT_LENGTH = 8;
+
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private final ZoneRules rules;
+    private int offsetSeconds;
+    // The cached offset holds for epoch seconds in [validFrom, validUntil)
+    private long validFrom = Long.MAX_VALUE;
+    private long validUntil = Long.MIN_VALUE;
+
+    /**
+     * Creates a clock for a zone.
+     *
+     * @param zoneId                IANA zone name such as "America/Chicago", or null
+     * @param fallbackOffsetSeconds UTC offset to use if the zone name is missing or unknown
+     */
+    public CityClock(String zoneId, int fallbackOffsetSeconds) {
+        ZoneRules resolved = null;
+        if (zoneId != null) {
+            try {
+                resolved = ZoneId.of(zoneId).getRules();
+            } catch (DateTimeException e) {
+                // Unknown zone; use the reported offset
+            }
+        }
+        rules = resolved;
+        offsetSeconds = fallbackOffsetSeconds;
+    }
+
+    /**
+     * Creates a clock for the city a weather response describes.
+     *
+     * @param weather Weather response with timezone data
+     * @return Clock in the city's zone
+     */
+    public static CityClock forWeather(WeatherInfo weather) {
+        return new CityClock(weather.timezone, weather.timezone_offset);
+    }
+
+    /**
+     * Gets the city's UTC offset at an instant.
+     *
+     * @param epochMillis Instant in milliseconds since the epoch
+     * @return Offset in seconds
+     */
+    public int offsetSecondsAt(long epochMillis) {
+        if (rules == null) return offsetSeconds;
+        long epochSecond = Math.floorDiv(epochMillis, 1000L);
+        if (epochSecond < validFrom || epochSecond >= validUntil) {
+            Instant instant = Instant.ofEpochSecond(epochSecond);
+            offsetSeconds = rules.getOffset(instant).getTotalSeconds();
+            ZoneOffsetTransition next = rules.nextTransition(instant);
+            validFrom = epochSecond;
+            validUntil = next == null ? Long.MAX_VALUE : next.toEpochSecond();
+        }
+        return offsetSeconds;
+    }
+
+    /**
+     * Gets the city's local hour of day.
+     *
+     * @param epochMillis Instant in milliseconds since the epoch
+     * @return Hour from 0 to 23
+     */
+    public int hourAt(long epochMillis) {
+        return localSecondOfDay(epochMillis) / 3600;
+    }
+
+    /**
+     * Writes the city's local time as {@code HH:mm:ss}.
+     *
+     * @param epochMillis Instant in milliseconds since the epoch
+     * @param out         Buffer to write into
+     * @param offset      Index of the first of {@link #TEXT_LENGTH} characters to write
+     */
+    public void render(long epochMillis, char[] out, int offset) {
+        int secondOfDay = localSecondOfDay(epochMillis);
+        writeTwoDigits(secondOfDay / 3600, out, offset);
+        out[offset + 2] = ':';
+        writeTwoDigits(secondOfDay / 60 % 60, out, offset + 3);
+        out[offset + 5] = ':';
+        writeTwoDigits(secondOfDay % 60, out, offset + 6);
+    }
+
+    private int localSecondOfDay(long epochMillis) {
+        long localSecond = Math.floorDiv(epochMillis, 1000L) + offsetSecondsAt(epochMillis);
+        return (int) Math.floorMod(localSecond, (long) SECONDS_PER_DAY);
+    }
+
+    private static void writeTwoDigits(int value, char[] out, int offset) {
+        out[offset] = (char) ('0' + value / 10);
+        out[offset + 1] = (char) ('0' + value % 10);
+    }
+}
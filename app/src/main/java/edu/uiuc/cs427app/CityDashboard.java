@@ -0,0 +1,193 @@
+package edu.uiuc.cs427app;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.text.Editable;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * World clock and weather dashboard for the saved cities, shown in MainActivity.
+ * <p>
+ * Each row shows a city's local time and current weather. Weather comes from the
+ * {@link WeatherCache} when recent enough and is fetched otherwise. Clocks are driven
+ * by the shared {@link ClockTicker}, and each tick only rewrites the time text of rows
+ * that are actually on screen.
+ */
+public class CityDashboard implements ClockTicker.Listener {
+    private final Context context;
+    private final LinearLayout container;
+    private final WeatherDB weatherData;
+    private final String apiKey;
+    private final List<Row> rows = new ArrayList<>();
+    private final Rect visibleRect = new Rect();
+
+    /**
+     * Creates a dashboard that fills a container with one row per city.
+     *
+     * @param context     Context used to create row views
+     * @param container   Vertical layout that holds the rows
+     * @param weatherData OpenWeather API client
+     * @param apiKey      OpenWeather API key
+     */
+    public CityDashboard(Context context, LinearLayout container, WeatherDB weatherData, String apiKey) {
+        this.context = context;
+        this.container = container;
+        this.weatherData = weatherData;
+        this.apiKey = apiKey;
+    }
+
+    /**
+     * Replaces the rows with the given cities and loads their weather.
+     *
+     * @param cities Cities to show
+     */
+    public void setCities(List<City> cities) {
+        container.removeAllViews();
+        rows.clear();
+        long now = System.currentTimeMillis();
+        for (City city : cities) {
+            Row row = new Row(city);
+            rows.add(row);
+            container.addView(row.layout);
+            ThemeManager.applyToAdded(context, row.layout);
+
+            WeatherInfo cached = WeatherCache.get(city.getLatitude(), city.getLongitude());
+            if (cached != null) {
+                row.bind(cached, now);
+            }
+            if (!WeatherCache.isFresh(city.getLatitude(), city.getLongitude(), now)) {
+                fetchWeather(row);
+            }
+        }
+    }
+
+    /**
+     * Starts the clocks. Call when the dashboard becomes visible.
+     */
+    public void start() {
+        ClockTicker.getInstance().add(this);
+    }
+
+    /**
+     * Stops the clocks. Call when the dashboard is hidden or the screen stops.
+     */
+    public void stop() {
+        ClockTicker.getInstance().remove(this);
+    }
+
+    /**
+     * Rewrites the local time of every row that is on screen.
+     *
+     * @param epochMillis Current time in milliseconds since the epoch
+     */
+    @Override
+    public void onTick(long epochMillis) {
+        if (!container.isShown()) return;
+        for (int i = 0; i < rows.size(); i++) {
+            Row row = rows.get(i);
+            // Rows scrolled out of view have no visible rect and skip the update
+            if (row.clock != null && row.layout.getLocalVisibleRect(visibleRect)) {
+                row.render(epochMillis);
+            }
+        }
+    }
+
+    private void fetchWeather(Row row) {
+        City city = row.city;
+        weatherData.getWeather(city.getLatitude(), city.getLongitude(), apiKey, "hourly", "imperial")
+                .enqueue(new Callback<WeatherInfo>() {
+                    @Override
+                    public void onResponse(Call<WeatherInfo> call, Response<WeatherInfo> response) {
+                        if (response.isSuccessful() && response.body() != null) {
+                            WeatherCache.put(city.getLatitude(), city.getLongitude(), response.body());
+                            row.bind(response.body(), System.currentTimeMillis());
+                        } else if (row.clock == null) {
+                            row.weatherView.setText("Weather unavailable");
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Call<WeatherInfo> call, Throwable t) {
+                        if (row.clock == null) {
+                            row.weatherView.setText("Weather unavailable");
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Formats the current conditions for a row, e.g. "72°F, light rain".
+     *
+     * @param weather Weather response
+     * @return Short weather summary
+     */
+    static String summary(WeatherInfo weather) {
+        if (weather.current == null) return "";
+        String description = weather.current.weather != null && weather.current.weather.length > 0
+                ? weather.current.weather[0].description
+                : null;
+        return String.format(Locale.US, "%.0f°F", weather.current.temp)
+                + (description != null ? ", " + description : "");
+    }
+
+    /**
+     * Views and clock of one city. The time view holds an editable buffer so a tick
+     * replaces its eight characters in place.
+     */
+    private class Row {
+        final City city;
+        final LinearLayout layout;
+        final TextView timeView;
+        final TextView weatherView;
+        final Editable timeText;
+        final char[] timeChars = new char[CityClock.TEXT_LENGTH];
+        final CharBuffer timeBuffer = CharBuffer.wrap(timeChars);
+        CityClock clock;
+
+        Row(City city) {
+            this.city = city;
+            layout = new LinearLayout(context);
+            layout.setOrientation(LinearLayout.HORIZONTAL);
+            layout.setLayoutParams(new LinearLayout.LayoutParams(LinearLayout.LayoutParams.MATCH_PARENT, LinearLayout.LayoutParams.WRAP_CONTENT));
+
+            TextView nameView = new TextView(context);
+            nameView.setText(city.getName().toUpperCase());
+            nameView.setLayoutParams(new LinearLayout.LayoutParams(0, LinearLayout.LayoutParams.WRAP_CONTENT, 1));
+
+            timeView = new TextView(context);
+            timeView.setTypeface(Typeface.MONOSPACE);
+            timeView.setText("--:--:--", TextView.BufferType.EDITABLE);
+            timeText = (Editable) timeView.getText();
+
+            weatherView = new TextView(context);
+            weatherView.setText("Loading weather…");
+            weatherView.setPadding(24, 0, 0, 0);
+
+            layout.addView(nameView);
+            layout.addView(timeView);
+            layout.addView(weatherView);
+        }
+
+        void bind(WeatherInfo weather, long now) {
+            clock = CityClock.forWeather(weather);
+            weatherView.setText(summary(weather));
+            render(now);
+        }
+
+        void render(long epochMillis) {
+            clock.render(epochMillis, timeChars, 0);
+            timeText.replace(0, CityClock.TEXT_LENGTH, timeBuffer, 0, CityClock.TEXT_LENGTH);
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package edu.uiuc.cs427app;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Two-tier cache for generated city images.
+ * <p>
+ * The memory tier is an {@link LruCache} sized in bytes, so repeat visits in the same
+ * session render without touching disk. The disk tier keeps compressed WebP files in the
+ * app's cache directory with least-recently-used eviction, so images survive restarts.
+ * Entries are keyed by city, weather condition bucket and time of day, since two screens
+ * with the same key would ask Gemini for an equivalent image.
+ */
+public class CityImageCache {
+    private static final String TAG = "CityImageCache";
+    private static final String DIR_NAME = "city_images";
+    private static final String EXTENSION = ".webp";
+    private static final long MAX_DISK_BYTES = 32L * 1024 * 1024;
+    private static final int WEBP_QUALITY = 85;
+
+    private static CityImageCache instance;
+
+    private final LruCache<String, Bitmap> memory;
+    private final File directory;
+    private final long maxDiskBytes;
+
+    /**
+     * Creates a cache.
+     *
+     * @param directory      Directory that holds the disk tier
+     * @param maxMemoryBytes Byte budget of the memory tier
+     * @param maxDiskBytes   Byte budget of the disk tier
+     */
+    CityImageCache(File directory, int maxMemoryBytes, long maxDiskBytes) {
+        this.directory = directory;
+        this.maxDiskBytes = maxDiskBytes;
+        this.memory = new LruCache<String, Bitmap>(maxMemoryBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+        };
+    }
+
+    /**
+     * Gets the process-wide cache, using one eighth of the heap for the memory tier.
+     *
+     * @param context Any context
+     * @return The shared CityImageCache
+     */
+    public static synchronized CityImageCache getInstance(Context context) {
+        if (instance == null) {
+            int maxMemory = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8);
+            File dir = new File(context.getApplicationContext().getCacheDir(), DIR_NAME);
+            instance = new CityImageCache(dir, maxMemory, MAX_DISK_BYTES);
+        }
+        return instance;
+    }
+
+    /**
+     * Builds the cache key for a city image.
+     *
+     * @param cityName        Name of the city
+     * @param conditionBucket Coarse weather condition, see {@link #conditionBucket}
+     * @param timeOfDay       Time of day label (daytime/sunset/night)
+     * @return Cache key
+     */
+    public static String key(String cityName, String conditionBucket, String timeOfDay) {
+        return normalize(cityName) + "|" + conditionBucket + "|" + normalize(timeOfDay);
+    }
+
+    /**
+     * Maps live weather onto the coarse condition buckets that change how the
+     * generated scene looks, mirroring the branches of the image prompt.
+     *
+     * @param weather Current weather, or null if it has not loaded
+     * @return Condition bucket name
+     */
+    public static String conditionBucket(WeatherInfo weather) {
+        if (weather == null || weather.current == null
+                || weather.current.weather == null || weather.current.weather.length == 0
+                || weather.current.weather[0].main == null) {
+            return "generic";
+        }
+        String main = weather.current.weather[0].main.toLowerCase(Locale.US);
+        if (main.contains("rain") || main.contains("drizzle") || main.contains("thunder")) return "rain";
+        if (main.contains("snow")) return "snow";
+        if (main.contains("cloud")) return "clouds";
+        if (main.contains("clear") || main.contains("sunny")) return "clear";
+        return "mist";
+    }
+
+    /**
+     * Orders the other condition buckets by how similar their scenes look to this one,
+     * for picking a stand-in image.
+     *
+     * @param bucket Condition bucket of the wanted image
+     * @return Other buckets, most similar first
+     */
+    public static String[] nearestBuckets(String bucket) {
+        switch (bucket) {
+            case "rain":
+                return new String[]{"mist", "clouds", "snow", "clear"};
+            case "snow":
+                return new String[]{"rain", "clouds", "mist", "clear"};
+            case "clouds":
+                return new String[]{"mist", "rain", "clear", "snow"};
+            case "clear":
+                return new String[]{"clouds", "mist", "rain", "snow"};
+            case "mist":
+                return new String[]{"clouds", "rain", "clear", "snow"};
+            default:
+                return new String[]{"clear", "clouds", "mist", "rain", "snow"};
+        }
+    }
+
+    /**
+     * Gets an image from the memory tier only. Safe to call on the main thread.
+     *
+     * @param key Cache key
+     * @return Cached bitmap, or null on a miss
+     */
+    public Bitmap getFromMemory(String key) {
+        return memory.get(key);
+    }
+
+    /**
+     * Finds the most recently used in-memory image of a city at this time of day, in any
+     * weather condition. Used as a stand-in while the weather-specific image is produced.
+     *
+     * @param cityName  Name of the city
+     * @param timeOfDay Time of day label
+     * @return A cached bitmap of the city, or null if none is in memory
+     */
+    public Bitmap findInMemory(String cityName, String timeOfDay) {
+        String prefix = normalize(cityName) + "|";
+        String suffix = "|" + normalize(timeOfDay);
+        Bitmap match = null;
+        // Snapshot is ordered from least to most recently used
+        for (Map.Entry<String, Bitmap> entry : memory.snapshot().entrySet()) {
+            if (entry.getKey().startsWith(prefix) && entry.getKey().endsWith(suffix)) {
+                match = entry.getValue();
+            }
+        }
+        return match;
+    }
+
+    /**
+     * Gets an image from memory, falling back to disk. Reads from disk, so it must not
+     * be called on the main thread. Disk hits are promoted into memory.
+     *
+     * @param key Cache key
+     * @return Cached bitmap, or null on a miss
+     */
+    public Bitmap get(String key) {
+        Bitmap bitmap = memory.get(key);
+        if (bitmap != null) return bitmap;
+
+        File file = fileFor(key);
+        if (!file.isFile()) return null;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            bitmap = BitmapPool.getInstance().toDisplay(WeatherImageGenerator.decodeSampledBitmap(in, 0, 0));
+        } catch (IOException e) {
+            return null;
+        }
+        if (bitmap == null) {
+            // Truncated or corrupt entry
+            file.delete();
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis());
+        memory.put(key, bitmap);
+        return bitmap;
+    }
+
+    /**
+     * Decodes a small version of a disk entry, without promoting it into memory.
+     * Reads from disk, so it must not be called on the main thread.
+     *
+     * @param key      Cache key
+     * @param maxWidth Rough width of the thumbnail in pixels
+     * @return Thumbnail, or null if the entry is not on disk
+     */
+    public Bitmap getThumbnail(String key, int maxWidth) {
+        File file = fileFor(key);
+        if (!file.isFile()) return null;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return WeatherImageGenerator.decodeSampledBitmap(in, maxWidth, maxWidth);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores an image in both tiers. Writes to disk, so it must not be called on the main thread.
+     *
+     * @param key    Cache key
+     * @param bitmap Image to cache
+     */
+    public void put(String key, Bitmap bitmap) {
+        memory.put(key, bitmap);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w(TAG, "Cannot create " + directory);
+            return;
+        }
+
+        if (writeWebp(fileFor(key), bitmap)) {
+            trimDirectory(directory, maxDiskBytes);
+        }
+    }
+
+    /**
+     * Stores only in the memory tier, for images that already live on disk elsewhere.
+     *
+     * @param key    Cache key
+     * @param bitmap Image to cache
+     */
+    public void putInMemory(String key, Bitmap bitmap) {
+        memory.put(key, bitmap);
+    }
+
+    /**
+     * Compresses a bitmap to a WebP file, writing to a temporary file and renaming it
+     * so readers never see a half-written image.
+     *
+     * @param file   Destination file
+     * @param bitmap Image to write
+     * @return true if the file was written
+     */
+    static boolean writeWebp(File file, Bitmap bitmap) {
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            if (!bitmap.compress(webpFormat(), WEBP_QUALITY, out)) {
+                throw new IOException("WebP compression failed");
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write " + file.getName() + ": " + e.getMessage());
+            tmp.delete();
+            return false;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Drops every entry from both tiers.
+     */
+    public void clear() {
+        memory.evictAll();
+        File[] files = directory.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    /**
+     * Deletes the least recently used files until the directory fits the budget.
+     *
+     * @param dir      Directory to trim
+     * @param maxBytes Byte budget
+     */
+    static synchronized void trimDirectory(File dir, long maxBytes) {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(EXTENSION));
+        if (files == null) return;
+
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= maxBytes) return;
+
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (total <= maxBytes) break;
+            long size = file.length();
+            if (file.delete()) {
+                total -= size;
+            }
+        }
+    }
+
+    private File fileFor(String key) {
+        return new File(directory, sha256Hex(key) + EXTENSION);
+    }
+
+    /**
+     * Hashes a string to lowercase hex, giving short filesystem-safe file names.
+     *
+     * @param value String to hash
+     * @return SHA-256 digest in hex
+     */
+    static String sha256Hex(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Bitmap.CompressFormat webpFormat() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? Bitmap.CompressFormat.WEBP_LOSSY
+                : Bitmap.CompressFormat.WEBP;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.US);
+    }
+}
@@ -0,0 +1,153 @@
+package edu.uiuc.cs427app;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Precomputed library of city images, one per city, condition family and time of day.
+ * <p>
+ * Images are generated in the background by {@link CityImageLibraryJobService} from a
+ * representative weather prompt for each condition family, and stored under the SHA-256
+ * of that prompt. The store is content-addressed: the same city, family and time of day
+ * always produce the same prompt and therefore the same file, so lookups need no index
+ * and a change to the prompt wording naturally invalidates old images. Unlike
+ * {@link CityImageCache} the library lives in app files, so the system does not purge it.
+ */
+public class CityImageLibrary {
+    /** Condition families that get their own image, matching {@link CityImageCache#conditionBucket}. */
+    static final String[] CONDITION_FAMILIES = {"clear", "clouds", "rain", "snow", "mist"};
+    /** Time of day labels used by DetailsActivity. */
+    static final String[] TIMES_OF_DAY = {"daytime", "sunset", "night"};
+
+    private static final String DIR_NAME = "city_image_library";
+    private static final String EXTENSION = ".webp";
+    private static final long MAX_BYTES = 64L * 1024 * 1024;
+
+    private static CityImageLibrary instance;
+
+    private final File directory;
+
+    /**
+     * Creates a library stored in a directory.
+     *
+     * @param directory Directory that holds the images
+     */
+    CityImageLibrary(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Gets the process-wide library.
+     *
+     * @param context Any context
+     * @return The shared CityImageLibrary
+     */
+    public static synchronized CityImageLibrary getInstance(Context context) {
+        if (instance == null) {
+            instance = new CityImageLibrary(new File(context.getApplicationContext().getFilesDir(), DIR_NAME));
+        }
+        return instance;
+    }
+
+    /**
+     * Builds typical weather for a condition family, used to write the library prompt.
+     * Values stay clear of the prompt's heat, wind and humidity extremes unless they
+     * define the family.
+     *
+     * @param family One of {@link #CONDITION_FAMILIES}
+     * @return Representative weather
+     */
+    static WeatherInfo representativeWeather(String family) {
+        WeatherSpecifics specifics = new WeatherSpecifics();
+        WeatherInfo.WeatherCurrent current = new WeatherInfo.WeatherCurrent();
+        current.humidity = 55;
+        current.wind_speed = 6;
+        switch (family) {
+            case "clouds":
+                specifics.main = "Clouds";
+                specifics.description = "overcast clouds";
+                current.temp = 60;
+                break;
+            case "rain":
+                specifics.main = "Rain";
+                specifics.description = "moderate rain";
+                current.temp = 55;
+                current.humidity = 75;
+                break;
+            case "snow":
+                specifics.main = "Snow";
+                specifics.description = "light snow";
+                current.temp = 28;
+                current.humidity = 70;
+                break;
+            case "mist":
+                specifics.main = "Mist";
+                specifics.description = "mist";
+                current.temp = 50;
+                current.humidity = 90;
+                break;
+            default:
+                specifics.main = "Clear";
+                specifics.description = "clear sky";
+                current.temp = 70;
+                break;
+        }
+        current.weather = new WeatherSpecifics[]{specifics};
+        WeatherInfo info = new WeatherInfo();
+        info.current = current;
+        return info;
+    }
+
+    /**
+     * Checks whether the image for a prompt has been generated.
+     *
+     * @param prompt Library prompt
+     * @return true if the image is stored
+     */
+    public boolean contains(String prompt) {
+        return fileFor(prompt).isFile();
+    }
+
+    /**
+     * Loads the image for a prompt, subsampled to the target size. Reads from disk,
+     * so it must not be called on the main thread.
+     *
+     * @param prompt       Library prompt
+     * @param targetWidth  Width to decode for, or 0 for full resolution
+     * @param targetHeight Height to decode for, or 0 for full resolution
+     * @return The image, or null if it has not been generated
+     */
+    public Bitmap get(String prompt, int targetWidth, int targetHeight) {
+        File file = fileFor(prompt);
+        if (!file.isFile()) return null;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return WeatherImageGenerator.decodeSampledBitmap(in, targetWidth, targetHeight);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores the image for a prompt. Writes to disk, so it must not be called on the main thread.
+     *
+     * @param prompt Library prompt
+     * @param bitmap Generated image
+     * @return true if the image was stored
+     */
+    public boolean put(String prompt, Bitmap bitmap) {
+        if (!directory.isDirectory() && !directory.mkdirs()) return false;
+        if (!CityImageCache.writeWebp(fileFor(prompt), bitmap)) return false;
+        CityImageCache.trimDirectory(directory, MAX_BYTES);
+        return true;
+    }
+
+    private File fileFor(String prompt) {
+        return new File(directory, CityImageCache.sha256Hex(prompt) + EXTENSION);
+    }
+}
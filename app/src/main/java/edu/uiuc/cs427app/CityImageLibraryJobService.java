@@ -0,0 +1,90 @@
+package edu.uiuc.cs427app;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Background job that fills the {@link CityImageLibrary} for the signed-in user's cities
+ * while the device is charging and on an unmetered network, so DetailsActivity can show
+ * a matching image without waiting on a live Gemini generation.
+ * <p>
+ * Each run attempts a limited number of images to stay within the shared Gemini budget,
+ * and asks to be rescheduled until every city is covered.
+ */
+public class CityImageLibraryJobService extends JobService {
+    private static final String TAG = "CityImageLibraryJob";
+    private static final int JOB_ID = 4271;
+    private static final int MAX_IMAGES_PER_RUN = 12;
+
+    private WeatherImageGenerator.ImageRequest run;
+
+    /**
+     * Schedules a library run unless one is already pending.
+     *
+     * @param context Any context
+     */
+    public static void schedule(Context context) {
+        JobScheduler scheduler = context.getSystemService(JobScheduler.class);
+        if (scheduler == null || scheduler.getPendingJob(JOB_ID) != null) {
+            return;
+        }
+        JobInfo job = new JobInfo.Builder(JOB_ID,
+                new ComponentName(context, CityImageLibraryJobService.class))
+                .setRequiresCharging(true)
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .build();
+        scheduler.schedule(job);
+    }
+
+    /**
+     * Starts generating missing library images for the current user's cities. The cities
+     * are read from the database on the worker thread, not here on the main thread.
+     *
+     * @param params Job parameters
+     * @return true while the run continues on a worker thread
+     */
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        AuthenticationManager auth = AuthenticationManager.getInstance(this);
+        User user = auth.getCurrentUser();
+        if (user == null) {
+            return false;
+        }
+        String username = user.getUsername();
+
+        run = new WeatherImageGenerator(this).generateLibraryAsync(() -> {
+                    List<String> cityNames = new ArrayList<>();
+                    for (City city : auth.loadCitiesForUser(username)) {
+                        cityNames.add(city.getName());
+                    }
+                    return cityNames;
+                }, MAX_IMAGES_PER_RUN,
+                (generated, complete) -> {
+                    Log.i(TAG, "Added " + generated + " library images, complete: " + complete);
+                    jobFinished(params, !complete);
+                });
+        return true;
+    }
+
+    /**
+     * Stops the run when charging or the unmetered network is lost.
+     *
+     * @param params Job parameters
+     * @return true so the remaining images are generated in a later run
+     */
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        if (run != null) {
+            run.cancel();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,149 @@
+package edu.uiuc.cs427app;
+
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One per-second ticker shared by every clock on screen.
+ * <p>
+ * Instead of each screen running its own Handler loop, listeners register here and
+ * are all called from a single Choreographer frame callback posted for the start of
+ * each second, so clock updates land on a frame boundary together. The ticker only
+ * runs while it has listeners. All methods must be called on the main thread.
+ */
+public final class ClockTicker implements Choreographer.FrameCallback {
+
+    /**
+     * Receives the wall-clock time once per second.
+     */
+    public interface Listener {
+        /**
+         * Called at the start of each second.
+         *
+         * @param epochMillis Current time in milliseconds since the epoch
+         */
+        void onTick(long epochMillis);
+    }
+
+    private static ClockTicker instance;
+
+    private final Choreographer choreographer;
+    private final List<Listener> listeners = new ArrayList<>();
+    private boolean scheduled;
+    private boolean dispatching;
+
+    /**
+     * Creates a ticker.
+     *
+     * @param choreographer Choreographer of the main thread
+     */
+    ClockTicker(Choreographer choreographer) {
+        this.choreographer = choreographer;
+    }
+
+    /**
+     * Gets the shared ticker.
+     *
+     * @return The main thread's ticker
+     */
+    public static ClockTicker getInstance() {
+        if (instance == null) {
+            instance = new ClockTicker(Choreographer.getInstance());
+        }
+        return instance;
+    }
+
+    /**
+     * Registers a listener and ticks it immediately, so it does not wait up to a second.
+     *
+     * @param listener Listener to add; adding it twice has no effect
+     */
+    public void add(Listener listener) {
+        if (listeners.contains(listener)) return;
+        listeners.add(listener);
+        long now = System.currentTimeMillis();
+        listener.onTick(now);
+        scheduleNext(now);
+    }
+
+    /**
+     * Unregisters a listener. The ticker stops once none are left.
+     *
+     * @param listener Listener to remove
+     */
+    public void remove(Listener listener) {
+        int index = listeners.indexOf(listener);
+        if (index < 0) return;
+        if (dispatching) {
+            // Compacted after the current tick so the dispatch loop stays in step
+            listeners.set(index, null);
+        } else {
+            listeners.remove(index);
+        }
+        if (listenerCount() == 0 && scheduled) {
+            choreographer.removeFrameCallback(this);
+            scheduled = false;
+        }
+    }
+
+    /**
+     * Gets the number of registered listeners.
+     *
+     * @return Listener count
+     */
+    public int listenerCount() {
+        int count = 0;
+        for (int i = 0; i < listeners.size(); i++) {
+            if (listeners.get(i) != null) count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        scheduled = false;
+        long now = System.currentTimeMillis();
+        dispatch(now);
+        scheduleNext(now);
+    }
+
+    /**
+     * Ticks every listener. Listeners may add or remove listeners while being ticked.
+     *
+     * @param epochMillis Current time in milliseconds since the epoch
+     */
+    void dispatch(long epochMillis) {
+        dispatching = true;
+        try {
+            // Listeners added during the loop were already ticked by add()
+            int count = listeners.size();
+            for (int i = 0; i < count; i++) {
+                Listener listener = listeners.get(i);
+                if (listener != null) {
+                    listener.onTick(epochMillis);
+                }
+            }
+        } finally {
+            dispatching = false;
+            listeners.removeIf(listener -> listener == null);
+        }
+    }
+
+    private void scheduleNext(long now) {
+        if (scheduled || listeners.isEmpty()) return;
+        scheduled = true;
+        choreographer.postFrameCallbackDelayed(this, delayUntilNextSecond(now));
+    }
+
+    /**
+     * Gets the time left until the next whole second.
+     *
+     * @param epochMillis Current time in milliseconds since the epoch
+     * @return Delay in milliseconds, from 1 to 1000
+     */
+    static long delayUntilNextSecond(long epochMillis) {
+        return 1000 - Math.floorMod(epochMillis, 1000L);
+    }
+}
@@ -0,0 +1,109 @@
+package edu.uiuc.cs427app;
+
+import android.content.res.ColorStateList;
+import android.graphics.Color;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link ThemeSpec} with every color parsed once into an int.
+ * <p>
+ * Theming a screen used to parse the spec's hex strings again for every view it
+ * visited and build a new {@link ColorStateList} per button. A compiled theme holds
+ * the resolved colors, with the fallbacks already applied, and one shared tint list,
+ * so applying it to a view only reads fields. Compiled themes are immutable and cached
+ * by spec value, so a spec is compiled once however many screens use it.
+ */
+public final class CompiledTheme {
+    private static final int MAX_CACHED = 8;
+
+    private static final Map<ThemeSpec, CompiledTheme> cache =
+            new LinkedHashMap<ThemeSpec, CompiledTheme>(MAX_CACHED, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ThemeSpec, CompiledTheme> eldest) {
+                    return size() > MAX_CACHED;
+                }
+            };
+
+    /** Window and layout background. */
+    public final int background;
+    /** Text color of labels. */
+    public final int text;
+    /** Text color of buttons. */
+    public final int buttonText;
+    /** Button background tint. */
+    public final int button;
+    /** Card background. */
+    public final int card;
+    /** Background of views tagged "border". */
+    public final int border;
+    /** Background of views tagged "accent". */
+    public final int accent;
+    /** Toolbar and action bar background. */
+    public final int header;
+    /** Toolbar title color. */
+    public final int title;
+    /** Decorative emoji appended to titles, or an empty string. */
+    public final String emoji;
+    /** Tint list shared by every button. */
+    public final ColorStateList buttonTint;
+    /** Tint list shared by toolbars and app bars. */
+    public final ColorStateList headerTint;
+
+    private CompiledTheme(ThemeSpec spec) {
+        background = parseColor(spec.backgroundHex, Color.BLACK);
+        text = parseColor(spec.textHex, Color.BLACK);
+        buttonText = parseColor(spec.textHex, 0xFF111111);
+        button = parseColor(spec.buttonHex, 0xFF1976D2);
+        card = parseColor(spec.cardBackground != null && !spec.cardBackground.isEmpty()
+                ? spec.cardBackground : spec.secondaryHex, 0xFFF5F5F5);
+        border = parseColor(spec.borderColor, 0xFFDDDDDD);
+        accent = parseColor(spec.accentHex, 0xFF3D7DFF);
+        header = parseColor(spec.headerColor, 0xFF3D7DFF);
+        title = parseColor(spec.textHex, 0xFFFFFFFF);
+        emoji = spec.emoji == null ? "" : spec.emoji;
+        buttonTint = ColorStateList.valueOf(button);
+        headerTint = ColorStateList.valueOf(header);
+    }
+
+    /**
+     * Compiles a spec, reusing the compiled theme of an equal spec.
+     * Specs must not be modified after they are compiled.
+     *
+     * @param spec Theme to compile
+     * @return The compiled theme
+     */
+    public static synchronized CompiledTheme of(ThemeSpec spec) {
+        CompiledTheme compiled = cache.get(spec);
+        if (compiled == null) {
+            compiled = new CompiledTheme(spec);
+            cache.put(spec, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * Parses a color as {@code #RRGGBB} or {@code #AARRGGBB}, or as a color name.
+     *
+     * @param hex      Color string, may be null or empty
+     * @param fallback Color to use if the string is missing or malformed
+     * @return The parsed ARGB color
+     */
+    static int parseColor(String hex, int fallback) {
+        if (hex == null || hex.isEmpty()) return fallback;
+        if (hex.charAt(0) == '#' && (hex.length() == 7 || hex.length() == 9)) {
+            try {
+                long value = Long.parseLong(hex.substring(1), 16);
+                return hex.length() == 7 ? (int) (value | 0xFF000000L) : (int) value;
+            } catch (NumberFormatException e) {
+                return fallback;
+            }
+        }
+        try {
+            return Color.parseColor(hex);
+        } catch (Exception e) {
+            return fallback;
+        }
+    }
+}
@@ -3,7 +3,7 @@ package edu.uiuc.cs427app;
 import android.content.Intent;
 import android.graphics.Bitmap;
 import android.os.Bundle;
-import android.os.Handler;
+import android.text.Editable;
 import android.view.View;
 import android.widget.Button;
 import android.widget.ImageView;
@@ -13,11 +13,9 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.Lifecycle;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
-import java.util.TimeZone;
+import java.nio.CharBuffer;
 
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -27,6 +25,7 @@ import retrofit2.converter.gson.GsonConverterFactory;
 
 public class DetailsActivity extends AppCompatActivity implements View.OnClickListener {
     private static final String TAG = "DetailsActivity";
+    private static final String TIME_LABEL = "Local Time: ";
 
     private Button backButton;
     private WeatherImageGenerator imageGenerator;
@@ -44,11 +43,15 @@ public class DetailsActivity extends AppCompatActivity implements View.OnClickLi
 
     private WeatherDB weatherData;
 
-    private Handler timeHandler;
-    private Runnable timeRunnable;
-    private String cityTimezone;
+    private final ClockTicker.Listener clockTick = this::tickClock;
+    private final char[] timeChars = new char[CityClock.TEXT_LENGTH];
+    private final CharBuffer timeText = CharBuffer.wrap(timeChars);
+    private CityClock cityClock;
+    private Editable weatherText;
     private TextView cityInfoMessage;
     private WeatherInfo cachedWeather;
+    // Set once a generic city image is generated, so skipping the placeholder saved nothing
+    private boolean basicImageGenerated;
 
     /**
      * Initializes the activity, loads theme, and displays city details.
@@ -58,15 +61,18 @@ public class DetailsActivity extends AppCompatActivity implements View.OnClickLi
      */
     @Override
     protected void onCreate(Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_details);
         AuthenticationManager authManager = AuthenticationManager.getInstance(this);
 
         String username = AuthenticationManager.getInstance(this).getCurrentUser() != null
                 ? AuthenticationManager.getInstance(this).getCurrentUser().getUsername()
                 : "";
         ThemeSpec spec = ThemeManager.loadForUser(this, username);
+        // Views are themed as they are inflated, so the factory goes in before super.onCreate
+        ThemeManager.install(this, spec);
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_details);
         ThemeManager.apply(this, spec);
+        ThemeManager.follow(this, username);
 
         backButton = findViewById(R.id.back_button);
         cityImageView = findViewById(R.id.cityImageView);
@@ -97,42 +103,43 @@ public class DetailsActivity extends AppCompatActivity implements View.OnClickLi
         TextView welcomeMessage = findViewById(R.id.welcomeText);
         cityInfoMessage = findViewById(R.id.cityInfo);
 
-        // Initialize time handler
-        timeHandler = new Handler();
+        // Reuse weather the dashboard fetched moments ago, else fetch it
+        WeatherInfo recentWeather = WeatherCache.isFresh(latitude, longitude, System.currentTimeMillis())
+                ? WeatherCache.get(latitude, longitude)
+                : null;
+        if (recentWeather == null) {
+            weatherData.getWeather(latitude, longitude, apiKey, "hourly", "imperial")
+                    .enqueue(new Callback<WeatherInfo>() {
+                        @Override
+                        public void onResponse(Call<WeatherInfo> call, Response<WeatherInfo> response) {
+                            if (response.isSuccessful() && response.body() != null) {
+                                WeatherCache.put(latitude, longitude, response.body());
+                                onWeatherLoaded(response.body());
+                            } else {
+                                generateBasicCityImage();
+                            }
+                        }
 
-        // Fetch weather data
-        weatherData.getWeather(latitude, longitude, apiKey, "hourly", "imperial")
-                .enqueue(new Callback<WeatherInfo>() {
-                    @Override
-                    public void onResponse(Call<WeatherInfo> call, Response<WeatherInfo> response) {
-                        if (response.isSuccessful() && response.body() != null) {
-                            cachedWeather = response.body();
-                            cityTimezone = cachedWeather.timezone;
-
-                            // Start updating time
-                            startTimeUpdates();
-                            generateCityImageWithWeather(cachedWeather);
-                        } else {
+                        @Override
+                        public void onFailure(Call<WeatherInfo> call, Throwable t) {
                             generateBasicCityImage();
+                            cityInfoMessage.setText("Failed to fetch weather data");
+                            Toast.makeText(DetailsActivity.this,
+                                    "Network error: " + t.getMessage(), Toast.LENGTH_LONG).show();
                         }
-                    }
-
-                    @Override
-                    public void onFailure(Call<WeatherInfo> call, Throwable t) {
-                        cityInfoMessage.setText("Failed to fetch weather data");
-                        Toast.makeText(DetailsActivity.this,
-                                "Network error: " + t.getMessage(), Toast.LENGTH_LONG).show();
-                    }
-                });
+                    });
+        }
 
         welcomeMessage.setText(welcome);
         // Get the weather information from a Service that connects to a weather server and show the results
 
-        imageGenerator = new WeatherImageGenerator();
-        String weatherSummary = "current local weather in " + cityName;
-        String timeOfDay = inferTimeOfDayLabel();
-
-        generateCityImage(cityName, "", "", weatherSummary, timeOfDay);
+        imageGenerator = newImageGenerator();
+        // The weather-aware image is requested once weather arrives; until then show a
+        // cached image of this city, or the progress placeholder, instead of generating one
+        showCachedOrPlaceholderImage();
+        if (recentWeather != null) {
+            onWeatherLoaded(recentWeather);
+        }
 
 
         Button buttonMap = findViewById(R.id.mapButton);
@@ -153,35 +160,74 @@ public class DetailsActivity extends AppCompatActivity implements View.OnClickLi
     }
 
     /**
-     * Starts periodic time updates for displaying current local time.
-     * Updates the weather display every second using a handler.
+     * Shows fetched or cached weather, starts the clock and requests the weather-aware image.
+     * Ignored if the weather arrives after the screen was destroyed.
+     *
+     * @param weather Current weather for this city
      */
-    private void startTimeUpdates() {
-        timeRunnable = new Runnable() {
-            @Override
-            public void run() {
-                updateWeatherDisplay();
-                timeHandler.postDelayed(this, 1000); // Update every second
-            }
-        };
-        timeHandler.post(timeRunnable);
+    private void onWeatherLoaded(WeatherInfo weather) {
+        if (isDestroyed()) return;
+        cachedWeather = weather;
+        cityClock = CityClock.forWeather(cachedWeather);
+
+        // Render the weather once; the clock then only rewrites the time
+        showWeather();
+        // While hidden, onStart() starts the clock when the screen is shown again
+        if (getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.STARTED)) {
+            startClock();
+        }
+        generateCityImageWithWeather(cachedWeather);
+
+        // Warm up the insights screen while the user reads the weather
+        LLMClient.prefetchWeatherQuestions(formatWeatherData(cachedWeather));
+    }
+
+    /**
+     * Resumes the clock when the screen becomes visible again.
+     */
+    @Override
+    protected void onStart() {
+        super.onStart();
+        startClock();
+    }
+
+    /**
+     * Pauses the clock while the screen is not visible.
+     */
+    @Override
+    protected void onStop() {
+        super.onStop();
+        ClockTicker.getInstance().remove(clockTick);
     }
 
     /**
-     * Updates the weather display with current time and weather information.
-     * Formats time according to city's timezone and displays current weather conditions.
+     * Starts ticking the local time once weather data is shown.
      */
-    private void updateWeatherDisplay() {
-        if (cachedWeather == null || cityTimezone == null) return;
+    private void startClock() {
+        if (weatherText == null) return;
+        ClockTicker.getInstance().add(clockTick);
+    }
 
-        Date currentTime = new Date();
-        SimpleDateFormat df = new SimpleDateFormat("HH:mm:ss", Locale.getDefault());
-        df.setTimeZone(TimeZone.getTimeZone(cityTimezone));
-        String formattedTime = df.format(currentTime);
+    /**
+     * Rewrites only the time characters of the weather text. Called by the shared
+     * {@link ClockTicker} at the start of each second; allocates nothing per tick.
+     *
+     * @param now Current time in milliseconds since the epoch
+     */
+    private void tickClock(long now) {
+        cityClock.render(now, timeChars, 0);
+        weatherText.replace(TIME_LABEL.length(), TIME_LABEL.length() + CityClock.TEXT_LENGTH,
+                timeText, 0, CityClock.TEXT_LENGTH);
+    }
 
+    /**
+     * Shows the current weather conditions under a local time placeholder that
+     * {@link #tickClock(long)} keeps up to date.
+     */
+    private void showWeather() {
         String currentWeather = new StringBuilder()
-                .append("Local Time: ")
-                .append(formattedTime)
+                .append(TIME_LABEL)
+                .append("--:--:--")
                 .append("\nCurrent temperature: ")
                 .append(cachedWeather.current.temp)
                 .append("°F")
@@ -201,15 +247,44 @@ public class DetailsActivity extends AppCompatActivity implements View.OnClickLi
                 .append(cachedWeather.current.weather[0].description)
                 .toString();
 
-        cityInfoMessage.setText(currentWeather);
+        cityInfoMessage.setText(currentWeather, TextView.BufferType.EDITABLE);
+        weatherText = (Editable) cityInfoMessage.getText();
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (timeHandler != null && timeRunnable != null) {
-            timeHandler.removeCallbacks(timeRunnable);
+        ClockTicker.getInstance().remove(clockTick);
+        // The shown image is shared with the memory cache, so it is released rather than recycled
+        cityImageView.setImageDrawable(null);
+    }
+
+    /**
+     * Creates the image generator, decoding images no larger than the image view.
+     * The view fills the screen width and has a fixed height, so its size is known
+     * before layout. Pending generations are cancelled when this screen is destroyed.
+     *
+     * @return A WeatherImageGenerator backed by the shared image cache
+     */
+    private WeatherImageGenerator newImageGenerator() {
+        WeatherImageGenerator generator = new WeatherImageGenerator(this).bindTo(this);
+        generator.setTargetSize(getResources().getDisplayMetrics().widthPixels,
+                cityImageView.getLayoutParams().height);
+        return generator;
+    }
+
+    /**
+     * Shows the most recent cached image of this city while the weather-aware image loads,
+     * or the progress placeholder if none is cached, instead of generating a generic image.
+     */
+    private void showCachedOrPlaceholderImage() {
+        Bitmap cached = CityImageCache.getInstance(this).findInMemory(cityName, inferTimeOfDayLabel());
+        if (cached != null) {
+            cityImageView.setImageBitmap(cached);
+        } else {
+            cityImageView.setImageDrawable(null);
         }
+        cityImageProgress.setVisibility(View.VISIBLE);
     }
 
 
@@ -248,7 +323,6 @@ public class DetailsActivity extends AppCompatActivity implements View.OnClickLi
         }
 
         cityImageProgress.setVisibility(View.VISIBLE);
-        cityImageView.setImageDrawable(null);
 
         imageGenerator.generateCityImageAsync(
                 cityName,
@@ -257,6 +331,11 @@ public class DetailsActivity extends AppCompatActivity implements View.OnClickLi
                 weatherSummary,
                 timeOfDay,
                 new WeatherImageGenerator.ImageCallback() {
+                    @Override
+                    public void onPreview(@NonNull Bitmap preview) {
+                        showPreview(preview);
+                    }
+
                     @Override
                     public void onImageReady(@NonNull android.graphics.Bitmap bitmap) {
                         cityImageProgress.setVisibility(View.GONE);
@@ -273,6 +352,18 @@ public class DetailsActivity extends AppCompatActivity implements View.OnClickLi
         );
     }
 
+    /**
+     * Shows a low-resolution preview while the full image is generated. A cached full
+     * image of the city already on screen is a better stand-in, so it is kept.
+     *
+     * @param preview Blurred thumbnail from the image generator
+     */
+    private void showPreview(Bitmap preview) {
+        if (cityImageView.getDrawable() == null) {
+            cityImageView.setImageBitmap(preview);
+        }
+    }
+
     /**
      * Infers time-of-day label based on current hour.
      * Returns "daytime" (6am-5pm), "sunset" (5pm-9pm), or "night" (9pm-6am).
@@ -337,11 +428,11 @@ public class DetailsActivity extends AppCompatActivity implements View.OnClickLi
     //use new prompt to generate image
     private void generateCityImageWithWeather(WeatherInfo weather) {
         if (imageGenerator == null) {
-            imageGenerator = new WeatherImageGenerator();
+            imageGenerator = newImageGenerator();
         }
 
+        // Keep any stand-in image on screen until the weather-aware one replaces it
         cityImageProgress.setVisibility(View.VISIBLE);
-        cityImageView.setImageDrawable(null);
 
         imageGenerator.generateCityImageWithWeatherAsync(
                 cityName,
@@ -350,10 +441,19 @@ public class DetailsActivity extends AppCompatActivity implements View.OnClickLi
                 weather,
                 inferTimeOfDayLabel(),
                 new WeatherImageGenerator.ImageCallback() {
+                    @Override
+                    public void onPreview(@NonNull Bitmap preview) {
+                        showPreview(preview);
+                    }
+
                     @Override
                     public void onImageReady(@NonNull Bitmap bitmap) {
                         cityImageProgress.setVisibility(View.GONE);
                         cityImageView.setImageBitmap(bitmap);
+                        if (!basicImageGenerated) {
+                            // The screen got its image without a generic placeholder generation
+                            WeatherImageGenerator.recordGenerationSaved();
+                        }
                     }
 
                     @Override
@@ -365,24 +465,12 @@ public class DetailsActivity extends AppCompatActivity implements View.OnClickLi
         );
     }
 
+    /**
+     * Generates a city image without weather details, used when weather cannot be loaded.
+     */
     private void generateBasicCityImage() {
+        basicImageGenerated = true;
         String weatherSummary = "current local weather in " + cityName;
-        String timeOfDay = inferTimeOfDayLabel();
-
-        imageGenerator.generateCityImageAsync(
-                cityName, "", "", weatherSummary, timeOfDay,
-                new WeatherImageGenerator.ImageCallback() {
-                    @Override
-                    public void onImageReady(@NonNull Bitmap bitmap) {
-                        cityImageProgress.setVisibility(View.GONE);
-                        cityImageView.setImageBitmap(bitmap);
-                    }
-
-                    @Override
-                    public void onError(@NonNull Throwable t) {
-                        cityImageProgress.setVisibility(View.GONE);
-                    }
-                }
-        );
+        generateCityImage(cityName, "", "", weatherSummary, inferTimeOfDayLabel());
     }
 }
@@ -0,0 +1,166 @@
+package edu.uiuc.cs427app;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.Base64;
+
+/**
+ * Streams the image out of a Gemini generateContent response without buffering it.
+ * <p>
+ * A Gemini image response is a few kilobytes of JSON around a multi-megabyte base64
+ * string at candidates[].content.parts[].inlineData.data. Instead of reading the whole
+ * body into a String, parsing it into a JSONObject and decoding the string into a byte
+ * array, this scans the JSON tokens up to that field and returns a stream that decodes
+ * the base64 characters as they are read, so the image bytes can go straight into
+ * BitmapFactory.
+ */
+public final class GeminiImageStream {
+    private static final String INLINE_DATA_KEY = "inlineData";
+    private static final String DATA_KEY = "data";
+    // Longer strings cannot be a key we look for, so they are skipped without copying
+    private static final int MAX_KEY_LENGTH = 16;
+
+    private GeminiImageStream() {
+    }
+
+    /**
+     * Positions the response at the first inlineData.data field and returns its decoded bytes.
+     *
+     * @param response Raw response body; it is consumed by the returned stream
+     * @return Stream of decoded image bytes
+     * @throws IOException If the response has no inlineData.data field, or cannot be read
+     */
+    public static InputStream open(InputStream response) throws IOException {
+        PushbackInputStream in = new PushbackInputStream(response, 1);
+        StringBuilder token = new StringBuilder(MAX_KEY_LENGTH);
+        int depth = 0;
+        int inlineDataDepth = -1;
+
+        int c;
+        while ((c = in.read()) != -1) {
+            switch (c) {
+                case '{':
+                    depth++;
+                    break;
+                case '}':
+                    if (depth == inlineDataDepth) inlineDataDepth = -1;
+                    depth--;
+                    break;
+                case '"':
+                    boolean fits = readString(in, token);
+                    if (!fits || nextNonWhitespace(in) != ':') {
+                        // A value rather than a key; the peeked character is re-read by the loop
+                        break;
+                    }
+                    in.read(); // the colon
+                    String key = token.toString();
+                    if (INLINE_DATA_KEY.equals(key)) {
+                        inlineDataDepth = depth + 1;
+                    } else if (DATA_KEY.equals(key) && depth == inlineDataDepth) {
+                        if (nextNonWhitespace(in) == '"') {
+                            in.read();
+                            return Base64.getMimeDecoder().wrap(new StringValueStream(in));
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        throw new IOException("No inlineData.data field with image found");
+    }
+
+    /**
+     * Reads the rest of a JSON string, keeping its content in {@code token} if it is short.
+     *
+     * @return true if the whole string fit in the token buffer
+     */
+    private static boolean readString(InputStream in, StringBuilder token) throws IOException {
+        token.setLength(0);
+        boolean fits = true;
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '"') return fits;
+            if (c == '\\') {
+                c = in.read();
+                if (c == -1) break;
+            }
+            if (fits) {
+                if (token.length() < MAX_KEY_LENGTH) {
+                    token.append((char) c);
+                } else {
+                    fits = false;
+                }
+            }
+        }
+        throw new IOException("Unterminated string in Gemini response");
+    }
+
+    /**
+     * Peeks at the next non-whitespace character without consuming it.
+     */
+    private static int nextNonWhitespace(PushbackInputStream in) throws IOException {
+        int c;
+        do {
+            c = in.read();
+        } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+        if (c != -1) in.unread(c);
+        return c;
+    }
+
+    /**
+     * Raw characters of a JSON string value up to its closing quote, with escapes removed.
+     * Base64 only needs {@code \/} unescaped; whitespace escapes are dropped.
+     */
+    private static class StringValueStream extends InputStream {
+        private final InputStream in;
+        // The base64 decoder reads one byte at a time, so reuse the buffer for it
+        private final byte[] single = new byte[1];
+        private boolean escaped;
+        private boolean ended;
+
+        StringValueStream(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int n = read(single, 0, 1);
+            return n == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            while (!ended) {
+                int n = in.read(b, off, len);
+                if (n == -1) throw new IOException("Unterminated image data in Gemini response");
+
+                // Compact in place, dropping escapes and stopping at the closing quote
+                int out = off;
+                for (int i = off; i < off + n; i++) {
+                    byte c = b[i];
+                    if (escaped) {
+                        escaped = false;
+                        if (c == '/') b[out++] = c;
+                    } else if (c == '\\') {
+                        escaped = true;
+                    } else if (c == '"') {
+                        ended = true;
+                        break;
+                    } else {
+                        b[out++] = c;
+                    }
+                }
+                if (out > off) return out - off;
+            }
+            return -1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package edu.uiuc.cs427app;
+
+import com.google.ai.client.generativeai.GenerativeModel;
+import com.google.ai.client.generativeai.java.GenerativeModelFutures;
+import com.google.ai.client.generativeai.type.Content;
+import com.google.ai.client.generativeai.type.GenerateContentResponse;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+/**
+ * {@link LlmBackend} that calls Gemini through the official SDK.
+ */
+public class GeminiLlmBackend implements LlmBackend {
+    private final String modelName;
+
+    /**
+     * Creates a backend for a Gemini model.
+     *
+     * @param modelName Model name, e.g. "gemini-2.5-flash-lite"
+     */
+    public GeminiLlmBackend(String modelName) {
+        this.modelName = modelName;
+    }
+
+    @Override
+    public ListenableFuture<String> generate(String apiKey, String prompt) {
+        GenerativeModel model = new GenerativeModel(modelName, apiKey);
+        GenerativeModelFutures futures = GenerativeModelFutures.from(model);
+
+        Content content = new Content.Builder()
+                .addText(prompt)
+                .build();
+
+        ListenableFuture<GenerateContentResponse> response = futures.generateContent(content);
+        return Futures.transform(response, result -> {
+            String text = result.getText();
+            if (text == null || text.isEmpty()) {
+                throw new IllegalStateException("Empty response");
+            }
+            return text;
+        }, MoreExecutors.directExecutor());
+    }
+}
@@ -0,0 +1,207 @@
+package edu.uiuc.cs427app;
+
+import android.util.Log;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Client-side token bucket shared by all Gemini traffic (themes, weather questions,
+ * weather answers and city images), so bursts are smoothed out on the device instead
+ * of coming back as 429s followed by serial timeouts.
+ * <p>
+ * Each {@link LlmOperation} costs its weight in tokens. Interactive requests use
+ * {@link #acquire} and may wait briefly for tokens; speculative work such as prefetching
+ * uses {@link #tryAcquire}, which never waits and simply skips the work when the budget
+ * is spent. A waiting caller that is cancelled gives its reserved tokens back.
+ * Admitted and throttled calls are counted per operation.
+ */
+public class GeminiRateLimiter {
+    private static final String TAG = "GeminiRateLimiter";
+    private static final int DEFAULT_CAPACITY = 20;
+    private static final double DEFAULT_REFILL_PER_SECOND = 0.5; // 30 tokens per minute
+    // How often a waiting caller checks whether its request was cancelled
+    private static final long CANCEL_POLL_MS = 50;
+
+    private static GeminiRateLimiter instance;
+
+    private final double capacity;
+    private final double refillPerMs;
+    private final LongSupplier clock;
+
+    private double tokens;
+    private long lastRefillMs;
+
+    private final AtomicLongArray admitted = new AtomicLongArray(LlmOperation.values().length);
+    private final AtomicLongArray throttled = new AtomicLongArray(LlmOperation.values().length);
+
+    /**
+     * Creates a limiter.
+     *
+     * @param capacity        Maximum burst size in tokens
+     * @param refillPerSecond Tokens added per second
+     * @param clock           Millisecond clock (injectable for tests)
+     */
+    public GeminiRateLimiter(int capacity, double refillPerSecond, LongSupplier clock) {
+        this.capacity = capacity;
+        this.refillPerMs = refillPerSecond / 1000.0;
+        this.clock = clock;
+        this.tokens = capacity;
+        this.lastRefillMs = clock.getAsLong();
+    }
+
+    /**
+     * Gets the limiter shared by every Gemini caller in the process.
+     *
+     * @return The shared GeminiRateLimiter
+     */
+    public static synchronized GeminiRateLimiter getInstance() {
+        if (instance == null) {
+            instance = new GeminiRateLimiter(DEFAULT_CAPACITY, DEFAULT_REFILL_PER_SECOND,
+                    () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+        }
+        return instance;
+    }
+
+    /**
+     * Replaces the shared limiter, e.g. with a larger budget for load tests.
+     *
+     * @param limiter Limiter to share from now on
+     */
+    static synchronized void setInstance(GeminiRateLimiter limiter) {
+        instance = limiter;
+    }
+
+    /**
+     * Takes tokens for a request without waiting.
+     *
+     * @param operation Kind of request
+     * @return true if the request is admitted, false if it should be skipped
+     */
+    public boolean tryAcquire(LlmOperation operation) {
+        synchronized (this) {
+            refill();
+            if (tokens >= operation.getWeight()) {
+                tokens -= operation.getWeight();
+                admitted.incrementAndGet(operation.ordinal());
+                return true;
+            }
+        }
+        throttled.incrementAndGet(operation.ordinal());
+        return false;
+    }
+
+    /**
+     * Takes tokens for a request, waiting up to {@code maxWaitMs} for the bucket to refill.
+     * Must not be called on the main thread.
+     *
+     * @param operation Kind of request
+     * @param maxWaitMs Longest acceptable wait
+     * @return true if the request is admitted, false if it was throttled
+     */
+    public boolean acquire(LlmOperation operation, long maxWaitMs) {
+        return acquire(operation, maxWaitMs, () -> false);
+    }
+
+    /**
+     * Takes tokens for a request, waiting up to {@code maxWaitMs} for the bucket to refill
+     * unless the request is cancelled first, in which case the reserved tokens are
+     * given back. Must not be called on the main thread.
+     *
+     * @param operation Kind of request
+     * @param maxWaitMs Longest acceptable wait
+     * @param cancelled Checked while waiting; returns true once the request is cancelled
+     * @return true if the request is admitted, false if it was throttled or cancelled
+     */
+    public boolean acquire(LlmOperation operation, long maxWaitMs, BooleanSupplier cancelled) {
+        long waitMs;
+        synchronized (this) {
+            refill();
+            double deficit = operation.getWeight() - tokens;
+            waitMs = deficit <= 0 ? 0 : (long) Math.ceil(deficit / refillPerMs);
+            if (waitMs > maxWaitMs) {
+                waitMs = -1;
+            } else {
+                // Reserve now so concurrent callers queue up behind this one
+                tokens -= operation.getWeight();
+            }
+        }
+
+        if (waitMs < 0) {
+            throttled.incrementAndGet(operation.ordinal());
+            Log.w(TAG, operation + " throttled, Gemini budget exhausted");
+            return false;
+        }
+
+        try {
+            while (waitMs > 0 && !cancelled.getAsBoolean()) {
+                long sliceMs = Math.min(waitMs, CANCEL_POLL_MS);
+                Thread.sleep(sliceMs);
+                waitMs -= sliceMs;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            refund(operation);
+            throttled.incrementAndGet(operation.ordinal());
+            return false;
+        }
+        if (cancelled.getAsBoolean()) {
+            refund(operation);
+            Log.d(TAG, operation + " cancelled while waiting for the Gemini budget");
+            return false;
+        }
+        admitted.incrementAndGet(operation.ordinal());
+        return true;
+    }
+
+    private synchronized void refund(LlmOperation operation) {
+        tokens = Math.min(capacity, tokens + operation.getWeight());
+    }
+
+    /**
+     * Gets the number of admitted requests for an operation.
+     *
+     * @param operation Kind of request
+     * @return Admitted count since process start
+     */
+    public long getAdmittedCount(LlmOperation operation) {
+        return admitted.get(operation.ordinal());
+    }
+
+    /**
+     * Gets the number of throttled requests for an operation.
+     *
+     * @param operation Kind of request
+     * @return Throttled count since process start
+     */
+    public long getThrottledCount(LlmOperation operation) {
+        return throttled.get(operation.ordinal());
+    }
+
+    /**
+     * Builds a one-line summary of admitted vs throttled calls, for logging.
+     *
+     * @return Metrics summary string
+     */
+    public String metricsSummary() {
+        StringBuilder sb = new StringBuilder();
+        for (LlmOperation operation : LlmOperation.values()) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(operation).append(' ')
+                    .append(getAdmittedCount(operation)).append(" admitted/")
+                    .append(getThrottledCount(operation)).append(" throttled");
+        }
+        return sb.toString();
+    }
+
+    private void refill() {
+        long now = clock.getAsLong();
+        long elapsed = now - lastRefillMs;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * refillPerMs);
+            lastRefillMs = now;
+        }
+    }
+}
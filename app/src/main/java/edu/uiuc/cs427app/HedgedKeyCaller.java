@@ -0,0 +1,277 @@
+package edu.uiuc.cs427app;
+
+import android.util.Log;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends one LLM request across the primary and backup Gemini keys.
+ * <p>
+ * The primary key is tried first. If it has not answered by its recent p95 latency,
+ * a hedged request is sent with the backup key; whichever returns a usable result
+ * first wins and the other request is cancelled. A failed primary response triggers
+ * the backup immediately instead of waiting for the timeout. Each key has its own
+ * {@link KeyCircuitBreaker}, so a key that keeps failing is skipped until it recovers.
+ * A hedge is extra Gemini traffic, so it takes its own {@link GeminiRateLimiter} tokens
+ * and is skipped when the budget is spent.
+ */
+public class HedgedKeyCaller {
+    private static final String TAG = "HedgedKeyCaller";
+    private static final double HEDGE_PERCENTILE = 0.95;
+    private static final long MIN_HEDGE_DELAY_MS = 250;
+    private static final long DEFAULT_HEDGE_DELAY_MS = 4000;
+
+    private final Key primary;
+    private final Key backup;
+
+    /**
+     * Creates a caller for a primary/backup key pair.
+     *
+     * @param primary Primary key, tried first
+     * @param backup  Backup key, used for hedging and failover
+     */
+    public HedgedKeyCaller(Key primary, Key backup) {
+        this.primary = primary;
+        this.backup = backup;
+    }
+
+    /**
+     * Sends the request and blocks until a key produces a result, the request's deadline
+     * passes, or its token is cancelled. Cancellation cancels the in-flight Gemini futures.
+     * Must not be called on the main thread.
+     *
+     * @param request Sends the prompt with a given API key
+     * @param llmRequest Deadline and cancellation token for this call
+     * @return The first usable result, or null if every admitted key failed, timed out
+     * or the request was cancelled
+     */
+    public String call(KeyRequest request, LlmRequest llmRequest) {
+        if (llmRequest.isDone()) {
+            return null;
+        }
+        long deadline = llmRequest.getDeadlineMs();
+        BlockingQueue<Attempt> completed = new LinkedBlockingQueue<>();
+        List<Attempt> running = new ArrayList<>();
+        Runnable unregister = llmRequest.getToken().onCancel(() -> completed.add(Attempt.CANCELLED));
+
+        boolean backupSent = false;
+        if (primary.isConfigured() && primary.breaker.allowRequest()) {
+            running.add(start(primary, request, completed));
+        } else {
+            backupSent = true;
+            startIfAllowed(backup, request, completed, running);
+        }
+
+        long hedgeAt = backupSent ? Long.MAX_VALUE : LlmRequest.now() + hedgeDelayMs(llmRequest);
+        try {
+            if (running.isEmpty()) {
+                return null;
+            }
+            while (true) {
+                long current = LlmRequest.now();
+                if (current >= deadline) break;
+
+                Attempt done = completed.poll(Math.min(deadline, hedgeAt) - current, TimeUnit.MILLISECONDS);
+                if (llmRequest.getToken().isCancelled()) {
+                    Log.d(TAG, llmRequest.getOperation() + " cancelled");
+                    return null;
+                }
+                if (done == null) {
+                    if (!backupSent && LlmRequest.now() >= hedgeAt) {
+                        backupSent = true;
+                        hedgeAt = Long.MAX_VALUE;
+                        Log.w(TAG, primary.label + " slower than p95, hedging with " + backup.label);
+                        hedge(request, llmRequest, completed, running);
+                    }
+                    continue;
+                }
+
+                running.remove(done);
+                String result = done.result();
+                if (result != null) {
+                    done.key.breaker.recordSuccess();
+                    done.key.latency.record(LlmRequest.now() - done.startedAtMs);
+                    recordUnfinished(running, done.startedAtMs);
+                    Log.d(TAG, done.key.label + " key succeeded");
+                    return result;
+                }
+
+                done.key.breaker.recordFailure();
+                Log.w(TAG, done.key.label + " key failed");
+                if (!backupSent) {
+                    backupSent = true;
+                    hedgeAt = Long.MAX_VALUE;
+                    startIfAllowed(backup, request, completed, running);
+                }
+                if (running.isEmpty()) {
+                    return null;
+                }
+            }
+
+            for (Attempt attempt : running) {
+                attempt.key.breaker.recordFailure();
+                Log.e(TAG, attempt.key.label + " " + llmRequest.getOperation() + " missed its deadline");
+            }
+            recordUnfinished(running, Long.MAX_VALUE);
+            // Left in running so the finally block cancels them
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            unregister.run();
+            // Cancel the losing, abandoned or cancelled requests
+            for (Attempt attempt : running) {
+                attempt.future.cancel(true);
+                attempt.key.breaker.releaseTrial();
+            }
+        }
+    }
+
+    /**
+     * Checks whether any key is configured, i.e. whether {@link #call} can send anything.
+     *
+     * @return true if the primary or backup key is set
+     */
+    public boolean hasConfiguredKey() {
+        return primary.isConfigured() || backup.isConfigured();
+    }
+
+    /**
+     * Delay before the backup request is sent, based on the primary key's recent latency.
+     */
+    private long hedgeDelayMs(LlmRequest llmRequest) {
+        long p95 = primary.latency.percentile(HEDGE_PERCENTILE);
+        return Math.max(MIN_HEDGE_DELAY_MS, Math.min(p95, llmRequest.remainingMs()));
+    }
+
+    /**
+     * Records how long the attempts about to be cancelled have been running. Their real
+     * latency is at least that, so skipping them would let a slow key's p95 drift low and
+     * hedge more often. Attempts started after {@code startedBy} are skipped: a hedge that
+     * lost to an earlier request has only run briefly and says nothing about its key.
+     */
+    private static void recordUnfinished(List<Attempt> running, long startedBy) {
+        long now = LlmRequest.now();
+        for (Attempt attempt : running) {
+            if (attempt.startedAtMs <= startedBy) {
+                attempt.key.latency.record(now - attempt.startedAtMs);
+            }
+        }
+    }
+
+    /**
+     * Sends the hedged backup request if the backup key is healthy and the shared
+     * Gemini budget has room for it.
+     */
+    private void hedge(KeyRequest request, LlmRequest llmRequest, BlockingQueue<Attempt> completed, List<Attempt> running) {
+        if (!backup.isConfigured() || !backup.breaker.allowRequest()) return;
+        if (!GeminiRateLimiter.getInstance().tryAcquire(llmRequest.getOperation())) {
+            backup.breaker.releaseTrial();
+            Log.d(TAG, "Gemini budget spent, not hedging " + llmRequest.getOperation());
+            return;
+        }
+        running.add(start(backup, request, completed));
+    }
+
+    private void startIfAllowed(Key key, KeyRequest request, BlockingQueue<Attempt> completed, List<Attempt> running) {
+        if (key.isConfigured() && key.breaker.allowRequest()) {
+            running.add(start(key, request, completed));
+        }
+    }
+
+    private Attempt start(Key key, KeyRequest request, BlockingQueue<Attempt> completed) {
+        ListenableFuture<String> future;
+        try {
+            future = request.send(key.apiKey);
+        } catch (Exception e) {
+            future = Futures.immediateFailedFuture(e);
+        }
+        Attempt attempt = new Attempt(key, future, LlmRequest.now());
+        future.addListener(() -> completed.add(attempt), MoreExecutors.directExecutor());
+        return attempt;
+    }
+
+    /**
+     * Sends a prompt using a specific API key.
+     */
+    public interface KeyRequest {
+        ListenableFuture<String> send(String apiKey) throws Exception;
+    }
+
+    /**
+     * An API key together with its health state.
+     */
+    public static class Key {
+        final String label;
+        final String apiKey;
+        final KeyCircuitBreaker breaker;
+        final LatencyTracker latency;
+
+        /**
+         * Creates a key with a default breaker and latency window.
+         *
+         * @param label  Label for logging (e.g. "PRIMARY")
+         * @param apiKey The API key, may be empty if not configured
+         */
+        public Key(String label, String apiKey) {
+            this(label, apiKey, new KeyCircuitBreaker(), new LatencyTracker(50, DEFAULT_HEDGE_DELAY_MS));
+        }
+
+        /**
+         * Creates a key with an explicit breaker and latency tracker.
+         */
+        public Key(String label, String apiKey, KeyCircuitBreaker breaker, LatencyTracker latency) {
+            this.label = label;
+            this.apiKey = apiKey;
+            this.breaker = breaker;
+            this.latency = latency;
+        }
+
+        boolean isConfigured() {
+            return apiKey != null && !apiKey.isEmpty();
+        }
+    }
+
+    /**
+     * One in-flight request with a specific key.
+     */
+    private static class Attempt {
+        /**
+         * Queued when the request's token is cancelled, to wake up the waiting caller.
+         */
+        static final Attempt CANCELLED = new Attempt(null, null, 0);
+
+        final Key key;
+        final ListenableFuture<String> future;
+        final long startedAtMs;
+
+        Attempt(Key key, ListenableFuture<String> future, long startedAtMs) {
+            this.key = key;
+            this.future = future;
+            this.startedAtMs = startedAtMs;
+        }
+
+        /**
+         * @return The non-empty result, or null if the request failed
+         */
+        String result() {
+            try {
+                String text = Futures.getDone(future);
+                return (text == null || text.isEmpty()) ? null : text;
+            } catch (ExecutionException | RuntimeException e) {
+                Log.e(TAG, key.label + " error: " + e.getMessage());
+                return null;
+            }
+        }
+    }
+}
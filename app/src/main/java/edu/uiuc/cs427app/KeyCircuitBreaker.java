@@ -0,0 +1,132 @@
+package edu.uiuc.cs427app;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker for a single Gemini API key.
+ * <p>
+ * After {@code failureThreshold} consecutive failures the breaker opens and the key
+ * is skipped. Once {@code openDurationMs} has passed, a single trial request is let
+ * through (half-open); its success closes the breaker again, its failure re-opens it.
+ * This replaces the old permanent "primary key failed" flag so a brief outage does not
+ * disable a key for the rest of the process lifetime.
+ */
+public class KeyCircuitBreaker {
+
+    /**
+     * Breaker states.
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private static final int DEFAULT_FAILURE_THRESHOLD = 2;
+    private static final long DEFAULT_OPEN_DURATION_MS = 30_000;
+
+    private final int failureThreshold;
+    private final long openDurationMs;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtMs;
+    private boolean trialInFlight;
+
+    /**
+     * Creates a breaker with the default threshold and open duration.
+     */
+    public KeyCircuitBreaker() {
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION_MS,
+                () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+    }
+
+    /**
+     * Creates a breaker with explicit settings.
+     *
+     * @param failureThreshold Consecutive failures before the breaker opens
+     * @param openDurationMs   How long the breaker stays open before a trial request
+     * @param clock            Millisecond clock (injectable for tests)
+     */
+    public KeyCircuitBreaker(int failureThreshold, long openDurationMs, LongSupplier clock) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDurationMs = openDurationMs;
+        this.clock = clock;
+    }
+
+    /**
+     * Checks whether a request may be sent with this key.
+     * In the half-open state only one trial request is admitted at a time.
+     *
+     * @return true if the request may proceed
+     */
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (clock.getAsLong() - openedAtMs < openDurationMs) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return true;
+            case HALF_OPEN:
+            default:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    /**
+     * Records a successful response, closing the breaker.
+     */
+    public synchronized void recordSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    /**
+     * Records a failed or timed-out response.
+     */
+    public synchronized void recordFailure() {
+        trialInFlight = false;
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        consecutiveFailures++;
+        if (consecutiveFailures >= failureThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * Releases an admitted request that was cancelled before it produced a result,
+     * so a half-open breaker can admit another trial.
+     */
+    public synchronized void releaseTrial() {
+        trialInFlight = false;
+    }
+
+    /**
+     * Gets the current state, for logging and tests.
+     *
+     * @return Current breaker state
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAtMs = clock.getAsLong();
+        consecutiveFailures = 0;
+    }
+}
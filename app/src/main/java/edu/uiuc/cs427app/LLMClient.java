@@ -4,34 +4,89 @@ import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 
-import com.google.ai.client.generativeai.GenerativeModel;
-import com.google.ai.client.generativeai.java.GenerativeModelFutures;
-import com.google.ai.client.generativeai.type.Content;
-import com.google.ai.client.generativeai.type.GenerateContentResponse;
-import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
 
+import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Client for generating UI themes using the Gemini API.
- * Uses the official Gemini SDK for Android.
+ * Uses the official Gemini SDK for Android through {@link GeminiLlmBackend};
+ * tests can swap in an offline backend via {@link #useBackend}.
  */
 public class LLMClient {
     private static final String TAG = "LLMClient";
     private static final String MODEL_NAME = "gemini-2.5-flash-lite";
-    private static final int TIMEOUT_SECONDS = 20;
+    private static final long RATE_LIMIT_MAX_WAIT_MS = 5000;
+    private static final int MAX_WORKER_THREADS = 8;
 
     private static final String API_KEY_PRIMARY = BuildConfig.GEMINI_API_KEY_PRIMARY;
     private static final String API_KEY_BACKUP = BuildConfig.GEMINI_API_KEY_BACKUP;
 
-    private static boolean primaryKeyFailed = false;
+    private static volatile LlmBackend backend = new GeminiLlmBackend(MODEL_NAME);
+    private static volatile HedgedKeyCaller keyCaller = newKeyCaller(API_KEY_PRIMARY, API_KEY_BACKUP);
+
+    /**
+     * Worker threads for the async API. Bounded so a burst of requests queues up
+     * instead of starting one thread per call; idle threads time out.
+     */
+    private static final ThreadPoolExecutor executor = newExecutor();
+
+    /**
+     * Replace the LLM transport and API keys, e.g. with an offline backend for load tests.
+     * Resets key health and clears cached questions.
+     *
+     * @param newBackend Backend to send prompts to
+     * @param primaryKey Primary API key
+     * @param backupKey  Backup API key
+     */
+    static void useBackend(LlmBackend newBackend, String primaryKey, String backupKey) {
+        backend = newBackend;
+        keyCaller = newKeyCaller(primaryKey, backupKey);
+        WeatherQuestionCache.clear();
+    }
+
+    /**
+     * Restore the Gemini backend and the keys from BuildConfig.
+     */
+    static void resetBackend() {
+        useBackend(new GeminiLlmBackend(MODEL_NAME), API_KEY_PRIMARY, API_KEY_BACKUP);
+    }
+
+    private static HedgedKeyCaller newKeyCaller(String primaryKey, String backupKey) {
+        return new HedgedKeyCaller(
+                new HedgedKeyCaller.Key("PRIMARY", primaryKey),
+                new HedgedKeyCaller.Key("BACKUP", backupKey));
+    }
+
+    private static ThreadPoolExecutor newExecutor() {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                MAX_WORKER_THREADS, MAX_WORKER_THREADS, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> new Thread(r, "llm-worker-" + count.incrementAndGet()));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
 
     /**
      * Generate a theme JSON from a description (blocking call).
      */
     public static String generateThemeJson(String description) {
+        return generateThemeJson(description, LlmRequest.of(LlmOperation.THEME, null));
+    }
+
+    /**
+     * Generate a theme JSON from a description within the request's deadline (blocking call).
+     */
+    static String generateThemeJson(String description, LlmRequest request) {
         if (description == null || description.trim().isEmpty()) {
             Log.d(TAG, "Empty description, using default theme");
             return getDefaultThemeJson();
@@ -40,18 +95,22 @@ public class LLMClient {
         try {
             String prompt = (description == null ? "" : description.trim()) + augmentThemeInstruction();
 
-            if (!primaryKeyFailed && !API_KEY_PRIMARY.isEmpty()) {
-                String result = generateWithKey(API_KEY_PRIMARY, prompt, "PRIMARY");
-                if (result != null) return result;
-
-                primaryKeyFailed = true;
-                Log.w(TAG, "Primary key failed, trying backup");
-            }
-
-            if (!API_KEY_BACKUP.isEmpty()) {
-                String result = generateWithKey(API_KEY_BACKUP, prompt, "BACKUP");
-                if (result != null) return result;
+            if (!admit(request)) {
+                return getDefaultThemeJson();
             }
+            String result = keyCaller.call(apiKey -> Futures.transform(
+                    backend.generate(apiKey, prompt),
+                    text -> {
+                        String json = extractJson(text);
+                        try {
+                            new JSONObject(json); // Validate
+                        } catch (JSONException e) {
+                            throw new IllegalStateException("Invalid theme JSON", e);
+                        }
+                        return json;
+                    },
+                    MoreExecutors.directExecutor()), request);
+            if (result != null) return result;
 
             Log.e(TAG, "Both API keys failed, using default");
             return getDefaultThemeJson();
@@ -63,47 +122,32 @@ public class LLMClient {
     }
 
     /**
-     * Call the Gemini API with a specific key.
+     * Wait for the shared Gemini budget before sending an interactive request.
+     * The wait never extends past the request's deadline.
+     *
+     * @param request Request about to be sent
+     * @return true if the request may be sent (always true when no key is configured)
      */
-    private static String generateWithKey(String apiKey, String prompt, String keyLabel) {
-        try {
-            Log.d(TAG, "Generating theme with " + keyLabel + " key");
-
-            GenerativeModel model = new GenerativeModel(MODEL_NAME, apiKey);
-            GenerativeModelFutures futures = GenerativeModelFutures.from(model);
-
-            Content content = new Content.Builder()
-                    .addText(prompt)
-                    .build();
-
-            ListenableFuture<GenerateContentResponse> response = futures.generateContent(content);
-            GenerateContentResponse result = response.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
-
-            String text = result.getText();
-            if (text != null && !text.isEmpty()) {
-                Log.d(TAG, keyLabel + " key succeeded");
-                String json = extractJson(text);
-                new JSONObject(json); // Validate
-                return json;
-            }
-
-            Log.e(TAG, keyLabel + " key returned empty response");
-            return null;
-
-        } catch (java.util.concurrent.TimeoutException e) {
-            Log.e(TAG, keyLabel + " timeout after " + TIMEOUT_SECONDS + "s");
-            return null;
-        } catch (Exception e) {
-            Log.e(TAG, keyLabel + " error: " + e.getMessage());
-            return null;
-        }
+    private static boolean admit(LlmRequest request) {
+        if (!keyCaller.hasConfiguredKey()) return true;
+        if (request.isDone()) return false;
+        long maxWaitMs = Math.min(RATE_LIMIT_MAX_WAIT_MS, request.remainingMs());
+        return GeminiRateLimiter.getInstance().acquire(request.getOperation(), maxWaitMs,
+                request.getToken()::isCancelled);
     }
 
     /**
      * Generate a ThemeSpec from a description (blocking call).
      */
     public static ThemeSpec generateThemeSpec(String description) {
-        String json = generateThemeJson(description);
+        return generateThemeSpec(description, LlmRequest.of(LlmOperation.THEME, null));
+    }
+
+    /**
+     * Generate a ThemeSpec from a description within the request's deadline (blocking call).
+     */
+    static ThemeSpec generateThemeSpec(String description, LlmRequest request) {
+        String json = generateThemeJson(description, request);
         ThemeSpec spec = ThemeSpec.fromJson(json);
 
         if (spec == null || !spec.isValid()) {
@@ -117,15 +161,28 @@ public class LLMClient {
      * Generate a theme asynchronously with callback.
      */
     public static void generateThemeSpecAsync(String description, ThemeCallback callback) {
-        new Thread(() -> {
+        generateThemeSpecAsync(description, null, callback);
+    }
+
+    /**
+     * Generate a theme asynchronously with callback.
+     * The callback is not invoked if the token is cancelled first.
+     *
+     * @param description Theme description
+     * @param token       Token that cancels the request, or null for none
+     * @param callback    Callback to receive the generated theme
+     */
+    public static void generateThemeSpecAsync(String description, CancellationToken token, ThemeCallback callback) {
+        LlmRequest request = LlmRequest.of(LlmOperation.THEME, token);
+        executor.execute(() -> {
             try {
-                ThemeSpec spec = generateThemeSpec(description);
-                postCallback(() -> callback.onThemeGenerated(spec));
+                ThemeSpec spec = generateThemeSpec(description, request);
+                postCallback(request, () -> callback.onThemeGenerated(spec));
             } catch (Exception e) {
                 Log.e(TAG, "Async generation error: " + e.getMessage(), e);
-                postCallback(() -> callback.onThemeGenerated(ThemeSpec.defaultLight()));
+                postCallback(request, () -> callback.onThemeGenerated(ThemeSpec.defaultLight()));
             }
-        }).start();
+        });
     }
 
     /**
@@ -135,6 +192,17 @@ public class LLMClient {
         generateThemeSpecAsync(description, callback);
     }
 
+    /**
+     * Post callback on main thread unless the request was cancelled in the meantime.
+     */
+    private static void postCallback(LlmRequest request, Runnable callback) {
+        postCallback(() -> {
+            if (!request.getToken().isCancelled()) {
+                callback.run();
+            }
+        });
+    }
+
     /**
      * Post callback on main thread if available, otherwise call directly.
      */
@@ -238,38 +306,59 @@ public class LLMClient {
     public static String[] generateWeatherQuestions(String weatherData) {
         if (weatherData == null || weatherData.trim().isEmpty()) {
             Log.e(TAG, "Empty weather data provided");
-            return new String[]{"What should I wear today?", "What should I prepare for an outdoor event today?"};
+            return defaultWeatherQuestions();
         }
 
         try {
-            String prompt = buildWeatherQuestionsPrompt(weatherData);
-
-            String result = null;
-            if (!primaryKeyFailed && !API_KEY_PRIMARY.isEmpty()) {
-                result = generateTextWithKey(API_KEY_PRIMARY, prompt, "PRIMARY");
-                if (result != null) {
-                    return parseQuestions(result);
-                }
-                primaryKeyFailed = true;
-                Log.w(TAG, "Primary key failed for weather questions, trying backup");
-            }
-
-            if (!API_KEY_BACKUP.isEmpty()) {
-                result = generateTextWithKey(API_KEY_BACKUP, prompt, "BACKUP");
-                if (result != null) {
-                    return parseQuestions(result);
-                }
+            String[] questions = requestWeatherQuestions(weatherData, false,
+                    LlmRequest.of(LlmOperation.QUESTIONS, null));
+            if (questions != null) {
+                return questions;
             }
 
             Log.e(TAG, "Both API keys failed for weather questions, using defaults");
-            return new String[]{"What should I wear today?", "What should I prepare for an outdoor event today?"};
+            return defaultWeatherQuestions();
 
         } catch (Exception e) {
             Log.e(TAG, "Error generating weather questions: " + e.getMessage(), e);
-            return new String[]{"What should I wear today?", "What should I prepare for an outdoor event today?"};
+            return defaultWeatherQuestions();
         }
     }
 
+    /**
+     * Ask the LLM for weather questions, trying the primary key and then the backup key.
+     *
+     * @param weatherData String containing weather information
+     * @param speculative true for prefetches, which are skipped rather than queued when
+     *                    the Gemini budget is spent
+     * @param request     Deadline and cancellation token
+     * @return Parsed questions, or null if throttled, cancelled or neither key produced a response
+     */
+    private static String[] requestWeatherQuestions(String weatherData, boolean speculative, LlmRequest request) {
+        String prompt = buildWeatherQuestionsPrompt(weatherData);
+
+        if (speculative && keyCaller.hasConfiguredKey()) {
+            if (!GeminiRateLimiter.getInstance().tryAcquire(LlmOperation.QUESTIONS)) {
+                Log.d(TAG, "Skipping question prefetch, Gemini budget spent");
+                return null;
+            }
+        } else if (!admit(request)) {
+            return null;
+        }
+
+        String result = keyCaller.call(apiKey -> backend.generate(apiKey, prompt), request);
+        return result != null ? parseQuestions(result) : null;
+    }
+
+    /**
+     * Questions shown when the LLM is unavailable.
+     *
+     * @return Array of generic weather questions
+     */
+    private static String[] defaultWeatherQuestions() {
+        return new String[]{"What should I wear today?", "What should I prepare for an outdoor event today?"};
+    }
+
     /**
      * Generate an answer to a weather-related question based on current weather data.
      * Uses LLM to dynamically generate context-specific answers.
@@ -279,6 +368,18 @@ public class LLMClient {
      * @return Answer string, or error message if generation fails
      */
     public static String generateWeatherAnswer(String weatherData, String question) {
+        return generateWeatherAnswer(weatherData, question, LlmRequest.of(LlmOperation.ANSWER, null));
+    }
+
+    /**
+     * Generate an answer to a weather-related question within the request's deadline.
+     *
+     * @param weatherData String containing weather information
+     * @param question    The question to answer
+     * @param request     Deadline and cancellation token
+     * @return Answer string, or error message if generation fails
+     */
+    static String generateWeatherAnswer(String weatherData, String question, LlmRequest request) {
         if (weatherData == null || weatherData.trim().isEmpty()) {
             Log.e(TAG, "Empty weather data provided");
             return "Unable to generate answer: weather data is missing.";
@@ -292,21 +393,12 @@ public class LLMClient {
         try {
             String prompt = buildWeatherAnswerPrompt(weatherData, question);
 
-            String result = null;
-            if (!primaryKeyFailed && !API_KEY_PRIMARY.isEmpty()) {
-                result = generateTextWithKey(API_KEY_PRIMARY, prompt, "PRIMARY");
-                if (result != null) {
-                    return result.trim();
-                }
-                primaryKeyFailed = true;
-                Log.w(TAG, "Primary key failed for weather answer, trying backup");
+            if (!admit(request)) {
+                return "Too many requests right now. Please try again in a moment.";
             }
-
-            if (!API_KEY_BACKUP.isEmpty()) {
-                result = generateTextWithKey(API_KEY_BACKUP, prompt, "BACKUP");
-                if (result != null) {
-                    return result.trim();
-                }
+            String result = keyCaller.call(apiKey -> backend.generate(apiKey, prompt), request);
+            if (result != null) {
+                return result.trim();
             }
 
             Log.e(TAG, "Both API keys failed for weather answer");
@@ -325,16 +417,93 @@ public class LLMClient {
      * @param callback    Callback to receive the generated questions
      */
     public static void generateWeatherQuestionsAsync(String weatherData, WeatherQuestionsCallback callback) {
-        new Thread(() -> {
+        generateWeatherQuestionsAsync(weatherData, null, callback);
+    }
+
+    /**
+     * Generate weather questions asynchronously with callback.
+     * Cancelling the token detaches the callback, and cancels the Gemini call if this
+     * request started it (a shared prefetch keeps running for other screens).
+     *
+     * @param weatherData String containing weather information
+     * @param token       Token that cancels the request, or null for none
+     * @param callback    Callback to receive the generated questions
+     */
+    public static void generateWeatherQuestionsAsync(String weatherData, CancellationToken token,
+                                                     WeatherQuestionsCallback callback) {
+        LlmRequest request = LlmRequest.of(LlmOperation.QUESTIONS, token);
+        if (weatherData == null || weatherData.trim().isEmpty()) {
+            postCallback(request, () -> callback.onQuestionsGenerated(generateWeatherQuestions(weatherData)));
+            return;
+        }
+
+        CompletableFuture<String[]> pending = startWeatherQuestions(weatherData, false, request);
+        pending.thenAccept(questions -> {
+            if (request.getToken().isCancelled()) {
+                return;
+            }
+            if (questions == null) {
+                // Joined a prefetch that was skipped or cancelled, ask again for real
+                generateWeatherQuestionsAsync(weatherData, token, callback);
+            } else {
+                postCallback(request, () -> callback.onQuestionsGenerated(questions));
+            }
+        });
+    }
+
+    /**
+     * Start generating weather questions in the background at low priority so they are
+     * already cached when the user opens WeatherInsightsActivity.
+     * Does nothing if the questions for this weather data are cached or already being generated,
+     * or if the shared Gemini budget has no room for speculative work.
+     *
+     * @param weatherData String containing weather information, used as the cache key
+     */
+    public static void prefetchWeatherQuestions(String weatherData) {
+        if (weatherData == null || weatherData.trim().isEmpty()) return;
+        startWeatherQuestions(weatherData, true, LlmRequest.of(LlmOperation.QUESTIONS, null));
+    }
+
+    /**
+     * Return the cached or in-flight question request for this weather data,
+     * starting a new one on a worker thread if there is none.
+     *
+     * @param weatherData String containing weather information
+     * @param speculative true to run a newly started request at low priority and skip it
+     *                    when the Gemini budget is spent
+     * @param request     Deadline and token used if a new request is started
+     * @return Future completed with the questions (fallback questions on failure),
+     * or with null if a speculative request was skipped or the request was cancelled
+     */
+    private static CompletableFuture<String[]> startWeatherQuestions(String weatherData, boolean speculative,
+                                                                     LlmRequest request) {
+        CompletableFuture<String[]> pending = new CompletableFuture<>();
+        CompletableFuture<String[]> existing = WeatherQuestionCache.claim(weatherData, pending);
+        if (existing != pending) return existing;
+
+        executor.execute(() -> {
+            Thread worker = Thread.currentThread();
+            if (speculative) {
+                worker.setPriority(Thread.MIN_PRIORITY);
+            }
+            String[] questions = null;
             try {
-                String[] questions = generateWeatherQuestions(weatherData);
-                postCallback(() -> callback.onQuestionsGenerated(questions));
+                questions = requestWeatherQuestions(weatherData, speculative, request);
             } catch (Exception e) {
                 Log.e(TAG, "Async weather questions generation error: " + e.getMessage(), e);
-                postCallback(() -> callback.onQuestionsGenerated(
-                        new String[]{"What should I wear today?", "What should I prepare for an outdoor event today?"}));
+            } finally {
+                worker.setPriority(Thread.NORM_PRIORITY);
+            }
+            if (questions == null) {
+                // Don't keep fallback questions around, the next request should retry the LLM
+                WeatherQuestionCache.remove(weatherData, pending);
+                if (!speculative && !request.getToken().isCancelled()) {
+                    questions = defaultWeatherQuestions();
+                }
             }
-        }).start();
+            pending.complete(questions);
+        });
+        return pending;
     }
 
     /**
@@ -345,56 +514,31 @@ public class LLMClient {
      * @param callback    Callback to receive the generated answer
      */
     public static void generateWeatherAnswerAsync(String weatherData, String question, WeatherAnswerCallback callback) {
-        new Thread(() -> {
-            try {
-                String answer = generateWeatherAnswer(weatherData, question);
-                postCallback(() -> callback.onAnswerGenerated(answer));
-            } catch (Exception e) {
-                Log.e(TAG, "Async weather answer generation error: " + e.getMessage(), e);
-                postCallback(() -> callback.onAnswerGenerated(
-                        "An error occurred while generating the answer. Please try again."));
-            }
-        }).start();
+        generateWeatherAnswerAsync(weatherData, question, null, callback);
     }
 
     /**
-     * Call the Gemini API with a specific key to generate text (non-JSON response).
+     * Generate weather answer asynchronously with callback.
+     * Cancelling the token cancels the Gemini call and suppresses the callback.
      *
-     * @param apiKey   The API key to use
-     * @param prompt   The prompt to send
-     * @param keyLabel Label for logging purposes
-     * @return Generated text, or null if generation fails
+     * @param weatherData String containing weather information
+     * @param question    The question to answer
+     * @param token       Token that cancels the request, or null for none
+     * @param callback    Callback to receive the generated answer
      */
-    private static String generateTextWithKey(String apiKey, String prompt, String keyLabel) {
-        try {
-            Log.d(TAG, "Generating text with " + keyLabel + " key");
-
-            GenerativeModel model = new GenerativeModel(MODEL_NAME, apiKey);
-            GenerativeModelFutures futures = GenerativeModelFutures.from(model);
-
-            Content content = new Content.Builder()
-                    .addText(prompt)
-                    .build();
-
-            ListenableFuture<GenerateContentResponse> response = futures.generateContent(content);
-            GenerateContentResponse result = response.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
-
-            String text = result.getText();
-            if (text != null && !text.isEmpty()) {
-                Log.d(TAG, keyLabel + " key succeeded for text generation");
-                return text;
+    public static void generateWeatherAnswerAsync(String weatherData, String question, CancellationToken token,
+                                                  WeatherAnswerCallback callback) {
+        LlmRequest request = LlmRequest.of(LlmOperation.ANSWER, token);
+        executor.execute(() -> {
+            try {
+                String answer = generateWeatherAnswer(weatherData, question, request);
+                postCallback(request, () -> callback.onAnswerGenerated(answer));
+            } catch (Exception e) {
+                Log.e(TAG, "Async weather answer generation error: " + e.getMessage(), e);
+                postCallback(request, () -> callback.onAnswerGenerated(
+                        "An error occurred while generating the answer. Please try again."));
             }
-
-            Log.e(TAG, keyLabel + " key returned empty response");
-            return null;
-
-        } catch (java.util.concurrent.TimeoutException e) {
-            Log.e(TAG, keyLabel + " timeout after " + TIMEOUT_SECONDS + "s");
-            return null;
-        } catch (Exception e) {
-            Log.e(TAG, keyLabel + " error: " + e.getMessage());
-            return null;
-        }
+        });
     }
 
     /**
@@ -437,7 +581,7 @@ public class LLMClient {
      */
     static String[] parseQuestions(String text) {
         if (text == null || text.trim().isEmpty()) {
-            return new String[]{"What should I wear today?", "What should I prepare for an outdoor event today?"};
+            return defaultWeatherQuestions();
         }
 
         // Split by newlines and filter out empty lines
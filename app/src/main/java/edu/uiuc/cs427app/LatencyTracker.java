@@ -0,0 +1,54 @@
+package edu.uiuc.cs427app;
+
+import java.util.Arrays;
+
+/**
+ * Keeps a sliding window of recent response latencies and reports percentiles.
+ * Used to decide when a slow Gemini request should be hedged with the backup key.
+ */
+public class LatencyTracker {
+    private static final int MIN_SAMPLES = 5;
+
+    private final long[] samples;
+    private final long defaultMs;
+    private int count;
+    private int next;
+
+    /**
+     * Creates a tracker.
+     *
+     * @param windowSize Number of recent samples kept
+     * @param defaultMs  Value reported until enough samples have been recorded
+     */
+    public LatencyTracker(int windowSize, long defaultMs) {
+        this.samples = new long[Math.max(MIN_SAMPLES, windowSize)];
+        this.defaultMs = defaultMs;
+    }
+
+    /**
+     * Records the latency of a response, or how long a request ran before it was abandoned.
+     *
+     * @param latencyMs Latency in milliseconds
+     */
+    public synchronized void record(long latencyMs) {
+        samples[next] = latencyMs;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) count++;
+    }
+
+    /**
+     * Returns a latency percentile over the current window.
+     *
+     * @param percentile Percentile between 0 and 1 (e.g. 0.95)
+     * @return Latency in milliseconds, or the default while the window is warming up
+     */
+    public synchronized long percentile(double percentile) {
+        if (count < MIN_SAMPLES) {
+            return defaultMs;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+}
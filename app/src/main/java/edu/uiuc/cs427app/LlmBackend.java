@@ -0,0 +1,22 @@
+package edu.uiuc.cs427app;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Transport that sends a single prompt to an LLM.
+ * {@link LLMClient} handles prompts, key failover, rate limiting and caching on top of
+ * this interface, so the Gemini SDK can be swapped for a local stub when
+ * load-testing the theme and insights flows offline.
+ */
+public interface LlmBackend {
+
+    /**
+     * Sends a prompt using a specific API key.
+     * Cancelling the returned future should abort the underlying request.
+     *
+     * @param apiKey API key to authenticate with
+     * @param prompt Prompt text
+     * @return Future completed with the non-empty response text, or failed on error
+     */
+    ListenableFuture<String> generate(String apiKey, String prompt);
+}
@@ -0,0 +1,40 @@
+package edu.uiuc.cs427app;
+
+/**
+ * Kinds of Gemini traffic the app sends.
+ * The weight is the number of rate-limiter tokens one request of this kind costs;
+ * image generation is by far the most expensive call, so it costs the most.
+ * The budget is how long a request of this kind may take before it is abandoned.
+ */
+public enum LlmOperation {
+    THEME(1, 20_000),
+    QUESTIONS(1, 15_000),
+    ANSWER(1, 20_000),
+    IMAGE(4, 75_000);
+
+    private final int weight;
+    private final long defaultBudgetMs;
+
+    LlmOperation(int weight, long defaultBudgetMs) {
+        this.weight = weight;
+        this.defaultBudgetMs = defaultBudgetMs;
+    }
+
+    /**
+     * Gets the rate-limiter cost of one request.
+     *
+     * @return Number of tokens
+     */
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * Gets the default deadline budget for one request.
+     *
+     * @return Budget in milliseconds
+     */
+    public long getDefaultBudgetMs() {
+        return defaultBudgetMs;
+    }
+}
@@ -0,0 +1,92 @@
+package edu.uiuc.cs427app;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One LLM operation with its deadline and cancellation token.
+ * The deadline is fixed when the request is created, so time spent waiting for the
+ * rate limiter or a slow primary key counts against the same budget.
+ */
+public class LlmRequest {
+    private final LlmOperation operation;
+    private final long deadlineMs;
+    private final CancellationToken token;
+
+    /**
+     * Creates a request with an explicit budget.
+     *
+     * @param operation Kind of request
+     * @param budgetMs  Time allowed from now until the request is abandoned
+     * @param token     Token that cancels the request
+     */
+    public LlmRequest(LlmOperation operation, long budgetMs, CancellationToken token) {
+        this.operation = operation;
+        this.deadlineMs = now() + budgetMs;
+        this.token = token != null ? token : new CancellationToken();
+    }
+
+    /**
+     * Creates a request with the operation's default budget.
+     *
+     * @param operation Kind of request
+     * @param token     Token that cancels the request, or null for none
+     * @return New request
+     */
+    public static LlmRequest of(LlmOperation operation, CancellationToken token) {
+        return new LlmRequest(operation, operation.getDefaultBudgetMs(), token);
+    }
+
+    /**
+     * Gets the kind of request.
+     *
+     * @return The operation
+     */
+    public LlmOperation getOperation() {
+        return operation;
+    }
+
+    /**
+     * Gets the cancellation token.
+     *
+     * @return The token
+     */
+    public CancellationToken getToken() {
+        return token;
+    }
+
+    /**
+     * Gets the absolute deadline on the {@link #now()} clock.
+     *
+     * @return Deadline in milliseconds
+     */
+    public long getDeadlineMs() {
+        return deadlineMs;
+    }
+
+    /**
+     * Gets the time left before the deadline.
+     *
+     * @return Remaining milliseconds, never negative
+     */
+    public long remainingMs() {
+        return Math.max(0, deadlineMs - now());
+    }
+
+    /**
+     * Checks whether the request should no longer run.
+     *
+     * @return true if cancelled or past its deadline
+     */
+    public boolean isDone() {
+        return token.isCancelled() || remainingMs() == 0;
+    }
+
+    /**
+     * Monotonic millisecond clock used for all request deadlines.
+     *
+     * @return Current time in milliseconds
+     */
+    static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+}
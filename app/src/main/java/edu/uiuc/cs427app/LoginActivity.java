@@ -1,5 +1,6 @@
 package edu.uiuc.cs427app;
 
+import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
 import android.widget.Button;
@@ -14,6 +15,8 @@ import androidx.appcompat.app.AppCompatDelegate;
  * Provides sign in and sign up functionality.
  */
 public class LoginActivity extends AppCompatActivity {
+    /** Intent extra asking to log in another account while one is logged in. */
+    static final String EXTRA_ADD_ACCOUNT = "add_account";
 
     private EditText usernameField;
     private EditText passwordField;
@@ -25,6 +28,17 @@ public class LoginActivity extends AppCompatActivity {
 //    private RadioGroup themeGroup;
 //    private RadioButton themeLight, themeDark, themeSystem;
 
+    /**
+     * Sets the login screen's light theme before AppCompat builds its configuration.
+     *
+     * @param newBase Base context of the activity
+     */
+    @Override
+    protected void attachBaseContext(Context newBase) {
+        applyTheme(Theme.LIGHT);
+        super.attachBaseContext(newBase);
+    }
+
     /**
      * Called when the activity is first created.
      * Initializes UI components and sets up event listeners.
@@ -34,15 +48,13 @@ public class LoginActivity extends AppCompatActivity {
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
-        Theme t = Theme.LIGHT;
-        applyTheme(t);
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_login);
 
         authManager = AuthenticationManager.getInstance(this);
 
-        // Check if user is already logged in
-        if (authManager.isLoggedIn()) {
+        // Check if user is already logged in, unless they came to log in another account
+        if (authManager.isLoggedIn() && !getIntent().getBooleanExtra(EXTRA_ADD_ACCOUNT, false)) {
             String username = authManager.getCurrentUser() != null ? authManager.getCurrentUser().getUsername() : null;
             navigateToMainActivity(username);
             return;
@@ -61,7 +73,9 @@ public class LoginActivity extends AppCompatActivity {
     }
 
     /**
-     * Applies the specified theme to the activity.
+     * Applies the specified theme to this activity only, so the other open activities
+     * are not recreated. Must be called before the base context is attached; set later,
+     * AppCompat would recreate the activity whenever the mode differs from the system's.
      *
      * @param t The theme to apply (LIGHT or DARK)
      */
@@ -69,7 +83,7 @@ public class LoginActivity extends AppCompatActivity {
         int mode = (t == Theme.DARK)
                 ? AppCompatDelegate.MODE_NIGHT_YES
                 : AppCompatDelegate.MODE_NIGHT_NO;
-        AppCompatDelegate.setDefaultNightMode(mode);
+        getDelegate().setLocalNightMode(mode);
     }
 
 //    private Theme getSelectedTheme() {
@@ -93,32 +107,36 @@ public class LoginActivity extends AppCompatActivity {
             return;
         }
 
-        // Attempt login
-        boolean success = authManager.login(username, password);
+        // Attempt login; hashing runs in the background so the screen stays responsive
+        setBusy(true);
+        authManager.loginAsync(username, password, success -> {
+            setBusy(false);
+            if (isDestroyed()) return;
+            onLoginResult(username, success);
+        });
+    }
 
+    /**
+     * Themes the user and opens the main screen after a login attempt.
+     *
+     * @param username User who tried to log in
+     * @param success  Whether the credentials were valid
+     */
+    private void onLoginResult(String username, boolean success) {
         if (success) {
             String themeDescription = themePreference != null ? themePreference.getText().toString().trim() : "";
 
             if (themeDescription.isEmpty()) {
-                // No new prompt: reuse saved theme if available
-                ThemeSpec saved = AuthenticationManager.getInstance(this)
-                        .loadThemeSpecForUser(username);
-                if (saved != null) {
-                    navigateToMainActivity(username);
-                } else {
-                    Toast.makeText(this, "Login successful, generating theme...", Toast.LENGTH_SHORT).show();
-                    LLMClient.generateThemeSpecAsync("", spec -> {
-                        ThemeManager.saveForUser(this, username, spec);
-                        navigateToMainActivity(username);
-                    });
+                // No new prompt: reuse saved theme if available, caching it for every screen
+                ThemeSpec saved = ThemeManager.preloadForUser(this, username);
+                if (saved == null) {
+                    ThemeManager.generateForUser(this, username, "");
                 }
             } else {
-                Toast.makeText(this, "Login successful, generating theme...", Toast.LENGTH_SHORT).show();
-                LLMClient.generateThemeSpecAsync(themeDescription, spec -> {
-                    ThemeManager.saveForUser(this, username, spec);
-                    navigateToMainActivity(username);
-                });
+                // Start with the closest catalog theme; the generated one replaces it when ready
+                ThemeManager.generateForUser(this, username, themeDescription);
             }
+            navigateToMainActivity(username);
         } else {
             Toast.makeText(this, "Invalid username or password", Toast.LENGTH_SHORT).show();
         }
@@ -136,18 +154,27 @@ public class LoginActivity extends AppCompatActivity {
             Toast.makeText(this, "Please enter username and password", Toast.LENGTH_SHORT).show();
             return;
         }
-        boolean success = authManager.register(username, password, Theme.Default);
+        setBusy(true);
+        authManager.registerAsync(username, password, Theme.Default, success -> {
+            setBusy(false);
+            if (isDestroyed()) return;
+            onRegisterResult(username, success);
+        });
+    }
 
+    /**
+     * Starts theming a newly registered user, or reports that the name is taken.
+     *
+     * @param username User who tried to register
+     * @param success  Whether the account was created
+     */
+    private void onRegisterResult(String username, boolean success) {
         if (success) {
             String themeDescription = themePreference != null ? themePreference.getText().toString().trim() : "";
 
-            Toast.makeText(this, "Registration successful! Generating theme...", Toast.LENGTH_SHORT).show();
-
-            LLMClient.generateThemeSpecAsync(themeDescription, spec -> {
-                ThemeManager.saveForUser(this, username, spec);
-                Toast.makeText(this, "Theme generated! Please login.", Toast.LENGTH_SHORT).show();
-                passwordField.setText("");
-            });
+            ThemeManager.generateForUser(this, username, themeDescription);
+            Toast.makeText(this, "Registration successful! Please login.", Toast.LENGTH_SHORT).show();
+            passwordField.setText("");
         } else {
             Toast.makeText(this, "Username already exists", Toast.LENGTH_SHORT).show();
         }
@@ -166,13 +193,27 @@ public class LoginActivity extends AppCompatActivity {
             return;
         }
 
-        boolean success = authManager.resetPassword(username, newPassword);
+        setBusy(true);
+        authManager.resetPasswordAsync(username, newPassword, success -> {
+            setBusy(false);
+            if (isDestroyed()) return;
+            if (success) {
+                Toast.makeText(this, "Password reset. Please sign in.", Toast.LENGTH_SHORT).show();
+            } else {
+                Toast.makeText(this, "Reset failed (user not found)", Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
 
-        if (success) {
-            Toast.makeText(this, "Password reset. Please sign in.", Toast.LENGTH_SHORT).show();
-        } else {
-            Toast.makeText(this, "Reset failed (user not found)", Toast.LENGTH_SHORT).show();
-        }
+    /**
+     * Disables the buttons while a password is being hashed, so a request is not sent twice.
+     *
+     * @param busy true while a request is running
+     */
+    private void setBusy(boolean busy) {
+        loginButton.setEnabled(!busy);
+        registerButton.setEnabled(!busy);
+        resetButton.setEnabled(!busy);
     }
 
 
@@ -1,6 +1,7 @@
 package edu.uiuc.cs427app;
 
 import android.app.AlertDialog;
+import android.content.Context;
 import android.content.DialogInterface;
 import android.content.Intent;
 import android.os.Bundle;
@@ -36,10 +37,15 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
     private DatabaseHelper database;
     private User currentUser;
     private String display_city_map;
+    private CityDashboard dashboard;
+    private boolean dashboardShown;
+    private WarmSession warm;
 
 
     /**
-     * Applies the specified theme to the activity.
+     * Applies the specified theme to this activity only, so the other open activities
+     * are not recreated. Must be called before the base context is attached; set later,
+     * AppCompat would recreate the activity whenever the mode differs from the system's.
      *
      * @param t The theme to apply (LIGHT or DARK)
      */
@@ -47,7 +53,19 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
         int mode = (t == Theme.DARK)
                 ? AppCompatDelegate.MODE_NIGHT_YES
                 : AppCompatDelegate.MODE_NIGHT_NO;
-        AppCompatDelegate.setDefaultNightMode(mode);
+        getDelegate().setLocalNightMode(mode);
+    }
+
+    /**
+     * Sets the current user's theme before AppCompat builds the activity's configuration.
+     *
+     * @param newBase Base context of the activity
+     */
+    @Override
+    protected void attachBaseContext(Context newBase) {
+        User user = AuthenticationManager.getInstance(newBase.getApplicationContext()).getCurrentUser();
+        applyTheme(user != null ? user.getTheme() : Theme.LIGHT);
+        super.attachBaseContext(newBase);
     }
 
     /**
@@ -59,12 +77,21 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         authManager = AuthenticationManager.getInstance(this);
-        Theme t = Theme.LIGHT;
 
-        if (authManager.getCurrentUser() != null) {
-            t = authManager.getCurrentUser().getTheme();
+        String usernameFromIntent = getIntent().getStringExtra("username");
+        String username = (usernameFromIntent != null && !usernameFromIntent.isEmpty())
+                ? usernameFromIntent
+                : (authManager.getCurrentUser() != null ? authManager.getCurrentUser().getUsername() : "");
+
+        // Reuse the compiled theme of a recently active user, else load the saved ThemeSpec
+        // (cached at login), and theme views as they are inflated
+        warm = authManager.getWarmSession(username);
+        CompiledTheme theme = warm != null ? warm.getTheme() : null;
+        if (theme == null) {
+            theme = CompiledTheme.of(ThemeManager.loadForUser(this, username != null ? username : ""));
+            if (warm != null) warm.setTheme(theme);
         }
-        applyTheme(t);
+        ThemeManager.install(this, theme);
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
@@ -78,14 +105,9 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
             return;
         }
 
-        String usernameFromIntent = getIntent().getStringExtra("username");
-        String username = (usernameFromIntent != null && !usernameFromIntent.isEmpty())
-                ? usernameFromIntent
-                : (authManager.getCurrentUser() != null ? authManager.getCurrentUser().getUsername() : "");
-
-        // Load saved ThemeSpec (DB first, SP fallback) and apply to views
-        ThemeSpec spec = ThemeManager.loadForUser(this, username != null ? username : "");
-        ThemeManager.apply(this, spec);
+        ThemeManager.apply(this, theme);
+        // Pick up the generated theme when it replaces the catalog one from login
+        ThemeManager.follow(this, username != null ? username : "");
         // Display username in header
         TextView userHeaderTextView = findViewById(R.id.userHeaderTextView);
 
@@ -95,20 +117,66 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
 
         Button buttonNew = findViewById(R.id.buttonAddLocation);
         Button logoutButton = findViewById(R.id.logoutButton);
+        Button switchAccountButton = findViewById(R.id.switchAccountButton);
         Button testMapButton = findViewById(R.id.testMapButton);
+        Button dashboardButton = findViewById(R.id.dashboardButton);
 
 
         buttonNew.setOnClickListener(this);
         logoutButton.setOnClickListener(this);
+        switchAccountButton.setOnClickListener(this);
         testMapButton.setOnClickListener(this);
+        dashboardButton.setOnClickListener(this);
 
 
         loadUserCities();
+        // Pre-generate city images for these cities next time the device charges on Wi-Fi
+        CityImageLibraryJobService.schedule(this);
         Retrofit retrofit = new Retrofit.Builder()
                 .baseUrl("https://api.openweathermap.org/")
                 .addConverterFactory(GsonConverterFactory.create())
                 .build();
         locationData = retrofit.create(LocationDB.class);
+        dashboard = new CityDashboard(this, findViewById(R.id.dashboardCityView),
+                retrofit.create(WeatherDB.class), API_KEY);
+    }
+
+    /**
+     * Resumes the dashboard clocks if the dashboard is showing.
+     */
+    @Override
+    protected void onStart() {
+        super.onStart();
+        if (dashboardShown) {
+            dashboard.start();
+        }
+    }
+
+    /**
+     * Pauses the dashboard clocks while the screen is not visible.
+     */
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (dashboard != null) {
+            dashboard.stop();
+        }
+    }
+
+    /**
+     * Switches between the city list and the world clock and weather dashboard.
+     */
+    private void toggleDashboard() {
+        dashboardShown = !dashboardShown;
+        findViewById(R.id.userCityView).setVisibility(dashboardShown ? View.GONE : View.VISIBLE);
+        findViewById(R.id.dashboardScroll).setVisibility(dashboardShown ? View.VISIBLE : View.GONE);
+        ((Button) findViewById(R.id.dashboardButton)).setText(dashboardShown ? "Show list" : "Show dashboard");
+        if (dashboardShown) {
+            dashboard.setCities(getUserCities());
+            dashboard.start();
+        } else {
+            dashboard.stop();
+        }
     }
 
     /**
@@ -119,7 +187,7 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
 
         LinearLayout display_cities = findViewById(R.id.userCityView);
 
-        List<City> curr_cities = database.getUserCities(currentUser.getUsername());
+        List<City> curr_cities = getUserCities();
         Log.d("MainActivity", "Loading " + curr_cities.size() + " cities");
 
         for (City city : curr_cities) {
@@ -132,7 +200,28 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
     }
 
     /**
-     * Handles click events for add location and logout buttons.
+     * Gets the current user's cities, from memory if they were recently active.
+     *
+     * @return The user's cities
+     */
+    private List<City> getUserCities() {
+        List<City> userCities = warm != null ? warm.getCities() : null;
+        if (userCities == null) {
+            userCities = database.getUserCities(currentUser.getUsername());
+            if (warm != null) warm.setCities(userCities);
+        }
+        return userCities;
+    }
+
+    /**
+     * Drops the in-memory city list after the user's cities changed.
+     */
+    private void invalidateUserCities() {
+        if (warm != null) warm.setCities(null);
+    }
+
+    /**
+     * Handles click events for add location, switch account and logout buttons.
      *
      * @param view The view that was clicked
      */
@@ -146,14 +235,52 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
         } else if (id == R.id.logoutButton) {
             authManager.logout();
             navigateToLogin();
+        } else if (id == R.id.switchAccountButton) {
+            promptSwitchAccount();
         } else if (id == R.id.testMapButton){
             intent = new Intent(this, MapsMarkerActivity.class);
             startActivity(intent);
+        } else if (id == R.id.dashboardButton) {
+            toggleDashboard();
         }
 
 
     }
 
+    /**
+     * Lists the other recently active users to switch to, plus an option to log in
+     * another account without logging out this one.
+     */
+    private void promptSwitchAccount() {
+        List<String> usernames = new ArrayList<>();
+        for (Session recent : authManager.getRecentSessions()) {
+            if (!recent.isFor(currentUser.getUsername())) usernames.add(recent.getUsername());
+        }
+        usernames.add("Add account");
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Switch account");
+        builder.setItems(usernames.toArray(new String[0]), new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                if (which == usernames.size() - 1) {
+                    Intent intent = new Intent(MainActivity.this, LoginActivity.class);
+                    intent.putExtra(LoginActivity.EXTRA_ADD_ACCOUNT, true);
+                    startActivity(intent);
+                    finish();
+                } else if (authManager.switchTo(usernames.get(which))) {
+                    // The theme and night mode are set before onCreate, so start afresh
+                    Intent intent = new Intent(MainActivity.this, MainActivity.class);
+                    intent.putExtra("username", usernames.get(which));
+                    startActivity(intent);
+                    finish();
+                }
+            }
+        });
+        builder.setNegativeButton("Cancel", null);
+        builder.show();
+    }
+
     /**
      * Navigates to the LoginActivity.
      */
@@ -215,6 +342,7 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
                                             Log.d("MainActivity", "City added: " + adding_user_new_city.getName() + " with ID: " + cityID);
 
                                             if (database.addCityToUser(currentUser.getUsername(), cityID)) {
+                                                invalidateUserCities();
                                                 addCity(adding_user_new_city);
                                                 addMap(adding_user_new_city);
                                                 display_city_map = adding_user_new_city.getName();
@@ -308,6 +436,7 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
                 listCities.removeView(layout);
                 cities.remove(cityName.getName());
                 database.removeCityFromUser(currentUser.getUsername(), cityName.getCityId());
+                invalidateUserCities();
             }
         });
 
@@ -319,6 +448,7 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
 
         LinearLayout listCities = findViewById(R.id.userCityView);
         listCities.addView(layout);
+        ThemeManager.applyToAdded(this, layout);
     }
 
     /**
@@ -1,5 +1,6 @@
 package edu.uiuc.cs427app;
 
+import android.content.Context;
 import android.os.Bundle;
 import android.view.View;
 import android.webkit.WebSettings;
@@ -33,15 +34,24 @@ public class MapActivity extends AppCompatActivity {
     private AuthenticationManager authManager;
 
     /**
-     * Initializes the activity, loads theme, retrieves city data, and sets up the map.
+     * Sets the current user's theme before AppCompat builds the activity's configuration.
+     *
+     * @param newBase Base context of the activity
+     */
+    @Override
+    protected void attachBaseContext(Context newBase) {
+        applyTheme(AuthenticationManager.getInstance(newBase.getApplicationContext()));
+        super.attachBaseContext(newBase);
+    }
+
+    /**
+     * Initializes the activity, retrieves city data, and sets up the map.
      *
      * @param savedInstanceState Saved state from previous instance
      */
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         authManager = AuthenticationManager.getInstance(this);
-        applyTheme();
-
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_map);
 
@@ -58,17 +68,22 @@ public class MapActivity extends AppCompatActivity {
     }
 
     /**
-     * Applies the current user's theme preference to the activity.
+     * Applies the current user's theme preference to this activity only, so the other
+     * open activities are not recreated. Must be called before the base context is
+     * attached; set later, AppCompat would recreate the activity whenever the mode
+     * differs from the system's.
+     *
+     * @param auth The app's authentication manager
      */
-    private void applyTheme() {
+    private void applyTheme(AuthenticationManager auth) {
         Theme theme = Theme.LIGHT;
-        if (authManager.getCurrentUser() != null) {
-            theme = authManager.getCurrentUser().getTheme();
+        if (auth.getCurrentUser() != null) {
+            theme = auth.getCurrentUser().getTheme();
         }
         int mode = (theme == Theme.DARK)
                 ? AppCompatDelegate.MODE_NIGHT_YES
                 : AppCompatDelegate.MODE_NIGHT_NO;
-        AppCompatDelegate.setDefaultNightMode(mode);
+        getDelegate().setLocalNightMode(mode);
     }
 
     /**
@@ -0,0 +1,164 @@
+package edu.uiuc.cs427app;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Salted PBKDF2-HMAC-SHA256 password hashing with a versioned storage format.
+ * <p>
+ * Hashes are stored as {@code $pbkdf2-sha256$<iterations>$<salt>$<hash>} with Base64
+ * salt and hash, so the cost can be raised later without breaking old hashes. Hashes
+ * from before this format are a bare hex SHA-256 digest; they still verify, and
+ * {@link #needsRehash(String)} reports them, like hashes with fewer iterations than the
+ * current cost, so they are upgraded at the next successful login. Hashing is slow on
+ * purpose and must not run on the main thread.
+ */
+public final class PasswordHasher {
+    static final String SCHEME = "pbkdf2-sha256";
+    /** Cost used until the device has been calibrated. */
+    static final int DEFAULT_ITERATIONS = 120_000;
+    static final int MIN_ITERATIONS = 50_000;
+    static final int MAX_ITERATIONS = 2_000_000;
+    /** Time one hash should take on the device. */
+    static final long TARGET_MS = 100;
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_BITS = 256;
+    private static final int PROBE_ITERATIONS = 10_000;
+    private static final SecureRandom random = new SecureRandom();
+
+    private final int iterations;
+
+    /**
+     * Creates a hasher.
+     *
+     * @param iterations PBKDF2 iteration count for new hashes
+     */
+    public PasswordHasher(int iterations) {
+        this.iterations = iterations;
+    }
+
+    /**
+     * Gets the iteration count of new hashes.
+     *
+     * @return Iteration count
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Hashes a password with a fresh random salt.
+     *
+     * @param password Password to hash
+     * @return The encoded hash, including scheme, cost and salt
+     */
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return "$" + SCHEME + "$" + iterations + "$" + base64.encodeToString(salt)
+                + "$" + base64.encodeToString(pbkdf2(password, salt, iterations));
+    }
+
+    /**
+     * Checks a password against a stored hash of either format, in constant time.
+     *
+     * @param password Password to check
+     * @param stored   Stored hash
+     * @return true if the password matches
+     */
+    public boolean verify(String password, String stored) {
+        if (password == null || stored == null) return false;
+        if (!stored.startsWith("$")) {
+            return MessageDigest.isEqual(legacyHash(password).getBytes(StandardCharsets.US_ASCII),
+                    stored.getBytes(StandardCharsets.US_ASCII));
+        }
+        String[] parts = stored.split("\\$");
+        // "", scheme, iterations, salt, hash
+        if (parts.length != 5 || !SCHEME.equals(parts[1])) return false;
+        try {
+            int cost = Integer.parseInt(parts[2]);
+            byte[] salt = Base64.getDecoder().decode(parts[3]);
+            byte[] expected = Base64.getDecoder().decode(parts[4]);
+            return cost > 0 && MessageDigest.isEqual(expected, pbkdf2(password, salt, cost));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether a stored hash is weaker than what {@link #hash(String)} produces now.
+     *
+     * @param stored Stored hash
+     * @return true for legacy hashes and hashes with fewer iterations
+     */
+    public boolean needsRehash(String stored) {
+        if (stored == null || !stored.startsWith("$" + SCHEME + "$")) return true;
+        String[] parts = stored.split("\\$");
+        try {
+            return parts.length != 5 || Integer.parseInt(parts[2]) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Measures this device and picks the iteration count that makes one hash take
+     * about {@code budgetMs}. Takes roughly that long itself, so call it off the main thread.
+     *
+     * @param budgetMs Time one hash should take
+     * @return Iteration count, rounded to a thousand and kept within sane bounds
+     */
+    public static int calibrate(long budgetMs) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        long best = Long.MAX_VALUE;
+        // The first run also pays for class loading and JIT warm-up; keep the fastest
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            pbkdf2("calibration", salt, PROBE_ITERATIONS);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        long perBudget = PROBE_ITERATIONS * budgetMs * 1_000_000L / Math.max(1, best);
+        long rounded = perBudget / 1000 * 1000;
+        return (int) Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, rounded));
+    }
+
+    /**
+     * Computes the unsalted hex SHA-256 digest stored before PBKDF2 was introduced.
+     *
+     * @param password Password to hash
+     * @return Lowercase hex digest
+     */
+    static String legacyHash(String password) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(password.getBytes());
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, KEY_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " unavailable", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
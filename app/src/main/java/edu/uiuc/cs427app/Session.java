@@ -0,0 +1,108 @@
+package edu.uiuc.cs427app;
+
+/**
+ * An immutable snapshot of who is logged in.
+ * <p>
+ * {@link AuthenticationManager} publishes a new snapshot for every change instead of
+ * editing a shared {@link User}, so any thread can read the session without locking and
+ * always sees a consistent one.
+ */
+public final class Session {
+    /** The snapshot when nobody is logged in. */
+    public static final Session LOGGED_OUT = new Session(null, null, null, null, null);
+
+    private final String userId;
+    private final String username;
+    private final Theme theme;
+    private final String passwordHash;
+    private final String themeJson;
+
+    private Session(String userId, String username, Theme theme, String passwordHash, String themeJson) {
+        this.userId = userId;
+        this.username = username;
+        this.theme = theme;
+        this.passwordHash = passwordHash;
+        this.themeJson = themeJson;
+    }
+
+    /**
+     * Takes a snapshot of a user.
+     *
+     * @param user Logged-in user, or null
+     * @return The user's session, or {@link #LOGGED_OUT} for null
+     */
+    public static Session of(User user) {
+        if (user == null || user.getUsername() == null) return LOGGED_OUT;
+        return new Session(user.getUserId(), user.getUsername(), user.getTheme(),
+                user.getPasswordHash(), user.getThemeJson());
+    }
+
+    /**
+     * Checks whether someone is logged in.
+     *
+     * @return true unless this is {@link #LOGGED_OUT}
+     */
+    public boolean isLoggedIn() {
+        return username != null;
+    }
+
+    /**
+     * Checks whether this is the session of a user.
+     *
+     * @param username Username to compare
+     * @return true if that user is logged in
+     */
+    public boolean isFor(String username) {
+        return this.username != null && this.username.equals(username);
+    }
+
+    /**
+     * Gets the logged-in username.
+     *
+     * @return The username, or null when logged out
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Gets the logged-in user's light/dark preference.
+     *
+     * @return The theme, or null
+     */
+    public Theme getTheme() {
+        return theme;
+    }
+
+    /**
+     * Copies this session with a new password hash.
+     *
+     * @param passwordHash The new hash
+     * @return The updated session
+     */
+    Session withPasswordHash(String passwordHash) {
+        return new Session(userId, username, theme, passwordHash, themeJson);
+    }
+
+    /**
+     * Copies this session with a new theme specification.
+     *
+     * @param themeJson The new theme JSON
+     * @return The updated session
+     */
+    Session withThemeJson(String themeJson) {
+        return new Session(userId, username, theme, passwordHash, themeJson);
+    }
+
+    /**
+     * Creates a User holding this session's fields. Changes to it do not affect the session.
+     *
+     * @return A new User, or null when logged out
+     */
+    public User toUser() {
+        if (!isLoggedIn()) return null;
+        User user = new User(userId, username, passwordHash, theme);
+        user.setThemeJson(themeJson);
+        return user;
+    }
+}
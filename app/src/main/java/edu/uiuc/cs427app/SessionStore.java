@@ -0,0 +1,115 @@
+package edu.uiuc.cs427app;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Persists who is logged in as a small binary record.
+ * <p>
+ * The session used to be the whole {@link User} serialized with Gson into
+ * SharedPreferences, password hash and theme JSON included, and decoding it by
+ * reflection was on the cold-start path of every screen. The record holds only what
+ * screens need to start: user id, username and light/dark theme, behind a magic number
+ * and a format version. Writes go to a temporary file that replaces the record, so a
+ * crash never leaves half a session.
+ */
+public final class SessionStore {
+    private static final int MAGIC = 0x53455331; // "SES1"
+    static final int FORMAT_VERSION = 1;
+
+    private final File file;
+
+    /**
+     * Creates a store.
+     *
+     * @param file File holding the record
+     */
+    public SessionStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Reads the stored session.
+     *
+     * @return The logged-in user, without password hash or theme JSON, or null if
+     * nobody is logged in or the record is unreadable
+     */
+    public User read() {
+        if (!file.isFile()) return null;
+        try {
+            return decode(Files.readAllBytes(file.toPath()));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores a user as the logged-in user.
+     *
+     * @param user User to store
+     * @return true if the record was written
+     */
+    public boolean write(User user) {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(encode(user));
+            out.getFD().sync();
+        } catch (IOException e) {
+            tmp.delete();
+            return false;
+        }
+        return tmp.renameTo(file);
+    }
+
+    /**
+     * Removes the stored session.
+     */
+    public void clear() {
+        file.delete();
+    }
+
+    /**
+     * Encodes a user's session fields.
+     *
+     * @param user User to encode
+     * @return The record bytes
+     */
+    static byte[] encode(User user) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeByte(FORMAT_VERSION);
+            out.writeUTF(user.getUserId() != null ? user.getUserId() : "");
+            out.writeUTF(user.getUsername());
+            out.writeUTF(user.getTheme() != null ? user.getTheme().name() : "");
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Not thrown by in-memory streams
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a record written by {@link #encode(User)}.
+     *
+     * @param record The record bytes
+     * @return The user, or null if the record is corrupt or from an unknown version
+     */
+    static User decode(byte[] record) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            if (in.readInt() != MAGIC || in.readByte() != FORMAT_VERSION) return null;
+            String userId = in.readUTF();
+            String username = in.readUTF();
+            String theme = in.readUTF();
+            return new User(userId.isEmpty() ? null : userId, username, null,
+                    theme.isEmpty() ? null : Theme.valueOf(theme));
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package edu.uiuc.cs427app;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+
+/**
+ * Process-wide OkHttp client for Gemini REST calls.
+ * <p>
+ * Sharing one client shares its connection pool, so back-to-back image generations
+ * reuse a warm TLS connection instead of paying a new handshake each time. OkHttp
+ * also asks for gzip and decompresses responses transparently, as long as callers
+ * do not set Accept-Encoding themselves. Every call is instrumented: whether its
+ * connection was reused and its time to first byte are logged and aggregated.
+ */
+public final class SharedHttpClient {
+    private static final String TAG = "SharedHttpClient";
+
+    private static final AtomicLong calls = new AtomicLong();
+    private static final AtomicLong reusedConnections = new AtomicLong();
+    private static final AtomicLong totalTtfbMs = new AtomicLong();
+
+    private static OkHttpClient instance;
+
+    private SharedHttpClient() {
+    }
+
+    /**
+     * Gets the shared client.
+     *
+     * @return The process-wide OkHttpClient
+     */
+    public static synchronized OkHttpClient get() {
+        if (instance == null) {
+            instance = new OkHttpClient.Builder()
+                    .connectionPool(new ConnectionPool(5, 5, TimeUnit.MINUTES))
+                    .connectTimeout(15, TimeUnit.SECONDS)
+                    .readTimeout(60, TimeUnit.SECONDS)
+                    .eventListenerFactory(call -> new CallMetrics())
+                    .build();
+        }
+        return instance;
+    }
+
+    /**
+     * Gets the number of calls that finished receiving response headers.
+     *
+     * @return Call count since process start
+     */
+    public static long getCallCount() {
+        return calls.get();
+    }
+
+    /**
+     * Gets the number of calls that went out on an already open connection.
+     *
+     * @return Reused connection count since process start
+     */
+    public static long getReusedConnectionCount() {
+        return reusedConnections.get();
+    }
+
+    /**
+     * Gets the mean time from the start of a call to its first response byte.
+     *
+     * @return Mean time to first byte in milliseconds, or 0 before any call
+     */
+    public static long getAverageTtfbMs() {
+        long count = calls.get();
+        return count == 0 ? 0 : totalTtfbMs.get() / count;
+    }
+
+    /**
+     * Measures one call: a connection acquired without connecting first was reused,
+     * and the response headers starting marks the first byte.
+     */
+    private static class CallMetrics extends EventListener {
+        private long startNs;
+        private boolean connected;
+        private boolean reused;
+
+        @Override
+        public void callStart(Call call) {
+            startNs = System.nanoTime();
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            connected = true;
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            reused = !connected;
+        }
+
+        @Override
+        public void responseHeadersStart(Call call) {
+            long ttfbMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs);
+            calls.incrementAndGet();
+            totalTtfbMs.addAndGet(ttfbMs);
+            if (reused) {
+                reusedConnections.incrementAndGet();
+            }
+            Log.d(TAG, call.request().url().host() + " reused=" + reused + " ttfb=" + ttfbMs + "ms");
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            Log.d(TAG, call.request().url().host() + " failed after "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs) + "ms: " + ioe.getMessage());
+        }
+    }
+}
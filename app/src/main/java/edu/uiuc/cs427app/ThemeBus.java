@@ -0,0 +1,104 @@
+package edu.uiuc.cs427app;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * Announces theme changes to the screens that are showing, on the main thread.
+ * <p>
+ * Changing a theme used to take effect only on screens created afterwards. Screens
+ * that follow the bus re-theme their live views when a user's theme is saved, in place
+ * and without being recreated, so a new theme appears within a frame.
+ */
+public final class ThemeBus {
+
+    /**
+     * Receives theme changes on the main thread.
+     */
+    public interface Listener {
+        /**
+         * Called when a user's theme changes.
+         *
+         * @param username User whose theme changed
+         * @param theme    The user's new theme
+         */
+        void onThemeChanged(String username, CompiledTheme theme);
+    }
+
+    private static ThemeBus instance;
+
+    private final Executor mainThread;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates a bus.
+     *
+     * @param mainThread Runs deliveries on the thread that owns the views
+     */
+    ThemeBus(Executor mainThread) {
+        this.mainThread = mainThread;
+    }
+
+    /**
+     * Gets the bus shared by every screen.
+     *
+     * @return The shared bus
+     */
+    public static synchronized ThemeBus getInstance() {
+        if (instance == null) {
+            Handler handler = new Handler(Looper.getMainLooper());
+            instance = new ThemeBus(command -> {
+                if (Looper.myLooper() == Looper.getMainLooper()) {
+                    command.run();
+                } else {
+                    handler.post(command);
+                }
+            });
+        }
+        return instance;
+    }
+
+    /**
+     * Starts delivering theme changes to a listener.
+     *
+     * @param listener Listener to add
+     */
+    public void subscribe(Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    /**
+     * Stops delivering theme changes to a listener.
+     *
+     * @param listener Listener to remove
+     */
+    public void unsubscribe(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Gets the number of subscribed listeners.
+     *
+     * @return Listener count
+     */
+    int listenerCount() {
+        return listeners.size();
+    }
+
+    /**
+     * Delivers a user's new theme to every listener on the main thread.
+     *
+     * @param username User whose theme changed
+     * @param theme    The user's new theme
+     */
+    public void post(String username, CompiledTheme theme) {
+        mainThread.execute(() -> {
+            for (Listener listener : listeners) {
+                listener.onThemeChanged(username, theme);
+            }
+        });
+    }
+}
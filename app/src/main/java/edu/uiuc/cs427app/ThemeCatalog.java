@@ -0,0 +1,317 @@
+package edu.uiuc.cs427app;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A local catalog of pre-built themes, matched against a theme description by keyword.
+ * <p>
+ * Generating a theme with the LLM can take many seconds, which used to hold the user on
+ * the login screen. The catalog crosses about fifty moods ("ocean", "forest", "cyberpunk")
+ * with six tones ("dark", "pastel", "vivid"), giving a few hundred palettes built once at
+ * startup. Each mood and tone is tagged with keywords, and a keyword index maps the words
+ * of a description to their palettes, so a match is ready instantly while the LLM works
+ * in the background.
+ */
+public final class ThemeCatalog {
+
+    /**
+     * How light, saturated and contrasted a palette is. The first tone is used when a
+     * description names none.
+     */
+    enum Tone {
+        LIGHT(false, 0.30, 0.96, 0.99, 0.90, 0.78, 0.85, 0.12, 0.40,
+                "light", "bright", "day", "daytime", "white", "lightmode"),
+        DARK(true, 0.35, 0.10, 0.15, 0.18, 0.25, 0.20, 0.92, 0.65,
+                "dark", "night", "midnight", "black", "shadow", "darkmode", "gothic", "moody"),
+        PASTEL(false, 0.45, 0.97, 0.99, 0.92, 0.84, 0.88, 0.15, 0.55,
+                "pastel", "soft", "gentle", "pale", "dreamy"),
+        VIVID(false, 0.90, 0.93, 0.98, 0.86, 0.72, 0.75, 0.08, 0.45,
+                "vivid", "neon", "bold", "vibrant", "electric", "loud", "saturated", "energetic"),
+        MUTED(false, 0.12, 0.93, 0.97, 0.88, 0.80, 0.84, 0.15, 0.40,
+                "muted", "minimal", "minimalist", "subtle", "calm", "quiet", "understated", "dusty"),
+        HIGH_CONTRAST(true, 0.20, 0.03, 0.08, 0.12, 0.22, 0.12, 0.98, 0.70,
+                "contrast", "accessible", "readable", "accessibility");
+
+        final boolean dark;
+        final double surfaceSaturation;
+        final double backgroundLightness;
+        final double cardLightness;
+        final double secondaryLightness;
+        final double buttonLightness;
+        final double headerLightness;
+        final double textLightness;
+        final double accentLightness;
+        final String[] keywords;
+
+        Tone(boolean dark, double surfaceSaturation, double backgroundLightness, double cardLightness,
+             double secondaryLightness, double buttonLightness, double headerLightness,
+             double textLightness, double accentLightness, String... keywords) {
+            this.dark = dark;
+            this.surfaceSaturation = surfaceSaturation;
+            this.backgroundLightness = backgroundLightness;
+            this.cardLightness = cardLightness;
+            this.secondaryLightness = secondaryLightness;
+            this.buttonLightness = buttonLightness;
+            this.headerLightness = headerLightness;
+            this.textLightness = textLightness;
+            this.accentLightness = accentLightness;
+            this.keywords = keywords;
+        }
+    }
+
+    /**
+     * A theme subject: its hue, how colorful it is, its emoji and the words that name it.
+     */
+    private static final class Mood {
+        final String name;
+        final int hue;
+        final double saturation;
+        final String emoji;
+        final String[] keywords;
+
+        Mood(String name, int hue, double saturation, String emoji, String... keywords) {
+            this.name = name;
+            this.hue = hue;
+            this.saturation = saturation;
+            this.emoji = emoji;
+            this.keywords = keywords;
+        }
+    }
+
+    // The first mood is used when a description names a tone but no subject
+    private static final Mood[] MOODS = {
+            new Mood("classic", 215, 0.20, null, "classic", "default", "simple", "clean", "plain", "normal", "standard"),
+            new Mood("ocean", 200, 0.70, "🌊", "ocean", "sea", "beach", "wave", "marine", "surf", "coast", "tide", "underwater", "water", "lake", "river"),
+            new Mood("forest", 130, 0.50, "🌲", "forest", "tree", "wood", "woods", "jungle", "nature", "pine", "moss", "leaf", "leaves", "green", "hiking"),
+            new Mood("sunset", 18, 0.85, "🌅", "sunset", "dusk", "evening", "orange", "warm"),
+            new Mood("sunrise", 40, 0.85, "🌄", "sunrise", "dawn", "morning"),
+            new Mood("desert", 35, 0.55, "🏜️", "desert", "sand", "dune", "sahara", "cactus", "arid"),
+            new Mood("space", 250, 0.55, "🚀", "space", "galaxy", "star", "cosmic", "universe", "planet", "astronaut", "rocket", "nebula"),
+            new Mood("night", 230, 0.45, "🌙", "night", "moon", "midnight", "lunar", "nocturnal"),
+            new Mood("autumn", 25, 0.70, "🍂", "autumn", "fall", "pumpkin", "harvest", "maple"),
+            new Mood("winter", 200, 0.30, "❄️", "winter", "snow", "ice", "frost", "frozen", "cold"),
+            new Mood("spring", 100, 0.60, "🌷", "spring", "blossom", "bloom", "flower", "garden", "floral"),
+            new Mood("summer", 50, 0.90, "☀️", "summer", "sun", "sunny", "tropical", "vacation", "hot", "palm", "sunflower"),
+            new Mood("cherry", 345, 0.70, "🌸", "cherry", "sakura", "pink", "rose"),
+            new Mood("lavender", 270, 0.45, "💜", "lavender", "purple", "violet", "lilac", "amethyst"),
+            new Mood("mint", 160, 0.50, "🍃", "mint", "fresh", "teal"),
+            new Mood("coffee", 25, 0.40, "☕", "coffee", "cafe", "espresso", "latte", "mocha", "brown", "chocolate", "cozy"),
+            new Mood("fire", 5, 0.90, "🔥", "fire", "flame", "lava", "volcano", "red", "heat"),
+            new Mood("cyberpunk", 300, 1.00, "🤖", "cyberpunk", "cyber", "synthwave", "futuristic", "tech", "robot"),
+            new Mood("hacker", 120, 0.90, "💻", "hacker", "terminal", "matrix", "code", "coding", "programming", "developer"),
+            new Mood("royal", 265, 0.60, "👑", "royal", "king", "queen", "luxury", "regal", "elegant"),
+            new Mood("gold", 45, 0.75, "🏆", "gold", "golden", "treasure", "rich", "champion", "yellow"),
+            new Mood("illini", 220, 0.65, "🎓", "illini", "illinois", "uiuc", "campus", "university", "college", "school", "student"),
+            new Mood("mountain", 210, 0.25, "🏔️", "mountain", "alpine", "peak", "rock", "stone", "granite", "climbing"),
+            new Mood("rain", 210, 0.20, "🌧️", "rain", "rainy", "cloud", "cloudy", "gloomy", "grey", "gray"),
+            new Mood("storm", 250, 0.20, "⛈️", "storm", "stormy", "thunder", "lightning"),
+            new Mood("candy", 320, 0.80, "🍬", "candy", "sweet", "bubblegum", "dessert", "cute", "kawaii"),
+            new Mood("citrus", 60, 0.90, "🍋", "citrus", "lemon", "lime", "zesty"),
+            new Mood("berry", 330, 0.60, "🍇", "berry", "grape", "plum", "wine", "burgundy"),
+            new Mood("arctic", 190, 0.40, "🧊", "arctic", "glacier", "polar", "iceberg", "antarctic"),
+            new Mood("halloween", 28, 0.95, "🎃", "halloween", "spooky", "ghost", "witch", "horror"),
+            new Mood("christmas", 0, 0.70, "🎄", "christmas", "holiday", "xmas", "festive", "santa"),
+            new Mood("earth", 30, 0.30, "🌍", "earth", "earthy", "soil", "clay", "terracotta", "rustic"),
+            new Mood("sky", 205, 0.80, "☁️", "sky", "air", "breeze", "blue", "azure"),
+            new Mood("zen", 90, 0.20, "🧘", "zen", "meditation", "peaceful", "relax", "relaxing", "yoga", "spa"),
+            new Mood("retro", 35, 0.60, "📻", "retro", "vintage", "nostalgic", "70s", "80s", "90s"),
+            new Mood("paper", 45, 0.15, "📜", "paper", "book", "library", "reading", "study", "parchment", "newspaper"),
+            new Mood("coral", 10, 0.75, "🪸", "coral", "reef", "peach", "salmon"),
+            new Mood("emerald", 145, 0.75, "💎", "emerald", "jade", "gem", "jewel"),
+            new Mood("sapphire", 220, 0.75, "🔷", "sapphire", "navy", "cobalt"),
+            new Mood("ruby", 350, 0.75, "❤️", "ruby", "crimson", "scarlet", "love", "romantic", "valentine", "heart"),
+            new Mood("sports", 140, 0.60, "⚽", "sports", "sport", "football", "soccer", "basketball", "game", "stadium", "fitness", "gym"),
+            new Mood("music", 280, 0.70, "🎵", "music", "jazz", "concert", "party", "dance", "disco", "club"),
+            new Mood("art", 190, 0.70, "🎨", "art", "artist", "paint", "creative", "colorful", "rainbow"),
+            new Mood("tea", 95, 0.30, "🍵", "tea", "matcha", "herbal", "sage", "olive"),
+            new Mood("steel", 210, 0.08, "⚙️", "steel", "metal", "industrial", "iron", "silver", "chrome", "modern"),
+            new Mood("business", 215, 0.35, "💼", "business", "corporate", "professional", "office", "work", "formal"),
+            new Mood("kids", 50, 0.90, "🧸", "kids", "kid", "child", "children", "playful", "fun", "toy"),
+            new Mood("aurora", 150, 0.70, "🌌", "aurora", "northern", "borealis", "magic", "fantasy"),
+            new Mood("noir", 0, 0.00, "🎬", "noir", "film", "movie", "cinema", "monochrome"),
+            new Mood("lagoon", 175, 0.70, "🏝️", "lagoon", "island", "turquoise", "paradise", "aqua"),
+    };
+
+    private static final Tone[] TONES = Tone.values();
+
+    private static volatile ThemeCatalog instance;
+
+    private final ThemeSpec[] palettes;
+    private final Map<String, int[]> moodIndex = new HashMap<>();
+    private final Map<String, Tone> toneIndex = new HashMap<>();
+
+    private ThemeCatalog() {
+        palettes = new ThemeSpec[MOODS.length * TONES.length];
+        for (int m = 0; m < MOODS.length; m++) {
+            for (Tone tone : TONES) {
+                palettes[m * TONES.length + tone.ordinal()] = build(MOODS[m], tone);
+            }
+            for (String keyword : MOODS[m].keywords) {
+                int[] moods = moodIndex.get(keyword);
+                int[] grown = moods == null ? new int[1] : Arrays.copyOf(moods, moods.length + 1);
+                grown[grown.length - 1] = m;
+                moodIndex.put(keyword, grown);
+            }
+        }
+        for (Tone tone : TONES) {
+            for (String keyword : tone.keywords) {
+                toneIndex.putIfAbsent(keyword, tone);
+            }
+        }
+    }
+
+    /**
+     * Gets the catalog, building it on first use.
+     *
+     * @return The shared catalog
+     */
+    public static ThemeCatalog getInstance() {
+        ThemeCatalog catalog = instance;
+        if (catalog == null) {
+            synchronized (ThemeCatalog.class) {
+                catalog = instance;
+                if (catalog == null) {
+                    catalog = new ThemeCatalog();
+                    instance = catalog;
+                }
+            }
+        }
+        return catalog;
+    }
+
+    /**
+     * Gets the number of palettes in the catalog.
+     *
+     * @return Palette count
+     */
+    public int size() {
+        return palettes.length;
+    }
+
+    /**
+     * Gets a palette by its position in the catalog.
+     *
+     * @param index Index from 0 to {@link #size()} - 1
+     * @return The palette
+     */
+    ThemeSpec palette(int index) {
+        return palettes[index];
+    }
+
+    /**
+     * Gets a palette by mood name and tone.
+     *
+     * @param mood Mood name, e.g. "ocean"
+     * @param tone Tone of the palette
+     * @return The palette, or null if there is no such mood
+     */
+    ThemeSpec get(String mood, Tone tone) {
+        for (int m = 0; m < MOODS.length; m++) {
+            if (MOODS[m].name.equals(mood)) return palettes[m * TONES.length + tone.ordinal()];
+        }
+        return null;
+    }
+
+    /**
+     * Finds the palette that best fits a theme description. The subject named most often
+     * wins, ties going to the one named first; the first tone named picks its variant.
+     * The returned spec is shared and must not be modified.
+     *
+     * @param description Free-text description, e.g. "dark ocean at night"
+     * @return The best palette, or the default light theme if no keyword matches
+     */
+    public ThemeSpec bestMatch(String description) {
+        if (description == null || description.isEmpty()) return ThemeSpec.defaultLight();
+
+        int[] scores = new int[MOODS.length];
+        int[] firstHit = new int[MOODS.length];
+        Tone tone = null;
+        int position = 0;
+        boolean matched = false;
+        for (String word : description.toLowerCase(Locale.ROOT).split("[^\\p{L}0-9]+")) {
+            if (word.isEmpty()) continue;
+            position++;
+            int[] moods = lookup(moodIndex, word);
+            if (moods != null) {
+                matched = true;
+                for (int m : moods) {
+                    if (scores[m]++ == 0) firstHit[m] = position;
+                }
+            }
+            Tone named = lookup(toneIndex, word);
+            if (named != null) {
+                matched = true;
+                if (tone == null) tone = named;
+            }
+        }
+        if (!matched) return ThemeSpec.defaultLight();
+
+        int best = -1;
+        for (int m = 0; m < MOODS.length; m++) {
+            if (scores[m] == 0) continue;
+            if (best < 0 || scores[m] > scores[best]
+                    || (scores[m] == scores[best] && firstHit[m] < firstHit[best])) {
+                best = m;
+            }
+        }
+        if (best < 0) best = 0;
+        return palettes[best * TONES.length + (tone == null ? 0 : tone.ordinal())];
+    }
+
+    /**
+     * Looks a word up, retrying without a plural "s" ("waves" matches "wave").
+     */
+    private static <T> T lookup(Map<String, T> index, String word) {
+        T hit = index.get(word);
+        if (hit == null && word.length() > 3 && word.endsWith("s")) {
+            hit = index.get(word.substring(0, word.length() - 1));
+        }
+        return hit;
+    }
+
+    private static ThemeSpec build(Mood mood, Tone tone) {
+        double s = mood.saturation;
+        double surface = Math.min(1, s * tone.surfaceSaturation);
+        double strong = Math.min(1, tone == Tone.MUTED ? s * 0.5 : tone == Tone.VIVID ? s * 1.2 : s);
+        int h = mood.hue;
+
+        ThemeSpec t = new ThemeSpec();
+        t.backgroundHex = hslToHex(h, surface, tone.backgroundLightness);
+        t.textHex = hslToHex(h, Math.min(0.25, s), tone.textLightness);
+        t.accentHex = hslToHex(h, strong, tone.accentLightness);
+        t.buttonHex = hslToHex(h, tone.dark ? strong * 0.7 : strong, tone.buttonLightness);
+        t.secondaryHex = hslToHex(h, surface, tone.secondaryLightness);
+        t.cardBackground = hslToHex(h, surface, tone.cardLightness);
+        t.borderColor = hslToHex(h, surface, tone.dark ? tone.backgroundLightness + 0.15 : tone.backgroundLightness - 0.18);
+        t.headerColor = hslToHex(h, tone.dark ? strong * 0.6 : strong, tone.headerLightness);
+        t.emoji = mood.emoji;
+        return t;
+    }
+
+    /**
+     * Converts a hue, saturation and lightness color to {@code #RRGGBB}.
+     *
+     * @param hue        Hue in degrees
+     * @param saturation Saturation from 0 to 1
+     * @param lightness  Lightness from 0 to 1
+     * @return Hex color string
+     */
+    static String hslToHex(int hue, double saturation, double lightness) {
+        double c = (1 - Math.abs(2 * lightness - 1)) * saturation;
+        double hp = (hue % 360) / 60.0;
+        double x = c * (1 - Math.abs(hp % 2 - 1));
+        double r = 0, g = 0, b = 0;
+        if (hp < 1) { r = c; g = x; }
+        else if (hp < 2) { r = x; g = c; }
+        else if (hp < 3) { g = c; b = x; }
+        else if (hp < 4) { g = x; b = c; }
+        else if (hp < 5) { r = x; b = c; }
+        else { r = c; b = x; }
+        double m = lightness - c / 2;
+        return String.format(Locale.ROOT, "#%02X%02X%02X",
+                Math.round((r + m) * 255), Math.round((g + m) * 255), Math.round((b + m) * 255));
+    }
+}
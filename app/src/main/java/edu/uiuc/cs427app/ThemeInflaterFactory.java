@@ -0,0 +1,232 @@
+package edu.uiuc.cs427app;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.app.AppCompatDelegate;
+import androidx.cardview.widget.CardView;
+import androidx.core.view.LayoutInflaterCompat;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Themes each view of a screen once, as it is inflated.
+ * <p>
+ * Installed as the activity's {@link LayoutInflater.Factory2} before
+ * {@code super.onCreate}, it creates views through AppCompat as usual and colors every
+ * view inflated into the content area straight away, so no tree walk is needed after
+ * {@code setContentView}. Rows and buttons built in code never pass through the inflater,
+ * so screens theme them with {@link ThemeManager#applyToAdded} after adding them. Themed
+ * views are tagged with their theme and are skipped if they are seen again; when the
+ * theme changes, a tree walk updates only the colors that differ.
+ */
+public final class ThemeInflaterFactory implements LayoutInflater.Factory2 {
+    // Same search order as the platform inflater for unqualified tags like "LinearLayout"
+    private static final String[] FRAMEWORK_PREFIXES = {
+            "android.widget.", "android.webkit.", "android.app.", "android.view."};
+    private static final Map<String, String> resolvedPrefixes = new HashMap<>();
+
+    private final AppCompatDelegate delegate;
+    private CompiledTheme theme;
+
+    /**
+     * Creates a factory.
+     *
+     * @param delegate AppCompat delegate that creates the views, or null to only theme
+     *                 existing views
+     * @param theme    Theme to apply
+     */
+    ThemeInflaterFactory(@Nullable AppCompatDelegate delegate, @NonNull CompiledTheme theme) {
+        this.delegate = delegate;
+        this.theme = theme;
+    }
+
+    /**
+     * Installs a theming factory on an activity. Must be called before
+     * {@code super.onCreate}, since AppCompat only installs its own factory if none is set.
+     *
+     * @param activity Activity to theme
+     * @param theme    Theme to apply
+     * @return The installed factory
+     */
+    public static ThemeInflaterFactory install(AppCompatActivity activity, CompiledTheme theme) {
+        ThemeInflaterFactory factory = new ThemeInflaterFactory(activity.getDelegate(), theme);
+        LayoutInflaterCompat.setFactory2(activity.getLayoutInflater(), factory);
+        return factory;
+    }
+
+    /**
+     * Gets the factory installed on an activity's inflater.
+     *
+     * @param inflater Activity's layout inflater
+     * @return The installed factory, or null if the activity did not install one
+     */
+    static ThemeInflaterFactory of(LayoutInflater inflater) {
+        LayoutInflater.Factory2 factory = inflater.getFactory2();
+        return factory instanceof ThemeInflaterFactory ? (ThemeInflaterFactory) factory : null;
+    }
+
+    /**
+     * Gets the theme new views receive.
+     *
+     * @return Current theme
+     */
+    public CompiledTheme getTheme() {
+        return theme;
+    }
+
+    /**
+     * Sets the theme that views created or added from now on receive.
+     *
+     * @param theme New theme
+     */
+    public void setTheme(@NonNull CompiledTheme theme) {
+        this.theme = theme;
+    }
+
+    @Override
+    public View onCreateView(@Nullable View parent, @NonNull String name,
+                             @NonNull Context context, @NonNull AttributeSet attrs) {
+        View view = delegate != null ? delegate.createView(parent, name, context, attrs) : null;
+        if (view == null) {
+            view = createFrameworkView(name, context, attrs);
+        }
+        // Only the content area is themed; the window decor keeps its own colors
+        if (view != null && parent != null
+                && (parent.getId() == android.R.id.content || isThemed(parent))) {
+            themeView(view, theme);
+        }
+        return view;
+    }
+
+    @Override
+    public View onCreateView(@NonNull String name, @NonNull Context context, @NonNull AttributeSet attrs) {
+        return onCreateView(null, name, context, attrs);
+    }
+
+    /**
+     * Themes a view and its descendants unless they already have the current theme.
+     *
+     * @param view Root of the subtree
+     */
+    void themeTree(View view) {
+        if (view.getTag(R.id.applied_theme) == theme) return;
+        themeView(view, theme);
+        if (view instanceof ViewGroup group) {
+            for (int i = 0; i < group.getChildCount(); i++) {
+                themeTree(group.getChildAt(i));
+            }
+        }
+    }
+
+    /**
+     * Applies a theme to a single view and tags it with the theme. A view that already
+     * has another theme only gets the colors that differ between the two.
+     *
+     * @param v     View to color
+     * @param theme Theme to apply
+     */
+    static void themeView(View v, CompiledTheme theme) {
+        Object applied = v.getTag(R.id.applied_theme);
+        CompiledTheme old = applied instanceof CompiledTheme ? (CompiledTheme) applied : null;
+        if (old == theme) return;
+
+        if (v instanceof TextView && !(v instanceof Button)) {
+            if (old == null || old.text != theme.text) {
+                ((TextView) v).setTextColor(theme.text);
+            }
+        }
+
+        if (v instanceof Button b) {
+            if (old == null || old.buttonText != theme.buttonText) {
+                b.setTextColor(theme.buttonText);
+            }
+            if (old == null || old.button != theme.button) {
+                tintButton(b, theme);
+            }
+        }
+
+        if (v instanceof CardView && (old == null || old.card != theme.card)) {
+            ((CardView) v).setCardBackgroundColor(theme.card);
+        }
+
+        if (v instanceof ViewGroup) {
+            // Layouts always take the background, even when tagged
+            if (old == null || old.background != theme.background) {
+                v.setBackgroundColor(theme.background);
+            }
+        } else if (v.getTag() instanceof String t) {
+            if ("border".equals(t) && (old == null || old.border != theme.border)) {
+                v.setBackgroundColor(theme.border);
+            } else if ("accent".equals(t) && (old == null || old.accent != theme.accent)) {
+                v.setBackgroundColor(theme.accent);
+            }
+        }
+        v.setTag(R.id.applied_theme, theme);
+    }
+
+    private static void tintButton(Button b, CompiledTheme theme) {
+        if (b.getClass().getName().equals("com.google.android.material.button.MaterialButton")) {
+            try {
+                b.getBackground().mutate();
+                androidx.core.view.ViewCompat.setBackgroundTintList(b, theme.buttonTint);
+            } catch (Throwable ignored) {
+                b.getBackground().mutate();
+                androidx.core.graphics.drawable.DrawableCompat.setTint(b.getBackground(), theme.button);
+            }
+        } else {
+            if (b.getBackground() != null) {
+                b.getBackground().mutate();
+                androidx.core.view.ViewCompat.setBackgroundTintList(b, theme.buttonTint);
+            }
+        }
+    }
+
+    private static boolean isThemed(View view) {
+        return view.getTag(R.id.applied_theme) != null;
+    }
+
+    /**
+     * Creates a view AppCompat does not substitute, the way the platform inflater would.
+     *
+     * @return The view, or null to let the inflater handle the tag (e.g. fragments)
+     */
+    private static View createFrameworkView(String name, Context context, AttributeSet attrs) {
+        LayoutInflater inflater = LayoutInflater.from(context);
+        try {
+            if (name.indexOf('.') >= 0) {
+                return inflater.createView(context, name, null, attrs);
+            }
+            String prefix;
+            synchronized (resolvedPrefixes) {
+                prefix = resolvedPrefixes.get(name);
+            }
+            if (prefix != null) {
+                return inflater.createView(context, name, prefix, attrs);
+            }
+            for (String candidate : FRAMEWORK_PREFIXES) {
+                try {
+                    View view = inflater.createView(context, name, candidate, attrs);
+                    synchronized (resolvedPrefixes) {
+                        resolvedPrefixes.put(name, candidate);
+                    }
+                    return view;
+                } catch (ClassNotFoundException ignored) {
+                    // Try the next package
+                }
+            }
+        } catch (ClassNotFoundException ignored) {
+            // Not a view class
+        }
+        return null;
+    }
+}
@@ -4,27 +4,85 @@ package edu.uiuc.cs427app;
 import android.app.Activity;
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.graphics.Color;
+import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.Button;
-import android.widget.TextView;
 
-import androidx.cardview.widget.CardView;
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.HashMap;
+import java.util.Map;
 
 public class ThemeManager {
     private static final String PREFS = "user_theme_prefs";
     private static final String KEY_SUFFIX = "_theme_json";
 
+    // Write-through cache of each user's theme, so theming a screen does no I/O
+    private static final Map<String, ThemeSpec> cache = new HashMap<>();
+    // Each user's theme generation in flight; a newer description supersedes it
+    private static final Map<String, CancellationToken> pendingGenerations = new HashMap<>();
+
 
     /**
-     * Loads a theme for a specific user.
+     * Loads a theme for a specific user. Served from memory after the first load
+     * or after {@link #preloadForUser(Context, String)} at login. The returned
+     * spec is shared and must not be modified.
      *
      * @param ctx      Context
      * @param username Username to load theme for
      * @return ThemeSpec (defaults to light theme if none exists)
      */
     public static ThemeSpec loadForUser(Context ctx, String username) {
+        synchronized (cache) {
+            ThemeSpec cached = cache.get(username);
+            if (cached != null) return cached;
+        }
+        ThemeSpec stored = readStored(ctx, username);
+        return remember(username, stored != null ? stored : ThemeSpec.defaultLight());
+    }
+
+    /**
+     * Reads a user's saved theme into the cache. Call once at login, so later
+     * screens are themed without touching the database.
+     *
+     * @param ctx      Context
+     * @param username Username that just logged in
+     * @return The saved ThemeSpec, or null if the user has none yet
+     */
+    public static ThemeSpec preloadForUser(Context ctx, String username) {
+        ThemeSpec stored = readStored(ctx, username);
+        synchronized (cache) {
+            cache.put(username, stored != null ? stored : ThemeSpec.defaultLight());
+        }
+        return stored;
+    }
+
+    /**
+     * Drops every cached theme.
+     */
+    static void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    private static ThemeSpec remember(String username, ThemeSpec spec) {
+        synchronized (cache) {
+            // A theme saved while we were reading wins
+            ThemeSpec existing = cache.putIfAbsent(username, spec);
+            return existing != null ? existing : spec;
+        }
+    }
+
+    /**
+     * Reads a user's theme from the database, falling back to SharedPreferences.
+     *
+     * @return The saved ThemeSpec, or null if none exists
+     */
+    private static ThemeSpec readStored(Context ctx, String username) {
         // Try DB first
         ThemeSpec fromDb = AuthenticationManager.getInstance(ctx).loadThemeSpecForUser(username);
         if (fromDb != null) return fromDb;
@@ -37,7 +95,30 @@ public class ThemeManager {
             } catch (Exception ignored) {
             }
         }
-        return ThemeSpec.defaultLight();
+        return null;
+    }
+
+    /**
+     * Installs theming at inflation time, so views are colored as they are created
+     * instead of in a walk after {@code setContentView}. Must be called before
+     * {@code super.onCreate}.
+     *
+     * @param activity Activity to theme
+     * @param spec     ThemeSpec to apply
+     */
+    public static void install(AppCompatActivity activity, ThemeSpec spec) {
+        ThemeInflaterFactory.install(activity, CompiledTheme.of(spec));
+    }
+
+    /**
+     * Installs an already compiled theme, as kept warm for a recently active user.
+     * Must be called before {@code super.onCreate}.
+     *
+     * @param activity Activity to theme
+     * @param theme    Compiled theme to apply
+     */
+    public static void install(AppCompatActivity activity, CompiledTheme theme) {
+        ThemeInflaterFactory.install(activity, theme);
     }
 
     /**
@@ -47,250 +128,145 @@ public class ThemeManager {
      * @param spec     ThemeSpec to apply
      */
     public static void apply(Activity activity, ThemeSpec spec) {
-        View root = activity.findViewById(android.R.id.content);
-        if (root instanceof ViewGroup) {
-            applyRecursive((ViewGroup) root, spec);
-        } else if (root != null) {
-            root.setBackgroundColor(parseColorSafe(spec.backgroundHex));
-        }
-
-        applyToolbarAndEmoji(activity, spec);
+        apply(activity, CompiledTheme.of(spec));
     }
 
     /**
-     * Recursively applies theme to all views in a view hierarchy.
+     * Applies a compiled theme to an activity's UI. Views already themed at inflation
+     * are skipped and anything else is themed once; views the activity adds later are
+     * themed with {@link #applyToAdded(Context, View)}. Re-applying with a new theme updates only the colors that
+     * differ from the old one.
+     *
+     * @param activity Activity to apply theme to
+     * @param theme    Compiled theme to apply
      */
-    private static void applyRecursive(ViewGroup group, ThemeSpec spec) {
-        group.setBackgroundColor(parseColorSafe(spec.backgroundHex));
-
-        for (int i = 0; i < group.getChildCount(); i++) {
-            View v = group.getChildAt(i);
-
-            if (v instanceof TextView && !(v instanceof Button)) {
-                ((TextView) v).setTextColor(parseColorSafe(spec.textHex));
-            }
-
-            if (v instanceof Button b) {
-                b.setTextColor(colorOr(spec.textHex, "#111111"));
-
-                if (v.getClass().getName().equals("com.google.android.material.button.MaterialButton")) {
-                    try {
-                        b.getBackground().mutate();
-                        androidx.core.view.ViewCompat.setBackgroundTintList(
-                                b, android.content.res.ColorStateList.valueOf(colorOr(spec.buttonHex, "#1976D2"))
-                        );
-                    } catch (Throwable ignored) {
-                        b.getBackground().mutate();
-                        androidx.core.graphics.drawable.DrawableCompat.setTint(
-                                b.getBackground(), colorOr(spec.buttonHex, "#1976D2")
-                        );
-                    }
-                } else {
-                    if (b.getBackground() != null) {
-                        b.getBackground().mutate();
-                        androidx.core.view.ViewCompat.setBackgroundTintList(
-                                b, android.content.res.ColorStateList.valueOf(colorOr(spec.buttonHex, "#1976D2"))
-                        );
-                    }
-                }
-            }
-
-            if (v instanceof androidx.cardview.widget.CardView) {
-                ((CardView) v).setCardBackgroundColor(colorOr(
-                        (spec.cardBackground != null && !spec.cardBackground.isEmpty()) ? spec.cardBackground : spec.secondaryHex,
-                        "#F5F5F5"
-                ));
-            }
-
-            Object tag = v.getTag();
-            if (tag instanceof String t) {
-                if ("border".equals(t)) {
-                    v.setBackgroundColor(colorOr(spec.borderColor, "#DDDDDD"));
-                } else if ("accent".equals(t)) {
-                    v.setBackgroundColor(colorOr(spec.accentHex, "#3D7DFF"));
-                }
-            }
-
-            if (v instanceof ViewGroup) {
-                applyRecursive((ViewGroup) v, spec);
+    public static void apply(Activity activity, CompiledTheme theme) {
+        View root = activity.findViewById(android.R.id.content);
+        Object applied = root != null ? root.getTag(R.id.applied_theme) : null;
+        CompiledTheme previous = applied instanceof CompiledTheme ? (CompiledTheme) applied : null;
+        if (root instanceof ViewGroup) {
+            ThemeInflaterFactory factory = ThemeInflaterFactory.of(activity.getLayoutInflater());
+            if (factory == null) {
+                factory = new ThemeInflaterFactory(null, theme);
+            } else {
+                factory.setTheme(theme);
             }
+            factory.themeTree(root);
+        } else if (root != null) {
+            root.setBackgroundColor(theme.background);
+            root.setTag(R.id.applied_theme, theme);
         }
+
+        applyToolbarAndEmoji(activity, previous, theme);
     }
 
     /**
-     * Safely parses a hex color string.
-     * Returns black as fallback if parsing fails.
+     * Themes a view built in code once it has been added to a themed screen, such as a
+     * list row. Views built with {@code new} never pass through the inflater, so they
+     * are not themed at inflation like the rest of the screen.
+     *
+     * @param context Activity showing the view
+     * @param view    View just added, with its children
      */
-    private static int parseColorSafe(String hex) {
-        try {
-            return Color.parseColor(hex);
-        } catch (Exception e) {
-            return Color.BLACK;
+    public static void applyToAdded(Context context, View view) {
+        ThemeInflaterFactory factory = ThemeInflaterFactory.of(LayoutInflater.from(context));
+        if (factory != null) {
+            factory.themeTree(view);
         }
     }
 
     /**
-     * Parses a hex color with fallback.
+     * Keeps an activity's views in step with a user's theme: when the theme is saved,
+     * the live views are re-themed in place instead of the activity being recreated.
+     * The activity stops following when it is destroyed.
      *
-     * @param hex         Primary hex color string
-     * @param fallbackHex Fallback hex color string
-     * @return Parsed color integer
+     * @param activity Activity already themed with {@link #apply(Activity, ThemeSpec)}
+     * @param username User whose theme the activity shows
      */
-    private static int colorOr(String hex, String fallbackHex) {
-        try {
-            if (hex != null && !hex.isEmpty()) return Color.parseColor(hex);
-        } catch (Exception ignored) {
-        }
-        return Color.parseColor(fallbackHex);
+    public static void follow(AppCompatActivity activity, String username) {
+        ThemeBus bus = ThemeBus.getInstance();
+        ThemeBus.Listener listener = (user, theme) -> {
+            if (user.equals(username)) apply(activity, theme);
+        };
+        bus.subscribe(listener);
+        activity.getLifecycle().addObserver(new DefaultLifecycleObserver() {
+            @Override
+            public void onDestroy(@NonNull LifecycleOwner owner) {
+                owner.getLifecycle().removeObserver(this);
+                bus.unsubscribe(listener);
+            }
+        });
     }
 
     /**
-     * Saves a theme specification for a user to database and SharedPreferences.
+     * Saves a theme specification for a user to the cache, database and SharedPreferences,
+     * and re-themes the user's open screens.
      *
      * @param ctx      Context
      * @param username Username to save theme for
      * @param spec     ThemeSpec to save
      */
     public static void saveForUser(Context ctx, String username, ThemeSpec spec) {
-        AuthenticationManager.getInstance(ctx).saveThemeSpecForUser(username, spec);
+        synchronized (cache) {
+            cache.put(username, spec);
+        }
+        CompiledTheme compiled = CompiledTheme.of(spec);
+        ThemeBus.getInstance().post(username, compiled);
+        AuthenticationManager auth = AuthenticationManager.getInstance(ctx);
+        auth.saveThemeSpecForUser(username, spec);
+        WarmSession warm = auth.getWarmSession(username);
+        if (warm != null) warm.setTheme(compiled);
         SharedPreferences sp = ctx.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
         sp.edit().putString(username + "_theme_json", spec.toJson()).apply();
     }
 
     /**
-     * Applies theme colors to toolbar/action bar and adds emoji if specified.
+     * Gives a user a theme for a description without waiting for the LLM. The best
+     * {@link ThemeCatalog} match is saved and returned at once; the LLM's theme replaces
+     * it in the background when it arrives, unless generation failed or a newer
+     * description was given for the user in the meantime.
      *
-     * @param activity Activity to apply toolbar theme to
-     * @param spec     ThemeSpec containing toolbar colors and emoji
+     * @param ctx         Context
+     * @param username    Username to theme
+     * @param description Free-text theme description, may be empty
+     * @return The catalog theme now saved for the user
      */
-    private static void applyToolbarAndEmoji(Activity activity, ThemeSpec spec) {
-        final int header = colorOr(spec.headerColor, "#3D7DFF");
-        final int titleColor = colorOr(spec.textHex, "#FFFFFF");
-        final String emoji = (spec.emoji == null ? "" : spec.emoji);
-
-        // 1) Try common toolbar IDs (Material & AppCompat projects vary)
-        int tbId = 0;
-        String[] candidates = new String[]{"toolbar", "topAppBar", "materialToolbar"};
-        for (String name : candidates) {
-            int id = activity.getResources().getIdentifier(name, "id", activity.getPackageName());
-            if (id != 0) {
-                tbId = id;
-                break;
-            }
+    public static ThemeSpec generateForUser(Context ctx, String username, String description) {
+        ThemeSpec local = ThemeCatalog.getInstance().bestMatch(description);
+        saveForUser(ctx, username, local);
+
+        CancellationToken token = new CancellationToken();
+        CancellationToken previous;
+        synchronized (pendingGenerations) {
+            previous = pendingGenerations.put(username, token);
         }
-
-        if (tbId != 0) {
-            View tb = activity.findViewById(tbId);
-            if (tb != null) {
-                String cls = tb.getClass().getName();
-
-                if ("com.google.android.material.appbar.MaterialToolbar".equals(cls)) {
-                    try {
-                        ((androidx.appcompat.widget.Toolbar) tb).setTitleTextColor(titleColor);
-                    } catch (Throwable ignored) { /* title set below if needed */ }
-                    try {
-                        androidx.core.view.ViewCompat.setBackgroundTintList(
-                                tb, android.content.res.ColorStateList.valueOf(header));
-                    } catch (Throwable ignored) {
-                        tb.setBackgroundColor(header);
-                    }
-
-                    if (tb instanceof androidx.appcompat.widget.Toolbar mtb) {
-                        CharSequence cur = mtb.getTitle();
-                        String title = cur == null ? "" : cur.toString();
-                        if (!emoji.isEmpty() && !title.contains(emoji)) {
-                            mtb.setTitle((title.isEmpty() ? "" : title + " ") + emoji);
-                        }
-                    }
-                    tintAppBarFamily(activity, header, titleColor, emoji);
-                    return;
-                }
-
-                if (tb instanceof androidx.appcompat.widget.Toolbar toolbar) {
-                    toolbar.setBackgroundColor(header);
-                    toolbar.setTitleTextColor(titleColor);
-                    CharSequence cur = toolbar.getTitle();
-                    String title = cur == null ? "" : cur.toString();
-                    if (!emoji.isEmpty() && !title.contains(emoji)) {
-                        toolbar.setTitle((title.isEmpty() ? "" : title + " ") + emoji);
-                    }
-                    tintAppBarFamily(activity, header, titleColor, emoji);
-                    return;
-                }
-            }
+        if (previous != null) {
+            previous.cancel();
         }
 
-        if (activity instanceof androidx.appcompat.app.AppCompatActivity) {
-            androidx.appcompat.app.ActionBar ab =
-                    ((androidx.appcompat.app.AppCompatActivity) activity).getSupportActionBar();
-            if (ab != null) {
-                try {
-                    ab.setBackgroundDrawable(new android.graphics.drawable.ColorDrawable(header));
-                } catch (Throwable ignored) {
-                }
-                if (!emoji.isEmpty()) {
-                    CharSequence cur = ab.getTitle();
-                    String title = cur == null ? "" : cur.toString();
-                    if (!title.contains(emoji)) {
-                        ab.setTitle((title.isEmpty() ? "" : title + " ") + emoji);
-                    }
-                }
-                return;
+        Context app = ctx.getApplicationContext();
+        LLMClient.generateThemeSpecAsync(description, token, spec -> {
+            synchronized (pendingGenerations) {
+                // A result for an older description must not replace the newer theme
+                if (pendingGenerations.get(username) != token) return;
+                pendingGenerations.remove(username);
             }
-        }
-
-        if (!emoji.isEmpty()) {
-            CharSequence cur = activity.getTitle();
-            String title = cur == null ? "" : cur.toString();
-            if (!title.contains(emoji)) {
-                activity.setTitle((title.isEmpty() ? "" : title + " ") + emoji);
+            // The LLM client falls back to the default theme on errors; keep the match then
+            if (spec != null && !spec.equals(ThemeSpec.defaultLight())) {
+                saveForUser(app, username, spec);
             }
-        }
+        });
+        return local;
     }
 
     /**
-     * Tints AppBarLayout / CollapsingToolbarLayout if present (Material containers that can mask toolbar color).
+     * Applies theme colors to toolbar/action bar and adds emoji if specified.
+     *
+     * @param activity Activity to apply toolbar theme to
+     * @param previous Theme the activity had before, or null
+     * @param theme    Compiled theme containing toolbar colors and emoji
      */
-    private static void tintAppBarFamily(Activity activity, int headerColor, int titleColor, String emoji) {
-        int appBarId = activity.getResources().getIdentifier("appbar", "id", activity.getPackageName());
-        if (appBarId == 0)
-            appBarId = activity.getResources().getIdentifier("appBar", "id", activity.getPackageName());
-        if (appBarId == 0)
-            appBarId = activity.getResources().getIdentifier("app_bar", "id", activity.getPackageName());
-
-        if (appBarId != 0) {
-            View appBar = activity.findViewById(appBarId);
-            if (appBar != null) {
-                try {
-                    androidx.core.view.ViewCompat.setBackgroundTintList(
-                            appBar, android.content.res.ColorStateList.valueOf(headerColor));
-                } catch (Throwable ignored) {
-                    appBar.setBackgroundColor(headerColor);
-                }
-            }
-        }
-
-        int ctlId = activity.getResources().getIdentifier("collapsing_toolbar", "id", activity.getPackageName());
-        if (ctlId == 0)
-            ctlId = activity.getResources().getIdentifier("collapsingToolbar", "id", activity.getPackageName());
-        View ctlView = (ctlId != 0) ? activity.findViewById(ctlId) : null;
-
-        if (ctlView != null && "com.google.android.material.appbar.CollapsingToolbarLayout".equals(ctlView.getClass().getName())) {
-            try {
-                com.google.android.material.appbar.CollapsingToolbarLayout ctl =
-                        (com.google.android.material.appbar.CollapsingToolbarLayout) ctlView;
-                ctl.setContentScrimColor(headerColor);
-                ctl.setCollapsedTitleTextColor(titleColor);
-                ctl.setExpandedTitleColor(titleColor);
-                if (!emoji.isEmpty()) {
-                    CharSequence cur = ctl.getTitle();
-                    String title = cur == null ? "" : cur.toString();
-                    if (!title.contains(emoji)) {
-                        ctl.setTitle((title.isEmpty() ? "" : title + " ") + emoji);
-                    }
-                }
-            } catch (Throwable ignored) { /* Material dependency may be absent */ }
-        }
+    private static void applyToolbarAndEmoji(Activity activity, CompiledTheme previous, CompiledTheme theme) {
+        ToolbarStyler.forActivity(activity).style(activity, previous, theme);
     }
 }
-
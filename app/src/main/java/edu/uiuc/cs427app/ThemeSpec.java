@@ -3,6 +3,8 @@ package edu.uiuc.cs427app;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.Objects;
+
 public class ThemeSpec {
     // Required fields (minimum)
     public String backgroundHex = "#FFFFFF";
@@ -108,6 +110,39 @@ public class ThemeSpec {
                 && (headerColor == null || isValidHexColor(headerColor));
     }
 
+    /**
+     * Compares two themes by their colors and emoji.
+     *
+     * @param o Object to compare with
+     * @return true if every field is equal
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ThemeSpec)) return false;
+        ThemeSpec other = (ThemeSpec) o;
+        return Objects.equals(backgroundHex, other.backgroundHex)
+                && Objects.equals(textHex, other.textHex)
+                && Objects.equals(accentHex, other.accentHex)
+                && Objects.equals(buttonHex, other.buttonHex)
+                && Objects.equals(secondaryHex, other.secondaryHex)
+                && Objects.equals(cardBackground, other.cardBackground)
+                && Objects.equals(borderColor, other.borderColor)
+                && Objects.equals(headerColor, other.headerColor)
+                && Objects.equals(emoji, other.emoji);
+    }
+
+    /**
+     * Hashes the same fields that {@link #equals(Object)} compares.
+     *
+     * @return Hash code
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(backgroundHex, textHex, accentHex, buttonHex, secondaryHex,
+                cardBackground, borderColor, headerColor, emoji);
+    }
+
     /**
      * Checks if a string is a valid hex color code.
      */
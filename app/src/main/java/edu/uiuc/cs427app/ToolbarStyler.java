@@ -0,0 +1,245 @@
+package edu.uiuc.cs427app;
+
+import android.app.Activity;
+import android.graphics.drawable.ColorDrawable;
+import android.view.View;
+
+import androidx.appcompat.app.ActionBar;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.Toolbar;
+import androidx.core.view.ViewCompat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Colors an activity's toolbar or action bar and adds the theme emoji to its title.
+ * <p>
+ * Projects name their bars differently, so the bar views are looked up by resource name.
+ * {@code Resources.getIdentifier} is a slow string lookup, so the ids are resolved once
+ * per activity class, and on the first styling the kind of bar the screen has is
+ * recorded as a {@link Strategy}. Re-theming the screen then goes straight to the
+ * right views.
+ */
+final class ToolbarStyler {
+    private static final String[] TOOLBAR_NAMES = {"toolbar", "topAppBar", "materialToolbar"};
+    private static final String[] APP_BAR_NAMES = {"appbar", "appBar", "app_bar"};
+    private static final String[] COLLAPSING_NAMES = {"collapsing_toolbar", "collapsingToolbar"};
+
+    private static final String MATERIAL_TOOLBAR = "com.google.android.material.appbar.MaterialToolbar";
+    private static final String COLLAPSING_TOOLBAR = "com.google.android.material.appbar.CollapsingToolbarLayout";
+
+    private static final Map<Class<?>, ToolbarStyler> byActivity = new HashMap<>();
+
+    /**
+     * How a screen shows its title bar.
+     */
+    enum Strategy {
+        /** Material toolbar, tinted so its shape background is kept. */
+        MATERIAL_TOOLBAR,
+        /** AppCompat toolbar. */
+        TOOLBAR,
+        /** Support action bar provided by the window. */
+        ACTION_BAR,
+        /** No bar we can style; only the title gets the emoji. */
+        TITLE
+    }
+
+    final int toolbarId;
+    final int appBarId;
+    final int collapsingId;
+    private Strategy strategy;
+
+    ToolbarStyler(int toolbarId, int appBarId, int collapsingId) {
+        this.toolbarId = toolbarId;
+        this.appBarId = appBarId;
+        this.collapsingId = collapsingId;
+    }
+
+    /**
+     * Gets the styler of an activity's class, resolving its bar ids on first use.
+     *
+     * @param activity Activity to style
+     * @return The shared styler for the activity's class
+     */
+    static ToolbarStyler forActivity(Activity activity) {
+        String pkg = activity.getPackageName();
+        return forClass(activity.getClass(),
+                name -> activity.getResources().getIdentifier(name, "id", pkg));
+    }
+
+    /**
+     * Gets the styler of a class, resolving its ids with {@code lookup} only the first time.
+     *
+     * @param cls    Activity class
+     * @param lookup Maps a resource name to its id, or 0 if there is none
+     * @return The shared styler for the class
+     */
+    static ToolbarStyler forClass(Class<?> cls, ToIntFunction<String> lookup) {
+        synchronized (byActivity) {
+            ToolbarStyler styler = byActivity.get(cls);
+            if (styler == null) {
+                styler = new ToolbarStyler(firstId(TOOLBAR_NAMES, lookup),
+                        firstId(APP_BAR_NAMES, lookup), firstId(COLLAPSING_NAMES, lookup));
+                byActivity.put(cls, styler);
+            }
+            return styler;
+        }
+    }
+
+    /**
+     * Drops every resolved styler.
+     */
+    static void clearCache() {
+        synchronized (byActivity) {
+            byActivity.clear();
+        }
+    }
+
+    /**
+     * Gets the strategy picked on the first styling.
+     *
+     * @return The strategy, or null if the activity has not been styled yet
+     */
+    Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Applies the theme's header colors and emoji to the activity's bar.
+     *
+     * @param activity Activity to style, of the class this styler was resolved for
+     * @param previous Theme the bar has now, whose emoji is replaced, or null
+     * @param theme    Compiled theme to apply
+     */
+    void style(Activity activity, CompiledTheme previous, CompiledTheme theme) {
+        if (previous == theme) return;
+        String oldEmoji = previous != null ? previous.emoji : "";
+        if (strategy == null) {
+            strategy = pickStrategy(activity);
+        }
+        switch (strategy) {
+            case MATERIAL_TOOLBAR:
+            case TOOLBAR:
+                View tb = activity.findViewById(toolbarId);
+                if (tb instanceof Toolbar toolbar) {
+                    styleToolbar(toolbar, oldEmoji, theme, strategy == Strategy.MATERIAL_TOOLBAR);
+                    styleAppBarFamily(activity, oldEmoji, theme);
+                    return;
+                }
+                // The bar went away; fall back like a screen without one
+                styleActionBarOrTitle(activity, oldEmoji, theme);
+                return;
+            case ACTION_BAR:
+                styleActionBarOrTitle(activity, oldEmoji, theme);
+                return;
+            default:
+                styleTitle(activity, oldEmoji, theme.emoji);
+        }
+    }
+
+    private Strategy pickStrategy(Activity activity) {
+        View tb = toolbarId != 0 ? activity.findViewById(toolbarId) : null;
+        if (tb instanceof Toolbar) {
+            return MATERIAL_TOOLBAR.equals(tb.getClass().getName())
+                    ? Strategy.MATERIAL_TOOLBAR : Strategy.TOOLBAR;
+        }
+        if (activity instanceof AppCompatActivity
+                && ((AppCompatActivity) activity).getSupportActionBar() != null) {
+            return Strategy.ACTION_BAR;
+        }
+        return Strategy.TITLE;
+    }
+
+    private static void styleToolbar(Toolbar toolbar, String oldEmoji, CompiledTheme theme, boolean material) {
+        toolbar.setTitleTextColor(theme.title);
+        if (material) {
+            try {
+                ViewCompat.setBackgroundTintList(toolbar, theme.headerTint);
+            } catch (Throwable ignored) {
+                toolbar.setBackgroundColor(theme.header);
+            }
+        } else {
+            toolbar.setBackgroundColor(theme.header);
+        }
+        String title = withEmoji(toolbar.getTitle(), oldEmoji, theme.emoji);
+        if (title != null) toolbar.setTitle(title);
+    }
+
+    /**
+     * Tints AppBarLayout / CollapsingToolbarLayout if present (Material containers that can mask toolbar color).
+     */
+    private void styleAppBarFamily(Activity activity, String oldEmoji, CompiledTheme theme) {
+        View appBar = appBarId != 0 ? activity.findViewById(appBarId) : null;
+        if (appBar != null) {
+            try {
+                ViewCompat.setBackgroundTintList(appBar, theme.headerTint);
+            } catch (Throwable ignored) {
+                appBar.setBackgroundColor(theme.header);
+            }
+        }
+
+        View ctlView = collapsingId != 0 ? activity.findViewById(collapsingId) : null;
+        if (ctlView != null && COLLAPSING_TOOLBAR.equals(ctlView.getClass().getName())) {
+            try {
+                com.google.android.material.appbar.CollapsingToolbarLayout ctl =
+                        (com.google.android.material.appbar.CollapsingToolbarLayout) ctlView;
+                ctl.setContentScrimColor(theme.header);
+                ctl.setCollapsedTitleTextColor(theme.title);
+                ctl.setExpandedTitleColor(theme.title);
+                String title = withEmoji(ctl.getTitle(), oldEmoji, theme.emoji);
+                if (title != null) ctl.setTitle(title);
+            } catch (Throwable ignored) { /* Material dependency may be absent */ }
+        }
+    }
+
+    private static void styleActionBarOrTitle(Activity activity, String oldEmoji, CompiledTheme theme) {
+        ActionBar ab = activity instanceof AppCompatActivity
+                ? ((AppCompatActivity) activity).getSupportActionBar() : null;
+        if (ab == null) {
+            styleTitle(activity, oldEmoji, theme.emoji);
+            return;
+        }
+        try {
+            ab.setBackgroundDrawable(new ColorDrawable(theme.header));
+        } catch (Throwable ignored) {
+        }
+        String title = withEmoji(ab.getTitle(), oldEmoji, theme.emoji);
+        if (title != null) ab.setTitle(title);
+    }
+
+    private static void styleTitle(Activity activity, String oldEmoji, String emoji) {
+        String title = withEmoji(activity.getTitle(), oldEmoji, emoji);
+        if (title != null) activity.setTitle(title);
+    }
+
+    /**
+     * Appends an emoji to a title unless it is already there, removing the emoji of the
+     * previous theme first.
+     *
+     * @param current  Current title, may be null
+     * @param oldEmoji Emoji the previous theme appended, may be empty
+     * @param emoji    Emoji to add, may be empty
+     * @return The new title, or null if the title should stay as it is
+     */
+    static String withEmoji(CharSequence current, String oldEmoji, String emoji) {
+        String title = current == null ? "" : current.toString();
+        String base = title;
+        if (!oldEmoji.isEmpty() && !oldEmoji.equals(emoji) && base.endsWith(oldEmoji)) {
+            base = base.substring(0, base.length() - oldEmoji.length()).stripTrailing();
+        }
+        if (!emoji.isEmpty() && !base.contains(emoji)) {
+            base = (base.isEmpty() ? "" : base + " ") + emoji;
+        }
+        return base.equals(title) ? null : base;
+    }
+
+    private static int firstId(String[] names, ToIntFunction<String> lookup) {
+        for (String name : names) {
+            int id = lookup.applyAsInt(name);
+            if (id != 0) return id;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,83 @@
+package edu.uiuc.cs427app;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A recently active user kept in memory by {@link AuthenticationManager}, so switching
+ * back to them needs no password hashing and no database query.
+ * <p>
+ * Holds the user's {@link Session} plus what their main screen loads on start: the city
+ * list and the compiled theme. Each is null until a screen first loads it. Weather is not
+ * held here because {@link WeatherCache} is keyed by coordinates and already shared by
+ * every user.
+ */
+public final class WarmSession {
+    private volatile Session session;
+    private volatile List<City> cities;
+    private volatile CompiledTheme theme;
+
+    /**
+     * Creates a warm session with nothing loaded yet.
+     *
+     * @param session The user's session
+     */
+    WarmSession(Session session) {
+        this.session = session;
+    }
+
+    /**
+     * Gets the user's session.
+     *
+     * @return The session
+     */
+    public Session getSession() {
+        return session;
+    }
+
+    /**
+     * Replaces the session, keeping the loaded cities and theme.
+     *
+     * @param session The user's new session
+     */
+    void setSession(Session session) {
+        this.session = session;
+    }
+
+    /**
+     * Gets the user's cities as last loaded.
+     *
+     * @return An unmodifiable city list, or null if not loaded or out of date
+     */
+    public List<City> getCities() {
+        return cities;
+    }
+
+    /**
+     * Stores the user's cities as loaded from the database.
+     *
+     * @param cities The city list, or null to drop it after the cities changed
+     */
+    public void setCities(List<City> cities) {
+        this.cities = cities == null ? null : Collections.unmodifiableList(new ArrayList<>(cities));
+    }
+
+    /**
+     * Gets the user's compiled theme.
+     *
+     * @return The theme, or null if not compiled yet
+     */
+    public CompiledTheme getTheme() {
+        return theme;
+    }
+
+    /**
+     * Stores the user's compiled theme.
+     *
+     * @param theme The compiled theme
+     */
+    public void setTheme(CompiledTheme theme) {
+        this.theme = theme;
+    }
+}
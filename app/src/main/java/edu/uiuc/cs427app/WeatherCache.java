@@ -0,0 +1,86 @@
+package edu.uiuc.cs427app;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In-memory cache of the latest OpenWeather response per location.
+ * DetailsActivity stores what it fetched, so the dashboard in MainActivity can show
+ * weather and local time for a city without a second request, and vice versa.
+ * Entries are keyed by coordinates rounded to about a kilometre.
+ */
+public class WeatherCache {
+    private static final int MAX_ENTRIES = 32;
+    /** How long a response is shown before it is fetched again. */
+    public static final long MAX_AGE_MS = 10 * 60 * 1000;
+
+    private static final Map<String, Entry> entries =
+            new LinkedHashMap<String, Entry>(MAX_ENTRIES, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            };
+
+    private static class Entry {
+        final WeatherInfo weather;
+        final long fetchedAtMs;
+
+        Entry(WeatherInfo weather, long fetchedAtMs) {
+            this.weather = weather;
+            this.fetchedAtMs = fetchedAtMs;
+        }
+    }
+
+    /**
+     * Returns the cached weather for a location, however old it is.
+     *
+     * @param latitude  Latitude of the city
+     * @param longitude Longitude of the city
+     * @return Cached weather, or null on a miss
+     */
+    public static synchronized WeatherInfo get(double latitude, double longitude) {
+        Entry entry = entries.get(key(latitude, longitude));
+        return entry == null ? null : entry.weather;
+    }
+
+    /**
+     * Checks whether the cached weather for a location is recent enough to skip a fetch.
+     *
+     * @param latitude  Latitude of the city
+     * @param longitude Longitude of the city
+     * @param nowMs     Current time in milliseconds since the epoch
+     * @return true if an entry younger than {@link #MAX_AGE_MS} exists
+     */
+    public static synchronized boolean isFresh(double latitude, double longitude, long nowMs) {
+        Entry entry = entries.get(key(latitude, longitude));
+        return entry != null && nowMs - entry.fetchedAtMs < MAX_AGE_MS;
+    }
+
+    /**
+     * Stores a freshly fetched response.
+     *
+     * @param latitude  Latitude of the city
+     * @param longitude Longitude of the city
+     * @param weather   Response from OpenWeather
+     */
+    public static void put(double latitude, double longitude, WeatherInfo weather) {
+        put(latitude, longitude, weather, System.currentTimeMillis());
+    }
+
+    static synchronized void put(double latitude, double longitude, WeatherInfo weather, long fetchedAtMs) {
+        entries.put(key(latitude, longitude), new Entry(weather, fetchedAtMs));
+    }
+
+    /**
+     * Drops every entry.
+     */
+    static synchronized void clear() {
+        entries.clear();
+    }
+
+    static String key(double latitude, double longitude) {
+        return String.format(Locale.US, "%.2f,%.2f", latitude, longitude);
+    }
+}
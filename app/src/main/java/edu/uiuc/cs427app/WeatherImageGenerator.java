@@ -1,30 +1,41 @@
 package edu.uiuc.cs427app;
 
+import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.os.Handler;
 import android.os.Looper;
-import android.util.Base64;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import com.google.gson.stream.JsonWriter;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.nio.charset.StandardCharsets;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import okhttp3.Call;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
 
 /**
  * Weather-aware city image generator using Gemini 2.0 Flash Image via REST.
@@ -39,8 +50,9 @@ import java.util.concurrent.Executors;
  * "contents": [{ "parts": [{ "text": "<prompt>" }] }]
  * }
  * <p>
- * Then we decode candidates[0].content.parts[0].inlineData.data (base64)
- * into a Bitmap.
+ * Then we stream candidates[0].content.parts[].inlineData.data (base64)
+ * through {@link GeminiImageStream} into a Bitmap sized for the view.
+ * Requests go through the pooled {@link SharedHttpClient}.
  */
 public class WeatherImageGenerator {
 
@@ -49,17 +61,107 @@ public class WeatherImageGenerator {
             "https://generativelanguage.googleapis.com/v1beta/models/"
                     + "gemini-2.0-flash-preview-image-generation:generateContent";
     private static final String API_KEY_PRIMARY = BuildConfig.GEMINI_API_KEY_PRIMARY;
-    private final ExecutorService executor;
-    private final Handler mainHandler;
+    private static final long RATE_LIMIT_MAX_WAIT_MS = 10000;
+    // Image headers are far smaller; bounds are read before the stream is rewound
+    private static final int HEADER_MARK_LIMIT = 1024 * 1024;
+    private static final int PREVIEW_WIDTH = 48;
+    private static final AtomicInteger generationsSaved = new AtomicInteger();
+
+    // Image generation is slow and memory heavy, so a couple of workers serve the whole process
+    private static final int MAX_PARALLEL_GENERATIONS = 2;
+    private static final ThreadPoolExecutor executor = newExecutor();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private static volatile ImageFetcher fetcher;
+
+    private final CityImageCache cache;
+    private final CityImageLibrary library;
+    private final Set<ImageRequest> outstanding = ConcurrentHashMap.newKeySet();
+    // Only the newest request of a generator (one per screen) is delivered
+    private volatile ImageRequest latest;
+    private volatile int targetWidth;
+    private volatile int targetHeight;
+
     public WeatherImageGenerator() {
-        this.executor = Executors.newSingleThreadExecutor();
-        this.mainHandler = new Handler(Looper.getMainLooper());
+        this(null, null);
+    }
+
+    /**
+     * Creates a generator that serves and stores images through the shared
+     * {@link CityImageCache}, so repeat visits skip Gemini entirely, and falls back
+     * to the precomputed {@link CityImageLibrary} before generating live.
+     *
+     * @param context Any context
+     */
+    public WeatherImageGenerator(@NonNull Context context) {
+        this(CityImageCache.getInstance(context), CityImageLibrary.getInstance(context));
+    }
+
+    /**
+     * Creates a generator with explicit stores; either may be null.
+     *
+     * @param cache   Cache of recently shown images
+     * @param library Precomputed image library
+     */
+    WeatherImageGenerator(CityImageCache cache, CityImageLibrary library) {
+        this.cache = cache;
+        this.library = library;
+    }
+
+    private static ThreadPoolExecutor newExecutor() {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                MAX_PARALLEL_GENERATIONS, MAX_PARALLEL_GENERATIONS, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> new Thread(r, "image-worker-" + count.incrementAndGet()));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Replaces the Gemini call, e.g. with a local fake in tests. Pass null to restore Gemini.
+     *
+     * @param newFetcher Fetcher to generate images with
+     */
+    static void useFetcher(ImageFetcher newFetcher) {
+        fetcher = newFetcher;
+    }
+
+    /**
+     * Ties this generator to a screen: when the owner is destroyed every outstanding
+     * request is cancelled and its callback dropped, so the screen can be collected
+     * even while a generation is still in flight.
+     *
+     * @param owner Activity or other lifecycle owner showing the images
+     * @return This generator
+     */
+    public WeatherImageGenerator bindTo(@NonNull LifecycleOwner owner) {
+        owner.getLifecycle().addObserver(new DefaultLifecycleObserver() {
+            @Override
+            public void onDestroy(@NonNull LifecycleOwner source) {
+                source.getLifecycle().removeObserver(this);
+                cancelAll();
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Cancels every outstanding request of this generator.
+     */
+    public void cancelAll() {
+        for (ImageRequest request : outstanding) {
+            request.cancel();
+        }
+        outstanding.clear();
     }
 
     /**
      * High-level API: generate a city image given structured info.
+     *
+     * @return Handle that cancels the request
      */
-    public void generateCityImageAsync(
+    public ImageRequest generateCityImageAsync(
             @NonNull String cityName,
             @NonNull String stateOrRegion,
             @NonNull String country,
@@ -68,10 +170,16 @@ public class WeatherImageGenerator {
             @NonNull ImageCallback callback
     ) {
         String prompt = buildPrompt(cityName, stateOrRegion, country, weatherSummary, timeOfDay);
-        generateFromPromptAsync(prompt, callback);
+        Scene scene = new Scene(cityName, stateOrRegion, country, CityImageCache.conditionBucket(null), timeOfDay);
+        return generateFromPromptAsync(prompt, scene, callback);
     }
 
-    public void generateCityImageWithWeatherAsync(
+    /**
+     * High-level API: generate a city image that reflects live weather conditions.
+     *
+     * @return Handle that cancels the request
+     */
+    public ImageRequest generateCityImageWithWeatherAsync(
             @NonNull String cityName,
             @NonNull String stateOrRegion,
             @NonNull String country,
@@ -80,14 +188,133 @@ public class WeatherImageGenerator {
             @NonNull ImageCallback callback
     ) {
         String prompt = buildEnhancedPrompt(cityName, stateOrRegion, country, weatherData, timeOfDay);
-        generateFromPromptAsync(prompt, callback);
+        Scene scene = new Scene(cityName, stateOrRegion, country, CityImageCache.conditionBucket(weatherData), timeOfDay);
+        return generateFromPromptAsync(prompt, scene, callback);
+    }
+
+    /**
+     * Batch mode: generates the missing {@link CityImageLibrary} images for these cities,
+     * one per condition family and time of day. Meant for background work on charge and
+     * unmetered network; the callback runs on the worker thread.
+     *
+     * @param cityNames Cities to cover, as shown on DetailsActivity
+     * @param maxImages Most Gemini generations to attempt in this run
+     * @param callback  Called once the run ends
+     * @return Handle that stops the run
+     */
+    public ImageRequest generateLibraryAsync(
+            @NonNull List<String> cityNames,
+            int maxImages,
+            @NonNull LibraryCallback callback
+    ) {
+        return generateLibraryAsync(() -> cityNames, maxImages, callback);
+    }
+
+    /**
+     * Same as {@link #generateLibraryAsync(List, int, LibraryCallback)}, but reads the
+     * cities on the worker thread, so callers on the main thread can load them from disk.
+     *
+     * @param cityNames Supplies the cities to cover; called once on the worker thread
+     * @param maxImages Most Gemini generations to attempt in this run
+     * @param callback  Called once the run ends
+     * @return Handle that stops the run
+     */
+    public ImageRequest generateLibraryAsync(
+            @NonNull Supplier<List<String>> cityNames,
+            int maxImages,
+            @NonNull LibraryCallback callback
+    ) {
+        if (library == null) {
+            throw new IllegalStateException("Library generation needs a WeatherImageGenerator(Context)");
+        }
+        ImageRequest request = new ImageRequest(null);
+        outstanding.add(request);
+        request.future = executor.submit(() -> {
+            int attempted = 0;
+            int generated = 0;
+            boolean complete = true;
+            try {
+                outer:
+                for (String city : cityNames.get()) {
+                    for (String family : CityImageLibrary.CONDITION_FAMILIES) {
+                        for (String timeOfDay : CityImageLibrary.TIMES_OF_DAY) {
+                            String prompt = libraryPrompt(city, "", "", family, timeOfDay);
+                            if (library.contains(prompt)) continue;
+                            if (request.isCancelled() || attempted >= maxImages
+                                    || !GeminiRateLimiter.getInstance().acquire(LlmOperation.IMAGE,
+                                    RATE_LIMIT_MAX_WAIT_MS, request::isCancelled)) {
+                                complete = false;
+                                break outer;
+                            }
+                            attempted++;
+                            Bitmap bitmap = fetch(prompt, request);
+                            if (bitmap != null && library.put(prompt, bitmap)) {
+                                generated++;
+                            }
+                            // Library images are never displayed, so the decode buffer is reused
+                            BitmapPool.getInstance().put(bitmap);
+                        }
+                    }
+                }
+            } catch (Throwable t) {
+                if (!request.isCancelled()) {
+                    Log.e(TAG, "Library generation failed: " + t.getMessage(), t);
+                }
+                complete = false;
+            } finally {
+                outstanding.remove(request);
+            }
+            Log.i(TAG, "Library run generated " + generated + " of " + attempted + " images");
+            callback.onLibraryRunFinished(generated, complete);
+        });
+        return request;
+    }
+
+    /**
+     * Builds the prompt used for a library image, from representative weather for the family.
+     *
+     * @return Library prompt, which is also the library's content key
+     */
+    static String libraryPrompt(String cityName, String stateOrRegion, String country,
+                                String family, String timeOfDay) {
+        return buildEnhancedPrompt(cityName, stateOrRegion, country,
+                CityImageLibrary.representativeWeather(family), timeOfDay);
+    }
+
+    /**
+     * Sets the size the images will be displayed at, so they are decoded no larger
+     * than needed. Without a target size images are decoded at full resolution.
+     *
+     * @param widthPx  Target width in pixels
+     * @param heightPx Target height in pixels
+     */
+    public void setTargetSize(int widthPx, int heightPx) {
+        this.targetWidth = widthPx;
+        this.targetHeight = heightPx;
+    }
+
+    /**
+     * Gets the number of Gemini image generations avoided in this process, through cache
+     * hits, superseded requests and skipped placeholder images.
+     *
+     * @return Generations saved since process start
+     */
+    public static int getGenerationsSaved() {
+        return generationsSaved.get();
+    }
+
+    /**
+     * Records a Gemini image generation that a caller decided not to make.
+     */
+    public static void recordGenerationSaved() {
+        generationsSaved.incrementAndGet();
     }
 
     // ---------------------------------------------------------------------
     // Internal helpers
     // ---------------------------------------------------------------------
     //prompt with weather data
-    private String buildEnhancedPrompt(
+    private static String buildEnhancedPrompt(
             String cityName,
             String stateOrRegion,
             String country,
@@ -150,7 +377,7 @@ public class WeatherImageGenerator {
     }
 
     //prompt without weather data
-    private String buildPrompt(
+    private static String buildPrompt(
             String cityName,
             String stateOrRegion,
             String country,
@@ -175,162 +402,412 @@ public class WeatherImageGenerator {
         return sb.toString();
     }
 
-    private void generateFromPromptAsync(
+    private ImageRequest generateFromPromptAsync(
             @NonNull String prompt,
+            @NonNull Scene scene,
             @NonNull ImageCallback callback
     ) {
-        executor.submit(() -> {
+        ImageRequest request = new ImageRequest(callback);
+        ImageRequest previous = latest;
+        latest = request;
+        if (previous != null) {
+            previous.superseded = true;
+        }
+
+        String cacheKey = scene.cacheKey(scene.bucket);
+        if (cache != null) {
+            Bitmap cached = cache.getFromMemory(cacheKey);
+            if (cached != null) {
+                recordGenerationSaved();
+                postSuccess(request, cached);
+                return request;
+            }
+        }
+
+        outstanding.add(request);
+        request.future = executor.submit(() -> {
             try {
-                Bitmap bitmap = callGeminiImage(prompt);
+                if (!request.shouldDeliver()) {
+                    // Cancelled, or a newer request for this screen was queued behind us
+                    recordGenerationSaved();
+                    return;
+                }
+                if (cache != null) {
+                    Bitmap cached = cache.get(cacheKey);
+                    if (cached != null) {
+                        recordGenerationSaved();
+                        postSuccess(request, cached);
+                        return;
+                    }
+                }
+                String libraryPrompt = scene.libraryPrompt(scene.bucket);
+                if (library != null && libraryPrompt != null) {
+                    Bitmap precomputed = BitmapPool.getInstance().toDisplay(
+                            library.get(libraryPrompt, targetWidth, targetHeight));
+                    if (precomputed != null) {
+                        recordGenerationSaved();
+                        postSuccess(request, precomputed);
+                        if (cache != null) {
+                            cache.putInMemory(cacheKey, precomputed);
+                        }
+                        return;
+                    }
+                }
+
+                // A live generation can take up to a minute; show a blurred stand-in meanwhile
+                Bitmap preview = findPreview(scene);
+                if (preview != null) {
+                    postPreview(request, preview);
+                }
+
+                if (!GeminiRateLimiter.getInstance().acquire(LlmOperation.IMAGE, RATE_LIMIT_MAX_WAIT_MS,
+                        request::isCancelled)) {
+                    throw new IllegalStateException("Gemini request budget exhausted, try again shortly");
+                }
+                Bitmap bitmap = BitmapPool.getInstance().toDisplay(fetch(prompt, request));
                 if (bitmap == null) {
                     throw new IllegalStateException("No image data found in Gemini response");
                 }
-                postSuccess(callback, bitmap);
+                postSuccess(request, bitmap);
+                if (cache != null) {
+                    cache.put(cacheKey, bitmap);
+                }
             } catch (Throwable t) {
-                Log.e(TAG, "Image generation failed: " + t.getMessage(), t);
-                postError(callback, t);
+                if (request.isCancelled()) {
+                    Log.d(TAG, "Image generation cancelled");
+                } else {
+                    Log.e(TAG, "Image generation failed: " + t.getMessage(), t);
+                    postError(request, t);
+                }
+            } finally {
+                outstanding.remove(request);
             }
         });
+        return request;
     }
 
     /**
-     * Performs the REST call to Gemini 2.0 Flash Image and returns a Bitmap.
+     * Finds a low-resolution stand-in for a scene: the same city and time of day in the
+     * nearest condition bucket that is cached in memory, on disk or in the library.
+     * The image is shrunk to a thumbnail so the image view's upscaling blurs it.
+     *
+     * @return Thumbnail, or null if nothing similar has been generated
      */
-    private Bitmap callGeminiImage(String prompt) throws IOException, JSONException {
-        HttpURLConnection conn = null;
-        try {
-            URL url = new URL(ENDPOINT);
-            conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setConnectTimeout(15000);
-            conn.setReadTimeout(60000);
-            conn.setDoOutput(true);
-            conn.setDoInput(true);
-
-            // Headers: match curl example
-            conn.setRequestProperty("Content-Type", "application/json; charset=utf-8");
-            conn.setRequestProperty("x-goog-api-key", API_KEY_PRIMARY);
-
-            // Build JSON body:
-            // {
-            //   "generationConfig": { "responseModalities": ["TEXT","IMAGE"] },
-            //   "contents": [{ "parts": [{ "text": "<prompt>" }] }]
-            // }
-            JSONObject body = new JSONObject();
-
-            JSONObject genConfig = new JSONObject();
-            JSONArray modalities = new JSONArray();
-            modalities.put("TEXT");
-            modalities.put("IMAGE");
-            genConfig.put("responseModalities", modalities);
-            body.put("generationConfig", genConfig);
-
-            JSONObject textPart = new JSONObject();
-            textPart.put("text", prompt);
-
-            JSONArray parts = new JSONArray();
-            parts.put(textPart);
-
-            JSONObject contentObj = new JSONObject();
-            contentObj.put("parts", parts);
-
-            JSONArray contents = new JSONArray();
-            contents.put(contentObj);
-
-            body.put("contents", contents);
-
-            String jsonBody = body.toString();
-
-            // Write request body
-            try (OutputStream os = conn.getOutputStream();
-                 BufferedWriter writer = new BufferedWriter(
-                         new OutputStreamWriter(os, StandardCharsets.UTF_8))) {
-                writer.write(jsonBody);
-                writer.flush();
+    private Bitmap findPreview(Scene scene) {
+        for (String bucket : CityImageCache.nearestBuckets(scene.bucket)) {
+            Bitmap source = null;
+            boolean shared = false;
+            if (cache != null) {
+                source = cache.getFromMemory(scene.cacheKey(bucket));
+                shared = source != null;
+                if (source == null) {
+                    source = cache.getThumbnail(scene.cacheKey(bucket), PREVIEW_WIDTH);
+                }
             }
-
-            int code = conn.getResponseCode();
-            InputStream is;
-            if (code >= 200 && code < 300) {
-                is = conn.getInputStream();
-            } else {
-                is = conn.getErrorStream();
-                if (is == null) {
-                    throw new IOException("Gemini HTTP error " + code);
+            String libraryPrompt = scene.libraryPrompt(bucket);
+            if (source == null && library != null && libraryPrompt != null) {
+                source = library.get(libraryPrompt, PREVIEW_WIDTH, PREVIEW_WIDTH);
+            }
+            if (source != null) {
+                Bitmap preview = thumbnail(source);
+                if (preview != source && !shared) {
+                    // Decoded only for this preview, so its buffer can be reused
+                    BitmapPool.getInstance().put(source);
                 }
+                return preview;
             }
+        }
+        return null;
+    }
 
-            String responseText = readStreamToString(is);
+    private static Bitmap thumbnail(Bitmap source) {
+        if (source.getWidth() <= PREVIEW_WIDTH) return source;
+        int height = Math.max(1, source.getHeight() * PREVIEW_WIDTH / source.getWidth());
+        return Bitmap.createScaledBitmap(source, PREVIEW_WIDTH, height, true);
+    }
+
+    private Bitmap fetch(String prompt, ImageRequest request) throws Exception {
+        ImageFetcher override = fetcher;
+        return override != null ? override.fetch(prompt, request) : callGeminiImage(prompt, request);
+    }
 
-            if (code < 200 || code >= 300) {
+    /**
+     * Performs the REST call to Gemini 2.0 Flash Image and returns a Bitmap decoded
+     * into a pooled buffer; callers either display it through
+     * {@link BitmapPool#toDisplay(Bitmap)} or return it to the pool.
+     */
+    private Bitmap callGeminiImage(String prompt, ImageRequest request) throws IOException {
+        // No Accept-Encoding header: OkHttp then negotiates gzip and decompresses transparently
+        Request httpRequest = new Request.Builder()
+                .url(ENDPOINT)
+                .header("x-goog-api-key", API_KEY_PRIMARY)
+                .post(new PromptBody(prompt))
+                .build();
+        Call call = SharedHttpClient.get().newCall(httpRequest);
+        request.attach(call);
+
+        try (Response response = call.execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful()) {
+                String responseText = body.string();
                 Log.e(TAG, "Gemini error response: " + responseText);
-                throw new IOException("Gemini HTTP error " + code + ": " + responseText);
+                throw new IOException("Gemini HTTP error " + response.code() + ": " + responseText);
             }
 
-            return extractBitmapFromResponse(responseText);
-        } finally {
-            if (conn != null) {
-                conn.disconnect();
+            // Stream the base64 payload straight into the decoder instead of buffering the body
+            try (InputStream image = new BufferedInputStream(GeminiImageStream.open(body.byteStream()))) {
+                return decodeSampledBitmap(image, targetWidth, targetHeight);
             }
         }
     }
 
-    private String readStreamToString(InputStream is) throws IOException {
-        StringBuilder sb = new StringBuilder();
-        try (BufferedReader br = new BufferedReader(
-                new InputStreamReader(is, StandardCharsets.UTF_8))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                sb.append(line);
-            }
+    /**
+     * Decodes an image stream, subsampled to roughly the target size, into a buffer
+     * from the {@link BitmapPool} when one fits, or into a new bitmap if the decoder
+     * rejects the pooled buffer.
+     * Reads the header first to pick {@code inSampleSize}, then rewinds and decodes.
+     *
+     * @param in           Image bytes; must support mark/reset
+     * @param targetWidth  Width of the view in pixels, or 0 for full resolution
+     * @param targetHeight Height of the view in pixels, or 0 for full resolution
+     * @return Decoded mutable bitmap, or null if the bytes are not an image
+     */
+    static Bitmap decodeSampledBitmap(InputStream in, int targetWidth, int targetHeight) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        in.mark(HEADER_MARK_LIMIT);
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeStream(in, null, options);
+        in.reset();
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        if (targetWidth > 0 && targetHeight > 0) {
+            options.inSampleSize = calculateInSampleSize(
+                    options.outWidth, options.outHeight, targetWidth, targetHeight);
+        }
+        options.inJustDecodeBounds = false;
+        // Generated scenes are opaque photos, so 16-bit color halves the bitmap size
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        // Decoders may round subsampled sizes up, so ask for a buffer that fits either way
+        int sampleSize = Math.max(1, options.inSampleSize);
+        options.inBitmap = BitmapPool.getInstance().get(
+                (options.outWidth + sampleSize - 1) / sampleSize,
+                (options.outHeight + sampleSize - 1) / sampleSize,
+                options.inPreferredConfig);
+        options.inMutable = true;
+        try {
+            return BitmapFactory.decodeStream(in, null, options);
+        } catch (IllegalArgumentException e) {
+            if (options.inBitmap == null) throw e;
+            // The decoder ignored RGB_565 (e.g. a PNG with alpha) and the pooled buffer
+            // is too small for its config; give the buffer back and decode into a new one
+            BitmapPool.getInstance().put(options.inBitmap);
+            options.inBitmap = null;
+            in.reset();
+            return BitmapFactory.decodeStream(in, null, options);
         }
-        return sb.toString();
     }
 
     /**
-     * Parses the JSON and extracts candidates[0].content.parts[0].inlineData.data.
+     * Picks the largest power-of-two sample size that keeps both dimensions at or
+     * above the target size.
+     *
+     * @return Sample size for {@link BitmapFactory.Options#inSampleSize}
      */
-    private Bitmap extractBitmapFromResponse(String json) throws JSONException {
-        JSONObject root = new JSONObject(json);
-        JSONArray candidates = root.optJSONArray("candidates");
-        if (candidates == null || candidates.length() == 0) {
-            throw new JSONException("No candidates in response");
+    static int calculateInSampleSize(int width, int height, int targetWidth, int targetHeight) {
+        int sampleSize = 1;
+        if (width <= 0 || height <= 0) return sampleSize;
+        while (width / (sampleSize * 2) >= targetWidth && height / (sampleSize * 2) >= targetHeight) {
+            sampleSize *= 2;
         }
+        return sampleSize;
+    }
 
-        JSONObject firstCandidate = candidates.getJSONObject(0);
-        JSONObject content = firstCandidate.getJSONObject("content");
-        JSONArray parts = content.getJSONArray("parts");
-
-        for (int i = 0; i < parts.length(); i++) {
-            JSONObject part = parts.getJSONObject(i);
-            JSONObject inlineData = part.optJSONObject("inlineData");
-            if (inlineData != null) {
-                String b64 = inlineData.optString("data", null);
-                if (b64 != null && !b64.isEmpty()) {
-                    byte[] bytes = Base64.decode(b64, Base64.DEFAULT);
-                    return BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
-                }
+    // The posted tasks reference the request, not the callback, so cancelling releases the screen
+    private static void postSuccess(@NonNull ImageRequest request, @NonNull Bitmap bitmap) {
+        mainHandler.post(() -> {
+            ImageCallback callback = request.callback;
+            if (callback != null && request.shouldDeliver()) {
+                callback.onImageReady(bitmap);
             }
-        }
-
-        throw new JSONException("No inlineData.data field with image found");
+        });
     }
 
-    private void postSuccess(@NonNull ImageCallback callback, @NonNull Bitmap bitmap) {
-        mainHandler.post(() -> callback.onImageReady(bitmap));
+    private static void postPreview(@NonNull ImageRequest request, @NonNull Bitmap preview) {
+        mainHandler.post(() -> {
+            ImageCallback callback = request.callback;
+            if (callback != null && request.shouldDeliver()) {
+                callback.onPreview(preview);
+            }
+        });
     }
 
-    private void postError(@NonNull ImageCallback callback, @NonNull Throwable t) {
-        mainHandler.post(() -> callback.onError(t));
+    private static void postError(@NonNull ImageRequest request, @NonNull Throwable t) {
+        mainHandler.post(() -> {
+            ImageCallback callback = request.callback;
+            if (callback != null && request.shouldDeliver()) {
+                callback.onError(t);
+            }
+        });
     }
 
     /**
      * Callback for asynchronous image results.
      */
     public interface ImageCallback {
+        /**
+         * Called with a small, blurry stand-in while a live generation runs.
+         * The full image follows through {@link #onImageReady}.
+         *
+         * @param preview Low-resolution preview
+         */
+        default void onPreview(@NonNull Bitmap preview) {
+        }
+
         void onImageReady(@NonNull Bitmap bitmap);
 
         void onError(@NonNull Throwable t);
     }
 
+    /**
+     * Callback for a library generation run.
+     */
+    public interface LibraryCallback {
+        /**
+         * @param generated Images added to the library in this run
+         * @param complete  true if every image for the cities is now in the library
+         */
+        void onLibraryRunFinished(int generated, boolean complete);
+    }
+
+    /**
+     * Source of generated images, replaceable for tests.
+     */
+    interface ImageFetcher {
+        Bitmap fetch(String prompt, ImageRequest request) throws Exception;
+    }
+
+    /**
+     * Gemini generateContent request body, written straight to the connection:
+     * {"generationConfig":{"responseModalities":["TEXT","IMAGE"]},
+     * "contents":[{"parts":[{"text":"<prompt>"}]}]}
+     */
+    static final class PromptBody extends RequestBody {
+        private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+        private final String prompt;
+
+        PromptBody(String prompt) {
+            this.prompt = prompt;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return JSON;
+        }
+
+        @Override
+        public void writeTo(@NonNull BufferedSink sink) throws IOException {
+            JsonWriter writer = new JsonWriter(new OutputStreamWriter(sink.outputStream(), StandardCharsets.UTF_8));
+            writer.beginObject();
+            writer.name("generationConfig").beginObject();
+            writer.name("responseModalities").beginArray().value("TEXT").value("IMAGE").endArray();
+            writer.endObject();
+            writer.name("contents").beginArray().beginObject();
+            writer.name("parts").beginArray().beginObject();
+            writer.name("text").value(prompt);
+            writer.endObject().endArray();
+            writer.endObject().endArray();
+            writer.endObject();
+            // Flush into the sink without closing it; OkHttp owns the sink
+            writer.flush();
+        }
+    }
+
+    /**
+     * What an image shows, used to derive cache keys and library prompts for any bucket.
+     */
+    private static final class Scene {
+        final String cityName;
+        final String stateOrRegion;
+        final String country;
+        final String bucket;
+        final String timeOfDay;
+
+        Scene(String cityName, String stateOrRegion, String country, String bucket, String timeOfDay) {
+            this.cityName = cityName;
+            this.stateOrRegion = stateOrRegion;
+            this.country = country;
+            this.bucket = bucket;
+            this.timeOfDay = timeOfDay;
+        }
+
+        String cacheKey(String forBucket) {
+            return CityImageCache.key(cityName, forBucket, timeOfDay);
+        }
+
+        /**
+         * @return Library prompt, or null for the generic bucket which the library does not hold
+         */
+        String libraryPrompt(String forBucket) {
+            return "generic".equals(forBucket)
+                    ? null
+                    : WeatherImageGenerator.libraryPrompt(cityName, stateOrRegion, country, forBucket, timeOfDay);
+        }
+    }
+
+    /**
+     * Handle for one image request. Cancelling drops the callback, removes the request
+     * from the queue if it has not started and cancels its HTTP call if it has.
+     */
+    public static final class ImageRequest {
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private volatile ImageCallback callback;
+        private volatile Future<?> future;
+        private volatile Call call;
+        private volatile boolean superseded;
+
+        ImageRequest(ImageCallback callback) {
+            this.callback = callback;
+        }
+
+        /**
+         * Cancels the request. The callback will not be called afterwards.
+         */
+        public void cancel() {
+            if (!cancelled.compareAndSet(false, true)) return;
+            callback = null;
+            Future<?> pending = future;
+            if (pending != null) {
+                pending.cancel(false);
+            }
+            Call inFlight = call;
+            if (inFlight != null) {
+                inFlight.cancel();
+            }
+        }
+
+        /**
+         * Checks whether the request was cancelled.
+         *
+         * @return true once {@link #cancel()} has been called
+         */
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        /**
+         * Registers the HTTP call carrying this request so cancelling can abort it.
+         */
+        void attach(Call httpCall) {
+            call = httpCall;
+            if (isCancelled()) {
+                httpCall.cancel();
+            }
+        }
+
+        private boolean shouldDeliver() {
+            return !cancelled.get() && !superseded;
+        }
+    }
 }
@@ -24,6 +24,7 @@ public class WeatherInsightsActivity extends AppCompatActivity {
     private ScrollView scrollView;
     private String weatherData;
     private String cityName;
+    private final CancellationToken cancellationToken = new CancellationToken();
 
     /**
      * Initializes the activity, loads theme, and sets up UI components.
@@ -33,15 +34,16 @@ public class WeatherInsightsActivity extends AppCompatActivity {
      */
     @Override
     protected void onCreate(Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_weather_insights);
-
-        // Apply theme
+        // Apply theme; views are themed as they are inflated, so the factory goes in first
         String username = AuthenticationManager.getInstance(this).getCurrentUser() != null
                 ? AuthenticationManager.getInstance(this).getCurrentUser().getUsername()
                 : "";
         ThemeSpec spec = ThemeManager.loadForUser(this, username);
+        ThemeManager.install(this, spec);
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_weather_insights);
         ThemeManager.apply(this, spec);
+        ThemeManager.follow(this, username);
 
         // Get data from intent
         weatherData = getIntent().getStringExtra("weatherData");
@@ -73,11 +75,31 @@ public class WeatherInsightsActivity extends AppCompatActivity {
         generateQuestions();
     }
 
+    /**
+     * Cancels any LLM requests still running for this screen.
+     */
+    @Override
+    protected void onDestroy() {
+        cancellationToken.cancel();
+        super.onDestroy();
+    }
+
     /**
      * Generates weather-related questions using LLM asynchronously.
-     * Shows loading indicator while generating, then displays questions as buttons.
+     * Uses questions prefetched by DetailsActivity when available, otherwise shows a
+     * loading indicator while generating, then displays questions as buttons.
      */
     private void generateQuestions() {
+        // Questions prefetched by DetailsActivity can be shown right away
+        String[] cached = WeatherQuestionCache.peek(weatherData);
+        if (cached != null) {
+            loadingProgressBar.setVisibility(View.GONE);
+            loadingTextView.setVisibility(View.GONE);
+            questionsLayout.setVisibility(View.VISIBLE);
+            displayQuestions(cached);
+            return;
+        }
+
         // Show loading state
         loadingProgressBar.setVisibility(View.VISIBLE);
         loadingTextView.setVisibility(View.VISIBLE);
@@ -85,7 +107,7 @@ public class WeatherInsightsActivity extends AppCompatActivity {
         questionsLayout.setVisibility(View.GONE);
 
         // Generate questions asynchronously
-        LLMClient.generateWeatherQuestionsAsync(weatherData, new LLMClient.WeatherQuestionsCallback() {
+        LLMClient.generateWeatherQuestionsAsync(weatherData, cancellationToken, new LLMClient.WeatherQuestionsCallback() {
             @Override
             public void onQuestionsGenerated(String[] questions) {
                 runOnUiThread(() -> {
@@ -114,6 +136,7 @@ public class WeatherInsightsActivity extends AppCompatActivity {
         instructionsTextView.setTextSize(16);
         instructionsTextView.setPadding(0, 0, 0, 16);
         questionsLayout.addView(instructionsTextView);
+        ThemeManager.applyToAdded(this, instructionsTextView);
 
         for (String question : questions) {
             Button questionButton = new Button(this);
@@ -125,6 +148,7 @@ public class WeatherInsightsActivity extends AppCompatActivity {
             questionButton.setTextSize(14);
             questionButton.setOnClickListener(v -> showAnswer(question));
             questionsLayout.addView(questionButton);
+            ThemeManager.applyToAdded(this, questionButton);
 
             // Add spacing between buttons
             View spacer = new View(this);
@@ -151,7 +175,7 @@ public class WeatherInsightsActivity extends AppCompatActivity {
         loadingDialog.show();
 
         // Generate answer asynchronously
-        LLMClient.generateWeatherAnswerAsync(weatherData, question, new LLMClient.WeatherAnswerCallback() {
+        LLMClient.generateWeatherAnswerAsync(weatherData, question, cancellationToken, new LLMClient.WeatherAnswerCallback() {
             @Override
             public void onAnswerGenerated(String answer) {
                 runOnUiThread(() -> {
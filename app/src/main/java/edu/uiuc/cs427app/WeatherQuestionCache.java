@@ -0,0 +1,67 @@
+package edu.uiuc.cs427app;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * In-memory cache of LLM-generated weather questions.
+ * Entries are keyed by the formatted weather data string that DetailsActivity
+ * hands to WeatherInsightsActivity, and hold either a finished result or a
+ * request that is still running, so a screen opened mid-prefetch joins the
+ * pending request instead of starting a second one.
+ */
+public class WeatherQuestionCache {
+    private static final int MAX_ENTRIES = 16;
+
+    private static final Map<String, CompletableFuture<String[]>> entries =
+            new LinkedHashMap<String, CompletableFuture<String[]>>(MAX_ENTRIES, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<String[]>> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            };
+
+    /**
+     * Returns the questions for this weather data if they are already generated.
+     *
+     * @param weatherData Formatted weather data string
+     * @return Cached questions, or null on a miss or while the request is still running
+     */
+    public static synchronized String[] peek(String weatherData) {
+        CompletableFuture<String[]> pending = entries.get(weatherData);
+        if (pending == null || !pending.isDone()) return null;
+        return pending.getNow(null);
+    }
+
+    /**
+     * Registers a new request for this weather data unless one already exists.
+     *
+     * @param weatherData Formatted weather data string
+     * @param pending     Future that the caller will complete
+     * @return The existing request if one was cached, otherwise {@code pending}
+     */
+    static synchronized CompletableFuture<String[]> claim(String weatherData, CompletableFuture<String[]> pending) {
+        CompletableFuture<String[]> existing = entries.get(weatherData);
+        if (existing != null) return existing;
+        entries.put(weatherData, pending);
+        return pending;
+    }
+
+    /**
+     * Drops a request, e.g. when generation failed and only fallback questions were produced.
+     *
+     * @param weatherData Formatted weather data string
+     * @param pending     The request to remove (ignored if a newer one replaced it)
+     */
+    static synchronized void remove(String weatherData, CompletableFuture<String[]> pending) {
+        entries.remove(weatherData, pending);
+    }
+
+    /**
+     * Clears all cached questions.
+     */
+    public static synchronized void clear() {
+        entries.clear();
+    }
+}
@@ -0,0 +1,173 @@
+package edu.uiuc.cs427app;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the session snapshot, session listeners and fast user switching of
+ * AuthenticationManager.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AuthenticationManagerSessionTest {
+
+    private AuthenticationManager authManager;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        authManager = AuthenticationManager.getInstance(context);
+        authManager.logout();
+    }
+
+    @Test
+    public void testListenersSeeLoginAndLogout() {
+        String username = "session_listener_" + System.nanoTime();
+        assertTrue(authManager.register(username, "password123", Theme.DARK));
+
+        List<String> changes = new ArrayList<>();
+        AuthenticationManager.SessionListener listener =
+                (previous, current) -> changes.add(previous.getUsername() + "->" + current.getUsername());
+        authManager.addSessionListener(listener);
+        try {
+            assertTrue(authManager.login(username, "password123"));
+            authManager.logout();
+            authManager.logout();
+        } finally {
+            authManager.removeSessionListener(listener);
+        }
+
+        assertEquals(List.of("null->" + username, username + "->null"), changes);
+    }
+
+    @Test
+    public void testCurrentUserIsACopy() {
+        String username = "session_copy_" + System.nanoTime();
+        authManager.register(username, "password123", Theme.DARK);
+        authManager.login(username, "password123");
+
+        authManager.getCurrentUser().setUsername("someone_else");
+
+        assertEquals(username, authManager.getCurrentUser().getUsername());
+        assertTrue(authManager.getSession().isFor(username));
+    }
+
+    @Test
+    public void testReadersNeverSeeTornSessions() throws Exception {
+        String dark = "session_dark_" + System.nanoTime();
+        String light = "session_light_" + System.nanoTime();
+        authManager.register(dark, "password123", Theme.DARK);
+        authManager.register(light, "password123", Theme.LIGHT);
+
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> torn = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                Session session = authManager.getSession();
+                if (session.isLoggedIn()
+                        && session.isFor(dark) != (session.getTheme() == Theme.DARK)) {
+                    torn.set(session.getUsername() + " with " + session.getTheme());
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 10; i++) {
+            authManager.login(i % 2 == 0 ? dark : light, "password123");
+            authManager.logout();
+        }
+        done.set(true);
+        reader.join();
+
+        assertNull(torn.get());
+    }
+
+    @Test
+    public void testSwitchToRecentUserSkipsLogin() {
+        String first = "switch_first_" + System.nanoTime();
+        String second = "switch_second_" + System.nanoTime();
+        authManager.register(first, "password123", Theme.DARK);
+        authManager.register(second, "password123", Theme.LIGHT);
+        assertTrue(authManager.login(first, "password123"));
+        assertTrue(authManager.login(second, "password123"));
+
+        List<String> changes = new ArrayList<>();
+        AuthenticationManager.SessionListener listener =
+                (previous, current) -> changes.add(previous.getUsername() + "->" + current.getUsername());
+        authManager.addSessionListener(listener);
+        try {
+            assertTrue(authManager.switchTo(first));
+        } finally {
+            authManager.removeSessionListener(listener);
+        }
+
+        assertTrue(authManager.getSession().isFor(first));
+        assertEquals(Theme.DARK, authManager.getSession().getTheme());
+        assertEquals(List.of(second + "->" + first), changes);
+        assertTrue(authManager.getRecentSessions().get(0).isFor(first));
+        assertTrue(authManager.getRecentSessions().get(1).isFor(second));
+        assertFalse(authManager.switchTo("never_logged_in_" + System.nanoTime()));
+    }
+
+    @Test
+    public void testWarmStateSurvivesSwitching() {
+        String first = "warm_first_" + System.nanoTime();
+        String second = "warm_second_" + System.nanoTime();
+        authManager.register(first, "password123", Theme.DARK);
+        authManager.register(second, "password123", Theme.LIGHT);
+        authManager.login(first, "password123");
+        WarmSession warm = authManager.getWarmSession(first);
+        warm.setCities(List.of(new City("Chicago", 41.88, -87.63, "US", "IL")));
+        warm.setTheme(CompiledTheme.of(ThemeSpec.defaultLight()));
+
+        authManager.login(second, "password123");
+        authManager.switchTo(first);
+
+        assertSame(warm, authManager.getWarmSession(first));
+        assertEquals("Chicago", warm.getCities().get(0).getName());
+        assertNotNull(warm.getTheme());
+    }
+
+    @Test
+    public void testOnlyTheMostRecentUsersStayWarm() {
+        List<String> usernames = new ArrayList<>();
+        for (int i = 0; i <= AuthenticationManager.MAX_RECENT_SESSIONS; i++) {
+            String username = "recent_" + i + "_" + System.nanoTime();
+            authManager.register(username, "password123", Theme.LIGHT);
+            authManager.login(username, "password123");
+            usernames.add(username);
+        }
+
+        assertEquals(AuthenticationManager.MAX_RECENT_SESSIONS, authManager.getRecentSessions().size());
+        assertNull(authManager.getWarmSession(usernames.get(0)));
+        assertFalse(authManager.switchTo(usernames.get(0)));
+        assertTrue(authManager.switchTo(usernames.get(1)));
+    }
+
+    @Test
+    public void testLogoutEndsFastSwitching() {
+        String stays = "logout_stays_" + System.nanoTime();
+        String leaves = "logout_leaves_" + System.nanoTime();
+        authManager.register(stays, "password123", Theme.LIGHT);
+        authManager.register(leaves, "password123", Theme.LIGHT);
+        authManager.login(stays, "password123");
+        authManager.login(leaves, "password123");
+
+        authManager.logout();
+
+        assertFalse(authManager.switchTo(leaves));
+        assertTrue(authManager.switchTo(stays));
+        assertEquals(stays, authManager.getCurrentUser().getUsername());
+    }
+}
@@ -0,0 +1,178 @@
+package edu.uiuc.cs427app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.when;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import org.junit.Test;
+import org.mockito.MockedStatic;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests size bucketing, budget trimming and decode-buffer reuse of BitmapPool.
+ */
+public class BitmapPoolTest {
+    private static final int MB = 1024 * 1024;
+
+    /**
+     * A decode should take the smallest pooled buffer that fits it.
+     */
+    @Test
+    public void testGetPicksSmallestFittingBuffer() {
+        BitmapPool pool = new BitmapPool(64L * MB);
+        Bitmap small = buffer(MB);
+        Bitmap large = buffer(3 * MB);
+        pool.put(large);
+        pool.put(small);
+
+        assertSame(large, pool.get(1024, 768, Bitmap.Config.RGB_565));
+        assertSame(small, pool.get(512, 512, Bitmap.Config.RGB_565));
+        assertNull(pool.get(512, 512, Bitmap.Config.RGB_565));
+        assertEquals(0, pool.getPooledBytes());
+    }
+
+    /**
+     * A buffer far larger than the decode should not be pinned for a small image.
+     */
+    @Test
+    public void testOversizedBufferIsNotReused() {
+        BitmapPool pool = new BitmapPool(64L * MB);
+        pool.put(buffer(8 * MB));
+
+        assertNull(pool.get(48, 48, Bitmap.Config.RGB_565));
+        assertEquals(1, pool.getMisses());
+    }
+
+    /**
+     * Only mutable software bitmaps can be decoded into.
+     */
+    @Test
+    public void testUnusableBitmapsAreIgnored() {
+        BitmapPool pool = new BitmapPool(64L * MB);
+        pool.put(bitmap(MB, false, Bitmap.Config.RGB_565));
+        pool.put(bitmap(MB, true, Bitmap.Config.HARDWARE));
+        pool.put(null);
+
+        assertEquals(0, pool.getPooledBytes());
+    }
+
+    /**
+     * Returning more than the budget should drop the oldest buffers first.
+     */
+    @Test
+    public void testTrimDropsOldestBuffers() {
+        BitmapPool pool = new BitmapPool(4L * MB);
+        Bitmap oldest = buffer(2 * MB);
+        Bitmap middle = buffer(2 * MB);
+        Bitmap newest = buffer(2 * MB);
+        pool.put(oldest);
+        pool.put(middle);
+        pool.put(newest);
+
+        assertEquals(4L * MB, pool.getPooledBytes());
+        assertSame(middle, pool.get(1024, 1024, Bitmap.Config.RGB_565));
+        assertSame(newest, pool.get(1024, 1024, Bitmap.Config.RGB_565));
+    }
+
+    /**
+     * Rapidly switching between cities should decode into the same few buffers rather
+     * than allocating a full-size pixel array per image.
+     */
+    @Test
+    public void testRapidCitySwitchingReusesBuffers() {
+        BitmapPool pool = new BitmapPool(16L * MB);
+        int[][] sizes = {{1080, 720}, {1080, 720}, {540, 360}};
+        int switches = 300;
+        long allocatedBytes = 0;
+        long unpooledBytes = 0;
+
+        for (int i = 0; i < switches; i++) {
+            int[] size = sizes[i % sizes.length];
+            int needed = size[0] * size[1] * BitmapPool.bytesPerPixel(Bitmap.Config.RGB_565);
+            unpooledBytes += needed;
+
+            Bitmap decoded = pool.get(size[0], size[1], Bitmap.Config.RGB_565);
+            if (decoded == null) {
+                decoded = buffer(needed);
+                allocatedBytes += needed;
+            }
+            Bitmap hardware = bitmap(needed, false, Bitmap.Config.HARDWARE);
+            when(decoded.copy(Bitmap.Config.HARDWARE, false)).thenReturn(hardware);
+
+            assertSame(hardware, pool.toDisplay(decoded));
+        }
+
+        long oneBufferPerSize = (1080L * 720 + 540L * 360) * BitmapPool.bytesPerPixel(Bitmap.Config.RGB_565);
+        assertTrue("Allocated " + allocatedBytes + " bytes", allocatedBytes <= oneBufferPerSize);
+        assertTrue("Only the first decode of each size should allocate", pool.getMisses() <= 2);
+        assertEquals(switches - pool.getMisses(), pool.getHits());
+        assertTrue(allocatedBytes * 100 < unpooledBytes);
+    }
+
+    /**
+     * A decode the pooled buffer cannot hold, such as a PNG with alpha decoded as
+     * ARGB_8888 despite the RGB_565 request, should fall back to a new bitmap and give
+     * the buffer back to the pool.
+     */
+    @Test
+    public void testDecodeThatDoesNotFitPooledBufferFallsBack() throws Exception {
+        BitmapPool pool = BitmapPool.getInstance();
+        pool.clear();
+        Bitmap pooled = buffer(100 * 100 * BitmapPool.bytesPerPixel(Bitmap.Config.RGB_565));
+        pool.put(pooled);
+        Bitmap decoded = buffer(100 * 100 * BitmapPool.bytesPerPixel(Bitmap.Config.ARGB_8888));
+        List<Integer> firstBytes = new ArrayList<>();
+
+        try (MockedStatic<BitmapFactory> factory = mockStatic(BitmapFactory.class)) {
+            factory.when(() -> BitmapFactory.decodeStream(any(InputStream.class), isNull(), any(BitmapFactory.Options.class)))
+                    .thenAnswer(invocation -> {
+                        InputStream in = invocation.getArgument(0);
+                        BitmapFactory.Options options = invocation.getArgument(2);
+                        firstBytes.add(in.read());
+                        if (options.inJustDecodeBounds) {
+                            options.outWidth = 100;
+                            options.outHeight = 100;
+                            return null;
+                        }
+                        if (options.inBitmap != null) {
+                            throw new IllegalArgumentException("Problem decoding into existing bitmap");
+                        }
+                        return decoded;
+                    });
+
+            InputStream in = new BufferedInputStream(new ByteArrayInputStream(new byte[]{7, 8, 9}));
+            assertSame(decoded, WeatherImageGenerator.decodeSampledBitmap(in, 0, 0));
+            assertEquals("Every decode should start from the first byte", List.of(7, 7, 7), firstBytes);
+            assertEquals("The rejected buffer should be back in the pool",
+                    pooled.getAllocationByteCount(), pool.getPooledBytes());
+        } finally {
+            pool.clear();
+        }
+    }
+
+    private static Bitmap buffer(int bytes) {
+        return bitmap(bytes, true, Bitmap.Config.RGB_565);
+    }
+
+    private static Bitmap bitmap(int bytes, boolean mutable, Bitmap.Config config) {
+        Bitmap bitmap = mock(Bitmap.class);
+        when(bitmap.getAllocationByteCount()).thenReturn(bytes);
+        when(bitmap.isMutable()).thenReturn(mutable);
+        when(bitmap.getConfig()).thenReturn(config);
+        return bitmap;
+    }
+}
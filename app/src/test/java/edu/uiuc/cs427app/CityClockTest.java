@@ -0,0 +1,102 @@
+package edu.uiuc.cs427app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Tests local time rendering of CityClock against java.time, including daylight saving
+ * transitions, and checks that a tick allocates nothing.
+ */
+public class CityClockTest {
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    /**
+     * Rendered times should match java.time formatting across zones.
+     */
+    @Test
+    public void testRenderMatchesJavaTime() {
+        long now = Instant.parse("2026-10-19T14:05:09Z").toEpochMilli();
+        for (String zone : new String[]{"America/Chicago", "Asia/Kolkata", "Pacific/Chatham", "UTC"}) {
+            assertEquals(zone, expected(zone, now), render(new CityClock(zone, 0), now));
+        }
+    }
+
+    /**
+     * The cached offset should be refreshed when the clock crosses a DST transition.
+     */
+    @Test
+    public void testRenderFollowsDaylightSavingTransition() {
+        CityClock clock = new CityClock("America/Chicago", 0);
+        // Clocks in Chicago jump from 02:00 CST to 03:00 CDT on 2026-03-08
+        long beforeJump = Instant.parse("2026-03-08T07:59:59Z").toEpochMilli();
+
+        assertEquals("01:59:59", render(clock, beforeJump));
+        assertEquals("03:00:00", render(clock, beforeJump + 1000));
+        assertEquals(-5 * 3600, clock.offsetSecondsAt(beforeJump + 1000));
+        // Going back in time must not reuse the newer offset
+        assertEquals("01:59:59", render(clock, beforeJump));
+    }
+
+    /**
+     * A missing or unknown zone name should fall back to the reported UTC offset.
+     */
+    @Test
+    public void testUnknownZoneUsesFallbackOffset() {
+        long now = Instant.parse("2026-10-19T23:30:00Z").toEpochMilli();
+
+        assertEquals("05:00:00", render(new CityClock("Not/AZone", 5 * 3600 + 1800), now));
+        assertEquals("18:30:00", render(new CityClock(null, -5 * 3600), now));
+        assertEquals(18, new CityClock(null, -5 * 3600).hourAt(now));
+    }
+
+    /**
+     * Times before the epoch should still render as a valid time of day.
+     */
+    @Test
+    public void testRenderBeforeEpoch() {
+        assertEquals("23:59:59", render(new CityClock("UTC", 0), -1000));
+    }
+
+    /**
+     * Once warmed up, ticking through a day of seconds should allocate nothing.
+     */
+    @Test
+    public void testTickIsAllocationFree() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        CityClock clock = new CityClock("America/Chicago", 0);
+        char[] text = new char[CityClock.TEXT_LENGTH];
+        long start = Instant.parse("2026-10-19T00:00:00Z").toEpochMilli();
+        for (int i = 0; i < 1000; i++) {
+            clock.render(start + i * 1000L, text, 0);
+        }
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 86_400; i++) {
+            clock.render(start + i * 1000L, text, 0);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertEquals("The last tick should show the last second of the day",
+                expected("America/Chicago", start + 86_399_000L), new String(text));
+        assertTrue("Ticks should not allocate (saw " + allocated + " bytes)", allocated < 1024);
+    }
+
+    private static String render(CityClock clock, long epochMillis) {
+        char[] text = new char[CityClock.TEXT_LENGTH];
+        clock.render(epochMillis, text, 0);
+        return new String(text);
+    }
+
+    private static String expected(String zone, long epochMillis) {
+        return FORMAT.format(ZonedDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.of(zone)));
+    }
+}
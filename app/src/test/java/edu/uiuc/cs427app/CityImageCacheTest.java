@@ -0,0 +1,127 @@
+package edu.uiuc.cs427app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests cache keys, condition buckets and LRU trimming of the disk tier of CityImageCache.
+ */
+public class CityImageCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Weather that only differs in ways the image does not show should share a bucket.
+     */
+    @Test
+    public void testConditionBucketGroupsSimilarWeather() {
+        assertEquals("rain", CityImageCache.conditionBucket(weather("Rain")));
+        assertEquals("rain", CityImageCache.conditionBucket(weather("Drizzle")));
+        assertEquals("rain", CityImageCache.conditionBucket(weather("Thunderstorm")));
+        assertEquals("snow", CityImageCache.conditionBucket(weather("Snow")));
+        assertEquals("clouds", CityImageCache.conditionBucket(weather("Clouds")));
+        assertEquals("clear", CityImageCache.conditionBucket(weather("Clear")));
+        assertEquals("mist", CityImageCache.conditionBucket(weather("Haze")));
+        assertEquals("generic", CityImageCache.conditionBucket(null));
+    }
+
+    /**
+     * Every bucket should offer all other library buckets as stand-ins, never itself.
+     */
+    @Test
+    public void testNearestBucketsCoverOtherFamilies() {
+        for (String bucket : new String[]{"rain", "snow", "clouds", "clear", "mist", "generic"}) {
+            List<String> nearest = Arrays.asList(CityImageCache.nearestBuckets(bucket));
+            assertFalse(nearest.contains(bucket));
+            for (String family : CityImageLibrary.CONDITION_FAMILIES) {
+                assertTrue(bucket + " should fall back to " + family,
+                        family.equals(bucket) || nearest.contains(family));
+            }
+        }
+        assertEquals("mist", CityImageCache.nearestBuckets("rain")[0]);
+    }
+
+    /**
+     * Keys should ignore case and whitespace in the city name but separate
+     * different conditions and times of day.
+     */
+    @Test
+    public void testKeyNormalizesCityName() {
+        String key = CityImageCache.key("Chicago", "rain", "night");
+        assertEquals(key, CityImageCache.key("  chicago ", "rain", "Night"));
+        assertNotEquals(key, CityImageCache.key("Chicago", "snow", "night"));
+        assertNotEquals(key, CityImageCache.key("Chicago", "rain", "daytime"));
+    }
+
+    /**
+     * File names are hex digests, so any city name maps to a safe file name.
+     */
+    @Test
+    public void testSha256HexIsFileSafe() {
+        String hex = CityImageCache.sha256Hex("São Paulo|rain/../night");
+        assertEquals(64, hex.length());
+        assertTrue(hex.matches("[0-9a-f]+"));
+    }
+
+    /**
+     * Trimming should delete the least recently used files first until the budget fits.
+     */
+    @Test
+    public void testTrimDirectoryEvictsLeastRecentlyUsed() throws IOException {
+        File dir = folder.newFolder("city_images");
+        File oldest = writeFile(dir, "a.webp", 400, 1_000);
+        File middle = writeFile(dir, "b.webp", 400, 2_000);
+        File newest = writeFile(dir, "c.webp", 400, 3_000);
+
+        CityImageCache.trimDirectory(dir, 1000);
+
+        assertFalse("Oldest entry should be evicted", oldest.exists());
+        assertTrue(middle.exists());
+        assertTrue(newest.exists());
+    }
+
+    /**
+     * A directory within budget should be left untouched.
+     */
+    @Test
+    public void testTrimDirectoryKeepsFilesWithinBudget() throws IOException {
+        File dir = folder.newFolder("city_images");
+        File a = writeFile(dir, "a.webp", 400, 1_000);
+        File b = writeFile(dir, "b.webp", 400, 2_000);
+
+        CityImageCache.trimDirectory(dir, 1000);
+
+        assertTrue(a.exists());
+        assertTrue(b.exists());
+    }
+
+    private static File writeFile(File dir, String name, int size, long lastModified) throws IOException {
+        File file = new File(dir, name);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[size]);
+        }
+        assertTrue(file.setLastModified(lastModified));
+        return file;
+    }
+
+    private static WeatherInfo weather(String main) {
+        WeatherSpecifics specifics = new WeatherSpecifics();
+        specifics.main = main;
+        WeatherInfo info = new WeatherInfo();
+        info.current = new WeatherInfo.WeatherCurrent();
+        info.current.weather = new WeatherSpecifics[]{specifics};
+        return info;
+    }
+}
@@ -0,0 +1,69 @@
+package edu.uiuc.cs427app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Tests the representative weather and content addressing of the precomputed city image library.
+ */
+public class CityImageLibraryTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * The representative weather of each family must land in the same cache bucket,
+     * so live weather of that family finds the library image.
+     */
+    @Test
+    public void testRepresentativeWeatherMatchesItsBucket() {
+        for (String family : CityImageLibrary.CONDITION_FAMILIES) {
+            assertEquals(family, CityImageCache.conditionBucket(CityImageLibrary.representativeWeather(family)));
+        }
+    }
+
+    /**
+     * Library prompts are stable for the same inputs and distinct across families and times of day.
+     */
+    @Test
+    public void testLibraryPromptsAreStableAndDistinct() {
+        Set<String> prompts = new HashSet<>();
+        for (String family : CityImageLibrary.CONDITION_FAMILIES) {
+            for (String timeOfDay : CityImageLibrary.TIMES_OF_DAY) {
+                String prompt = WeatherImageGenerator.libraryPrompt("Urbana", "", "", family, timeOfDay);
+                assertEquals(prompt, WeatherImageGenerator.libraryPrompt("Urbana", "", "", family, timeOfDay));
+                prompts.add(prompt);
+            }
+        }
+        assertEquals(CityImageLibrary.CONDITION_FAMILIES.length * CityImageLibrary.TIMES_OF_DAY.length,
+                prompts.size());
+    }
+
+    /**
+     * Entries are addressed by the SHA-256 of their prompt.
+     */
+    @Test
+    public void testEntriesAreAddressedByPromptHash() throws IOException {
+        File dir = folder.newFolder("library");
+        CityImageLibrary library = new CityImageLibrary(dir);
+        String prompt = WeatherImageGenerator.libraryPrompt("Urbana", "", "", "snow", "night");
+        assertFalse(library.contains(prompt));
+
+        try (FileOutputStream out = new FileOutputStream(new File(dir, CityImageCache.sha256Hex(prompt) + ".webp"))) {
+            out.write(new byte[]{1});
+        }
+
+        assertTrue(library.contains(prompt));
+        assertFalse(library.contains(WeatherImageGenerator.libraryPrompt("Urbana", "", "", "snow", "daytime")));
+    }
+}
@@ -0,0 +1,96 @@
+package edu.uiuc.cs427app;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import android.view.Choreographer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests listener dispatch and frame scheduling of the shared ClockTicker.
+ */
+public class ClockTickerTest {
+    private Choreographer choreographer;
+    private ClockTicker ticker;
+
+    @Before
+    public void setUp() {
+        choreographer = mock(Choreographer.class);
+        ticker = new ClockTicker(choreographer);
+    }
+
+    /**
+     * Many clocks should share one pending frame callback, posted for the next second.
+     */
+    @Test
+    public void testListenersShareOneFrameCallback() {
+        List<Long> ticks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ticker.add(ticks::add);
+        }
+
+        assertEquals(10, ticks.size());
+        verify(choreographer, times(1)).postFrameCallbackDelayed(eq(ticker), anyLong());
+    }
+
+    /**
+     * The ticker should stop posting frames once its last listener is removed.
+     */
+    @Test
+    public void testRemovingLastListenerCancelsFrame() {
+        ClockTicker.Listener listener = now -> { };
+        ticker.add(listener);
+        ticker.remove(listener);
+
+        assertEquals(0, ticker.listenerCount());
+        verify(choreographer).removeFrameCallback(ticker);
+    }
+
+    /**
+     * A listener that removes itself mid-tick must not stop the others from ticking.
+     */
+    @Test
+    public void testListenerCanRemoveItselfDuringTick() {
+        int[] counts = new int[3];
+        ClockTicker.Listener[] listeners = new ClockTicker.Listener[3];
+        listeners[0] = now -> counts[0]++;
+        listeners[1] = now -> {
+            counts[1]++;
+            if (now == 1_000) {
+                ticker.remove(listeners[1]);
+            }
+        };
+        listeners[2] = now -> counts[2]++;
+        for (ClockTicker.Listener listener : listeners) {
+            ticker.add(listener);
+        }
+        counts[0] = counts[1] = counts[2] = 0;
+
+        ticker.dispatch(1_000);
+        ticker.dispatch(2_000);
+
+        assertEquals(2, counts[0]);
+        assertEquals(1, counts[1]);
+        assertEquals(2, counts[2]);
+        assertEquals(2, ticker.listenerCount());
+    }
+
+    /**
+     * Ticks should be aligned to the start of the next whole second.
+     */
+    @Test
+    public void testDelayUntilNextSecond() {
+        assertEquals(1000, ClockTicker.delayUntilNextSecond(5_000));
+        assertEquals(1, ClockTicker.delayUntilNextSecond(5_999));
+        assertEquals(750, ClockTicker.delayUntilNextSecond(12_250));
+    }
+}
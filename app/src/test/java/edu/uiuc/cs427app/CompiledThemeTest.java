@@ -0,0 +1,62 @@
+package edu.uiuc.cs427app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * Tests color parsing, fallbacks and caching of CompiledTheme.
+ */
+public class CompiledThemeTest {
+
+    /**
+     * Six and eight digit hex colors should parse to ARGB ints.
+     */
+    @Test
+    public void testParseColor() {
+        assertEquals(0xFF1976D2, CompiledTheme.parseColor("#1976D2", 0));
+        assertEquals(0x801976D2, CompiledTheme.parseColor("#801976d2", 0));
+        assertEquals(7, CompiledTheme.parseColor("#12345", 7));
+        assertEquals(7, CompiledTheme.parseColor("#GGGGGG", 7));
+        assertEquals(7, CompiledTheme.parseColor("", 7));
+        assertEquals(7, CompiledTheme.parseColor(null, 7));
+    }
+
+    /**
+     * Missing optional colors should resolve to the same fallbacks ThemeManager used.
+     */
+    @Test
+    public void testFallbacksForMissingColors() {
+        ThemeSpec spec = ThemeSpec.defaultLight();
+        spec.textHex = null;
+        CompiledTheme theme = CompiledTheme.of(spec);
+
+        assertEquals(0xFF000000, theme.text);
+        assertEquals(0xFF111111, theme.buttonText);
+        assertEquals(0xFFFFFFFF, theme.title);
+        assertEquals(0xFF3D7DFF, theme.header);
+        assertEquals(0xFFDDDDDD, theme.border);
+        // Cards fall back to the secondary color
+        assertEquals(0xFFF5F5F5, theme.card);
+        assertEquals("", theme.emoji);
+    }
+
+    /**
+     * Equal specs should share one compiled theme, and different specs should not.
+     */
+    @Test
+    public void testCompiledThemesAreCachedBySpecValue() {
+        ThemeSpec a = ThemeSpec.fromJson("{\"background\":\"#101010\",\"text\":\"#EEEEEE\",\"emoji\":\"🌲\"}");
+        ThemeSpec b = ThemeSpec.fromJson(a.toJson());
+        ThemeSpec c = ThemeSpec.fromJson("{\"background\":\"#202020\",\"text\":\"#EEEEEE\"}");
+
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertNotEquals(a, c);
+        assertSame(CompiledTheme.of(a), CompiledTheme.of(b));
+        assertNotSame(CompiledTheme.of(a), CompiledTheme.of(c));
+    }
+}
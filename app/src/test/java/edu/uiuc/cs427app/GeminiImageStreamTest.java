@@ -0,0 +1,174 @@
+package edu.uiuc.cs427app;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+/**
+ * Tests streaming extraction of inlineData.data from Gemini image responses, and
+ * benchmarks its allocations against buffering the whole response.
+ */
+public class GeminiImageStreamTest {
+
+    /**
+     * The decoded stream should return exactly the image bytes, skipping text parts
+     * whose content mentions the same keys.
+     */
+    @Test
+    public void testExtractsInlineDataAfterTextPart() throws IOException {
+        byte[] image = randomBytes(100_000, 1);
+        String json = "{\"candidates\":[{\"content\":{\"parts\":["
+                + "{\"text\":\"Here is \\\"inlineData\\\": {\\\"data\\\": \\\"AAAA\\\"} for you\"},"
+                + "{\"inlineData\":{\"mimeType\":\"image/png\",\"data\":\""
+                + Base64.getEncoder().encodeToString(image) + "\"}}"
+                + "]}}]}";
+
+        assertArrayEquals(image, readAll(GeminiImageStream.open(stream(json))));
+    }
+
+    /**
+     * Escaped slashes and pretty-printed JSON should not corrupt the payload.
+     */
+    @Test
+    public void testHandlesEscapedSlashesAndWhitespace() throws IOException {
+        byte[] image = randomBytes(20_000, 2);
+        String b64 = Base64.getEncoder().encodeToString(image).replace("/", "\\/");
+        String json = "{\n  \"candidates\" : [ {\n    \"content\" : {\n      \"parts\" : [ {\n"
+                + "        \"inlineData\" : {\n          \"data\" : \"" + b64 + "\",\n"
+                + "          \"mimeType\" : \"image/png\"\n        }\n      } ]\n    }\n  } ]\n}";
+
+        assertArrayEquals(image, readAll(GeminiImageStream.open(stream(json))));
+    }
+
+    /**
+     * A "data" key outside inlineData is not the image.
+     */
+    @Test(expected = IOException.class)
+    public void testIgnoresDataOutsideInlineData() throws IOException {
+        String json = "{\"metadata\":{\"data\":\"AAAA\"},\"candidates\":[{\"content\":{\"parts\":["
+                + "{\"text\":\"no image today\"}]}}]}";
+        GeminiImageStream.open(stream(json));
+    }
+
+    /**
+     * Sample sizes are powers of two that keep the image at least as large as the view.
+     */
+    @Test
+    public void testInSampleSizeFitsTarget() {
+        assertEquals(1, WeatherImageGenerator.calculateInSampleSize(1024, 1024, 1080, 525));
+        assertEquals(2, WeatherImageGenerator.calculateInSampleSize(2048, 2048, 1000, 500));
+        assertEquals(4, WeatherImageGenerator.calculateInSampleSize(4096, 2304, 1000, 500));
+        assertEquals(1, WeatherImageGenerator.calculateInSampleSize(0, 0, 1080, 525));
+    }
+
+    /**
+     * Streaming a multi-megabyte response should allocate several times less than
+     * reading it into a String, parsing it and decoding the base64 into a byte array.
+     */
+    @Test
+    public void testStreamingAllocatesFarLessThanBuffering() throws Exception {
+        byte[] image = randomBytes(3 * 1024 * 1024, 3);
+        byte[] response = ("{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"A rainy street.\"},"
+                + "{\"inlineData\":{\"mimeType\":\"image/png\",\"data\":\""
+                + Base64.getEncoder().encodeToString(image) + "\"}}]}}]}")
+                .getBytes(StandardCharsets.UTF_8);
+
+        // Warm up both paths so the measurement is not dominated by class loading
+        bufferedDecode(response);
+        streamedDecode(response);
+
+        long buffered = allocatedBytes(() -> bufferedDecode(response));
+        long streamed = allocatedBytes(() -> streamedDecode(response));
+
+        assertTrue("Streaming should not hold the decoded image in memory (streamed " + streamed + ")",
+                streamed < image.length);
+        assertTrue("Streaming should allocate at least 4x less (buffered " + buffered
+                + ", streamed " + streamed + ")", streamed * 4 < buffered);
+    }
+
+    /**
+     * The previous pipeline: whole body to String, JSONObject, base64 String to byte[].
+     */
+    private static long bufferedDecode(byte[] response) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        try (BufferedReader br = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(response), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                sb.append(line);
+            }
+        }
+        JSONArray parts = new JSONObject(sb.toString()).getJSONArray("candidates")
+                .getJSONObject(0).getJSONObject("content").getJSONArray("parts");
+        for (int i = 0; i < parts.length(); i++) {
+            JSONObject inlineData = parts.getJSONObject(i).optJSONObject("inlineData");
+            if (inlineData != null) {
+                return Base64.getDecoder().decode(inlineData.getString("data")).length;
+            }
+        }
+        throw new IOException("No image");
+    }
+
+    /**
+     * The streaming pipeline, draining the decoded bytes as BitmapFactory would.
+     */
+    private static long streamedDecode(byte[] response) throws IOException {
+        long total = 0;
+        byte[] buf = new byte[16 * 1024];
+        try (InputStream in = GeminiImageStream.open(new ByteArrayInputStream(response))) {
+            int n;
+            while ((n = in.read(buf)) != -1) total += n;
+        }
+        return total;
+    }
+
+    private static long allocatedBytes(IoTask task) throws Exception {
+        com.sun.management.ThreadMXBean bean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        long before = bean.getThreadAllocatedBytes(id);
+        long result = task.run();
+        long after = bean.getThreadAllocatedBytes(id);
+        assertTrue(result > 0);
+        return after - before;
+    }
+
+    private interface IoTask {
+        long run() throws Exception;
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (InputStream is = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            int n;
+            while ((n = is.read(buf)) != -1) out.write(buf, 0, n);
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package edu.uiuc.cs427app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests for the token bucket shared by all Gemini traffic.
+ */
+public class GeminiRateLimiterTest {
+    private final AtomicLong clock = new AtomicLong();
+
+    /**
+     * A full bucket admits a burst up to its capacity, then tryAcquire refuses without waiting.
+     */
+    @Test
+    public void testTryAcquireStopsAtCapacity() {
+        GeminiRateLimiter limiter = new GeminiRateLimiter(3, 1.0, clock::get);
+
+        assertTrue(limiter.tryAcquire(LlmOperation.QUESTIONS));
+        assertTrue(limiter.tryAcquire(LlmOperation.QUESTIONS));
+        assertTrue(limiter.tryAcquire(LlmOperation.QUESTIONS));
+        assertFalse(limiter.tryAcquire(LlmOperation.QUESTIONS));
+
+        assertEquals(3, limiter.getAdmittedCount(LlmOperation.QUESTIONS));
+        assertEquals(1, limiter.getThrottledCount(LlmOperation.QUESTIONS));
+    }
+
+    /**
+     * Image requests cost more than text requests.
+     */
+    @Test
+    public void testImageWeightCostsMoreTokens() {
+        GeminiRateLimiter limiter = new GeminiRateLimiter(5, 1.0, clock::get);
+
+        assertTrue(limiter.tryAcquire(LlmOperation.IMAGE));
+        assertFalse("Second image should not fit", limiter.tryAcquire(LlmOperation.IMAGE));
+        assertTrue("A text request still fits", limiter.tryAcquire(LlmOperation.ANSWER));
+    }
+
+    /**
+     * Tokens come back over time.
+     */
+    @Test
+    public void testBucketRefillsOverTime() {
+        GeminiRateLimiter limiter = new GeminiRateLimiter(2, 1.0, clock::get);
+        limiter.tryAcquire(LlmOperation.THEME);
+        limiter.tryAcquire(LlmOperation.THEME);
+        assertFalse(limiter.tryAcquire(LlmOperation.THEME));
+
+        clock.addAndGet(1000);
+        assertTrue(limiter.tryAcquire(LlmOperation.THEME));
+    }
+
+    /**
+     * acquire throttles instead of waiting longer than allowed.
+     */
+    @Test
+    public void testAcquireThrottlesWhenWaitTooLong() {
+        GeminiRateLimiter limiter = new GeminiRateLimiter(1, 0.1, clock::get);
+        assertTrue(limiter.acquire(LlmOperation.ANSWER, 0));
+
+        long start = System.currentTimeMillis();
+        assertFalse(limiter.acquire(LlmOperation.ANSWER, 100));
+        assertTrue("Throttling should not block", System.currentTimeMillis() - start < 100);
+        assertEquals(1, limiter.getThrottledCount(LlmOperation.ANSWER));
+    }
+
+    /**
+     * acquire waits for the refill when the wait fits in its budget.
+     */
+    @Test(timeout = 5000)
+    public void testAcquireWaitsForRefill() {
+        GeminiRateLimiter limiter = new GeminiRateLimiter(1, 20.0, clock::get);
+        assertTrue(limiter.acquire(LlmOperation.ANSWER, 0));
+        assertTrue(limiter.acquire(LlmOperation.ANSWER, 1000));
+        assertEquals(2, limiter.getAdmittedCount(LlmOperation.ANSWER));
+    }
+
+    /**
+     * A request cancelled while waiting should stop waiting and give its tokens back.
+     */
+    @Test(timeout = 5000)
+    public void testCancelledWaitRefundsTokens() {
+        GeminiRateLimiter limiter = new GeminiRateLimiter(1, 1.0, clock::get);
+        assertTrue(limiter.acquire(LlmOperation.ANSWER, 0));
+        long cancelAt = System.currentTimeMillis() + 100;
+
+        long start = System.currentTimeMillis();
+        assertFalse(limiter.acquire(LlmOperation.ANSWER, 1000, () -> System.currentTimeMillis() >= cancelAt));
+        assertTrue("Cancellation should end the wait early", System.currentTimeMillis() - start < 500);
+        assertEquals(1, limiter.getAdmittedCount(LlmOperation.ANSWER));
+
+        clock.addAndGet(1000);
+        assertTrue("The refunded token should be available again", limiter.tryAcquire(LlmOperation.ANSWER));
+    }
+}
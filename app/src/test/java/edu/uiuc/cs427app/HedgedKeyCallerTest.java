@@ -0,0 +1,369 @@
+package edu.uiuc.cs427app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests hedging, failover and circuit breaking across the primary and backup keys
+ * against a local fake Gemini server.
+ */
+public class HedgedKeyCallerTest {
+    private static final String PRIMARY = "primary-key";
+    private static final String BACKUP = "backup-key";
+
+    private FakeGeminiServer server;
+    private ListeningExecutorService executor;
+    private final AtomicLong clock = new AtomicLong();
+
+    @Before
+    public void setUp() throws IOException {
+        server = new FakeGeminiServer();
+        executor = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
+        GeminiRateLimiter.setInstance(new GeminiRateLimiter(1000, 1000.0, clock::get));
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+        executor.shutdownNow();
+        GeminiRateLimiter.setInstance(null);
+    }
+
+    /**
+     * A fast primary key should answer alone, without a hedged backup request.
+     */
+    @Test(timeout = 10000)
+    public void testFastPrimaryWinsWithoutHedging() {
+        HedgedKeyCaller caller = newCaller(2000);
+        warmUp(caller, 50);
+
+        String result = caller.call(this::send, request(5000));
+
+        assertEquals("answer from " + PRIMARY, result);
+        assertEquals("Backup should not be called", 0, server.hits(BACKUP));
+    }
+
+    /**
+     * A primary slower than its p95 should be hedged, and the backup should win.
+     */
+    @Test(timeout = 10000)
+    public void testSlowPrimaryIsHedgedWithBackup() {
+        HedgedKeyCaller caller = newCaller(2000);
+        warmUp(caller, 50);
+        server.delay(PRIMARY, 3000);
+
+        long start = System.currentTimeMillis();
+        String result = caller.call(this::send, request(5000));
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals("answer from " + BACKUP, result);
+        assertTrue("Hedged call should not wait for the slow primary (took " + elapsed + "ms)", elapsed < 2000);
+    }
+
+    /**
+     * Attempts that lose the race or miss the deadline should still feed their key's
+     * latency window, so a slow key's p95 keeps reflecting how slow it is.
+     */
+    @Test(timeout = 10000)
+    public void testUnfinishedAttemptsRecordLatency() {
+        LatencyTracker primaryLatency = new LatencyTracker(20, 2000);
+        HedgedKeyCaller caller = new HedgedKeyCaller(
+                new HedgedKeyCaller.Key("PRIMARY", PRIMARY,
+                        new KeyCircuitBreaker(3, 30_000, clock::get), primaryLatency),
+                new HedgedKeyCaller.Key("BACKUP", BACKUP,
+                        new KeyCircuitBreaker(3, 30_000, clock::get), new LatencyTracker(20, 2000)));
+        warmUp(caller, 50);
+
+        // Hedged after ~50ms, the backup wins at ~650ms while the primary is still running
+        server.delay(PRIMARY, 3000);
+        server.delay(BACKUP, 600);
+        assertEquals("answer from " + BACKUP, caller.call(this::send, request(5000)));
+        long afterLoss = primaryLatency.percentile(1.0);
+        assertTrue("Losing primary should record at least the winner's time (was " + afterLoss + "ms)",
+                afterLoss >= 600);
+
+        // Neither key answers, so both run until the deadline
+        server.delay(BACKUP, 3000);
+        assertNull(caller.call(this::send, request(800)));
+        long afterDeadline = primaryLatency.percentile(1.0);
+        assertTrue("Missed deadline should record at least the budget (was " + afterDeadline + "ms)",
+                afterDeadline >= 750);
+    }
+
+    /**
+     * A hedge is extra Gemini traffic: it should take a token, and be skipped when the
+     * shared budget is spent.
+     */
+    @Test(timeout = 10000)
+    public void testHedgeIsChargedToRateLimiter() {
+        HedgedKeyCaller caller = newCaller(2000);
+        warmUp(caller, 50);
+        server.delay(PRIMARY, 1000);
+        GeminiRateLimiter limiter = new GeminiRateLimiter(1, 0.001, clock::get);
+        GeminiRateLimiter.setInstance(limiter);
+
+        assertEquals("answer from " + BACKUP, caller.call(this::send, request(5000)));
+        assertEquals(1, limiter.getAdmittedCount(LlmOperation.ANSWER));
+
+        int backupHits = server.hits(BACKUP);
+        assertEquals("answer from " + PRIMARY, caller.call(this::send, request(5000)));
+        assertEquals("No hedge without budget", backupHits, server.hits(BACKUP));
+        assertEquals(1, limiter.getThrottledCount(LlmOperation.ANSWER));
+    }
+
+    /**
+     * A failing primary should fail over to the backup immediately, not after the timeout.
+     */
+    @Test(timeout = 10000)
+    public void testPrimaryErrorFailsOverImmediately() {
+        HedgedKeyCaller caller = newCaller(2000);
+        server.status(PRIMARY, 503);
+
+        long start = System.currentTimeMillis();
+        String result = caller.call(this::send, request(5000));
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals("answer from " + BACKUP, result);
+        assertTrue("Failover should not wait for the hedge delay (took " + elapsed + "ms)", elapsed < 1500);
+    }
+
+    /**
+     * Repeated primary failures should open its breaker; after the open period a single
+     * half-open trial should close it again once the primary has recovered.
+     */
+    @Test(timeout = 10000)
+    public void testBreakerOpensAndRecoversThroughHalfOpen() {
+        KeyCircuitBreaker primaryBreaker = new KeyCircuitBreaker(2, 30_000, clock::get);
+        HedgedKeyCaller caller = new HedgedKeyCaller(
+                new HedgedKeyCaller.Key("PRIMARY", PRIMARY, primaryBreaker, new LatencyTracker(10, 2000)),
+                new HedgedKeyCaller.Key("BACKUP", BACKUP));
+        server.status(PRIMARY, 503);
+
+        caller.call(this::send, request(5000));
+        caller.call(this::send, request(5000));
+        assertEquals(KeyCircuitBreaker.State.OPEN, primaryBreaker.getState());
+
+        int primaryHits = server.hits(PRIMARY);
+        assertEquals("answer from " + BACKUP, caller.call(this::send, request(5000)));
+        assertEquals("Open breaker should skip the primary", primaryHits, server.hits(PRIMARY));
+
+        server.status(PRIMARY, 200);
+        clock.addAndGet(30_000);
+        assertEquals("answer from " + PRIMARY, caller.call(this::send, request(5000)));
+        assertEquals(KeyCircuitBreaker.State.CLOSED, primaryBreaker.getState());
+    }
+
+    /**
+     * When both keys fail the caller should give up and return null.
+     */
+    @Test(timeout = 10000)
+    public void testBothKeysFailingReturnsNull() {
+        HedgedKeyCaller caller = newCaller(2000);
+        server.status(PRIMARY, 500);
+        server.status(BACKUP, 429);
+
+        assertNull(caller.call(this::send, request(5000)));
+    }
+
+    /**
+     * Cancelling the token should abandon the call and cancel the Gemini request,
+     * without counting as a key failure.
+     */
+    @Test(timeout = 10000)
+    public void testCancellationAbandonsCall() {
+        KeyCircuitBreaker primaryBreaker = new KeyCircuitBreaker(1, 30_000, clock::get);
+        HedgedKeyCaller caller = new HedgedKeyCaller(
+                new HedgedKeyCaller.Key("PRIMARY", PRIMARY, primaryBreaker, new LatencyTracker(10, 5000)),
+                new HedgedKeyCaller.Key("BACKUP", ""));
+        server.delay(PRIMARY, 3000);
+
+        CancellationToken token = new CancellationToken();
+        AtomicReference<ListenableFuture<String>> sent = new AtomicReference<>();
+        new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException ignored) {
+            }
+            token.cancel();
+        }).start();
+
+        long start = System.currentTimeMillis();
+        String result = caller.call(apiKey -> {
+            ListenableFuture<String> future = send(apiKey);
+            sent.set(future);
+            return future;
+        }, new LlmRequest(LlmOperation.ANSWER, 5000, token));
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertNull(result);
+        assertTrue("Cancelled call should return promptly (took " + elapsed + "ms)", elapsed < 1500);
+        assertTrue("Underlying request should be cancelled", sent.get().isCancelled());
+        assertEquals(KeyCircuitBreaker.State.CLOSED, primaryBreaker.getState());
+    }
+
+    /**
+     * A request past its deadline should give up instead of waiting for the slow key,
+     * and cancel the requests it abandons.
+     */
+    @Test(timeout = 10000)
+    public void testDeadlineBoundsCall() {
+        HedgedKeyCaller caller = newCaller(2000);
+        server.delay(PRIMARY, 3000);
+        server.delay(BACKUP, 3000);
+        List<ListenableFuture<String>> sent = new CopyOnWriteArrayList<>();
+
+        long start = System.currentTimeMillis();
+        assertNull(caller.call(apiKey -> {
+            ListenableFuture<String> future = send(apiKey);
+            sent.add(future);
+            return future;
+        }, request(500)));
+        assertTrue(System.currentTimeMillis() - start < 1500);
+
+        assertFalse(sent.isEmpty());
+        for (ListenableFuture<String> future : sent) {
+            assertTrue("Abandoned request should be cancelled", future.isCancelled());
+        }
+    }
+
+    private HedgedKeyCaller newCaller(long defaultLatencyMs) {
+        return new HedgedKeyCaller(
+                new HedgedKeyCaller.Key("PRIMARY", PRIMARY,
+                        new KeyCircuitBreaker(3, 30_000, clock::get), new LatencyTracker(20, defaultLatencyMs)),
+                new HedgedKeyCaller.Key("BACKUP", BACKUP,
+                        new KeyCircuitBreaker(3, 30_000, clock::get), new LatencyTracker(20, defaultLatencyMs)));
+    }
+
+    private static LlmRequest request(long budgetMs) {
+        return new LlmRequest(LlmOperation.ANSWER, budgetMs, new CancellationToken());
+    }
+
+    /**
+     * Records fast primary responses so the p95 hedge delay reflects the fake server.
+     */
+    private void warmUp(HedgedKeyCaller caller, long latencyMs) {
+        server.delay(PRIMARY, latencyMs);
+        for (int i = 0; i < 10; i++) {
+            caller.call(this::send, request(5000));
+        }
+        server.delay(PRIMARY, 0);
+    }
+
+    private ListenableFuture<String> send(String apiKey) {
+        return executor.submit(() -> {
+            URL url = new URL(server.baseUrl() + "/v1beta/models/gemini:generateContent?key=" + apiKey);
+            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+            conn.setRequestMethod("POST");
+            conn.setDoOutput(true);
+            try (OutputStream os = conn.getOutputStream()) {
+                os.write("{\"contents\":[{\"parts\":[{\"text\":\"hi\"}]}]}".getBytes(StandardCharsets.UTF_8));
+            }
+            if (conn.getResponseCode() != 200) {
+                throw new IOException("HTTP " + conn.getResponseCode());
+            }
+            String body = readAll(conn.getInputStream());
+            return new JSONObject(body).getJSONArray("candidates").getJSONObject(0)
+                    .getJSONObject("content").getJSONArray("parts").getJSONObject(0).getString("text");
+        });
+    }
+
+    private static String readAll(InputStream is) throws IOException {
+        try (InputStream in = is) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            int n;
+            while ((n = in.read(buf)) != -1) out.write(buf, 0, n);
+            return out.toString(StandardCharsets.UTF_8.name());
+        }
+    }
+
+    /**
+     * Minimal stand-in for the Gemini generateContent endpoint with per-key latency and status.
+     */
+    private static class FakeGeminiServer {
+        private final HttpServer http;
+        private final Map<String, Long> delays = new ConcurrentHashMap<>();
+        private final Map<String, Integer> statuses = new ConcurrentHashMap<>();
+        private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+
+        FakeGeminiServer() throws IOException {
+            http = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            http.setExecutor(Executors.newCachedThreadPool());
+            http.createContext("/", this::handle);
+            http.start();
+        }
+
+        String baseUrl() {
+            return "http://127.0.0.1:" + http.getAddress().getPort();
+        }
+
+        void delay(String key, long ms) {
+            delays.put(key, ms);
+        }
+
+        void status(String key, int code) {
+            statuses.put(key, code);
+        }
+
+        int hits(String key) {
+            AtomicInteger count = hits.get(key);
+            return count == null ? 0 : count.get();
+        }
+
+        void stop() {
+            http.stop(0);
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            String query = exchange.getRequestURI().getQuery();
+            String key = query.substring(query.indexOf("key=") + 4);
+            hits.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+            readAll(exchange.getRequestBody());
+
+            try {
+                Thread.sleep(delays.getOrDefault(key, 0L));
+            } catch (InterruptedException ignored) {
+            }
+
+            int code = statuses.getOrDefault(key, 200);
+            String body = code == 200
+                    ? "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"answer from " + key + "\"}]}}]}"
+                    : "{\"error\":{\"code\":" + code + "}}";
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(code, bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package edu.uiuc.cs427app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.util.concurrent.SettableFuture;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Tests that LLMClient gives up on a request at its deadline and cancels the backend
+ * calls it was waiting on.
+ */
+public class LLMClientDeadlineTest {
+    // Backend calls that never answer, so only the deadline can end the request
+    private final List<SettableFuture<String>> sent = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() {
+        LLMClient.useBackend((apiKey, prompt) -> {
+            SettableFuture<String> future = SettableFuture.create();
+            sent.add(future);
+            return future;
+        }, "hanging-primary", "hanging-backup");
+        GeminiRateLimiter.setInstance(new GeminiRateLimiter(Integer.MAX_VALUE, 1_000_000, System::currentTimeMillis));
+    }
+
+    @After
+    public void tearDown() {
+        LLMClient.resetBackend();
+        GeminiRateLimiter.setInstance(null);
+    }
+
+    /**
+     * An expired deadline should return the fallback answer and cancel every backend call.
+     */
+    @Test(timeout = 10000)
+    public void testExpiredDeadlineCancelsBackendCalls() {
+        long start = System.currentTimeMillis();
+        String answer = LLMClient.generateWeatherAnswer("Temperature: 50°F", "What should I wear today?",
+                new LlmRequest(LlmOperation.ANSWER, 300, new CancellationToken()));
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals("Unable to generate answer at this time. Please try again later.", answer);
+        assertTrue("Call should end at its deadline (took " + elapsed + "ms)", elapsed < 2000);
+        assertFalse(sent.isEmpty());
+        for (SettableFuture<String> future : sent) {
+            assertTrue("Backend call should be cancelled", future.isCancelled());
+        }
+    }
+}
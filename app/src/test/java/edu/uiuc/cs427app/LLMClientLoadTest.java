@@ -0,0 +1,129 @@
+package edu.uiuc.cs427app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Offline load harness for the weather insights flow.
+ * <p>
+ * Runs thousands of concurrent requests through LLMClient's real worker pool, rate
+ * limiter, question cache and primary/backup failover, backed by a deterministic
+ * {@link StubLlmBackend} instead of Gemini, and checks p50/p99 latency and throughput.
+ */
+public class LLMClientLoadTest {
+    private static final String PRIMARY = "stub-primary";
+    private static final String BACKUP = "stub-backup";
+    private static final int ANSWER_CALLS = 2000;
+    private static final int QUESTION_CALLS = 1000;
+    private static final int DISTINCT_WEATHER = 10;
+    private static final long STUB_BASE_LATENCY_MS = 10;
+
+    private StubLlmBackend stub;
+
+    @Before
+    public void setUp() {
+        stub = new StubLlmBackend(STUB_BASE_LATENCY_MS, 20, 42);
+        stub.setFailureRate(PRIMARY, 0.05);
+        LLMClient.useBackend(stub, PRIMARY, BACKUP);
+        // Load tests measure the client, not the on-device quota
+        GeminiRateLimiter.setInstance(new GeminiRateLimiter(Integer.MAX_VALUE, 1_000_000, System::currentTimeMillis));
+    }
+
+    @After
+    public void tearDown() {
+        LLMClient.resetBackend();
+        GeminiRateLimiter.setInstance(null);
+    }
+
+    /**
+     * Fires thousands of concurrent answer requests with injected primary-key failures.
+     * Every call should produce a real answer via the primary or the backup key.
+     */
+    @Test(timeout = 120000)
+    public void testConcurrentWeatherAnswers() throws InterruptedException {
+        long[] latenciesNs = new long[ANSWER_CALLS];
+        AtomicInteger answered = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(ANSWER_CALLS);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ANSWER_CALLS; i++) {
+            final int index = i;
+            final long submitted = System.nanoTime();
+            LLMClient.generateWeatherAnswerAsync(weatherData(i % DISTINCT_WEATHER), "What should I wear today?",
+                    answer -> {
+                        latenciesNs[index] = System.nanoTime() - submitted;
+                        if (answer.startsWith("Dress in layers")) {
+                            answered.incrementAndGet();
+                        }
+                        latch.countDown();
+                    });
+        }
+        assertTrue("All calls should complete", latch.await(110, TimeUnit.SECONDS));
+        long elapsedNs = System.nanoTime() - start;
+
+        assertLoadHandled("generateWeatherAnswer", latenciesNs, elapsedNs, 110_000);
+        assertEquals("Failover should turn every call into an answer", ANSWER_CALLS, answered.get());
+    }
+
+    /**
+     * Concurrent question requests for the same weather should share one backend call
+     * per distinct weather string through the question cache.
+     */
+    @Test(timeout = 60000)
+    public void testQuestionRequestsShareCache() throws InterruptedException {
+        long[] latenciesNs = new long[QUESTION_CALLS];
+        CountDownLatch latch = new CountDownLatch(QUESTION_CALLS);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < QUESTION_CALLS; i++) {
+            final int index = i;
+            final long submitted = System.nanoTime();
+            LLMClient.generateWeatherQuestionsAsync(weatherData(i % DISTINCT_WEATHER), questions -> {
+                latenciesNs[index] = System.nanoTime() - submitted;
+                latch.countDown();
+            });
+        }
+        assertTrue("All calls should complete", latch.await(50, TimeUnit.SECONDS));
+        long elapsedNs = System.nanoTime() - start;
+
+        assertLoadHandled("generateWeatherQuestions", latenciesNs, elapsedNs, 50_000);
+        assertTrue("Cache should collapse duplicate requests (backend saw " + stub.getRequestCount() + ")",
+                stub.getRequestCount() <= DISTINCT_WEATHER * 3);
+    }
+
+    private static String weatherData(int variant) {
+        return "Temperature: " + (40 + variant * 5) + "°F\n"
+                + "Humidity: 60%\n"
+                + "Wind Speed: 8 mph\n"
+                + "Conditions: scattered clouds";
+    }
+
+    /**
+     * Checks that every call finished within the wait budget and that the worker pool ran
+     * calls in parallel, i.e. beat one worker calling the stub serially.
+     */
+    private static void assertLoadHandled(String name, long[] latenciesNs, long elapsedNs, long budgetMs) {
+        long[] sorted = latenciesNs.clone();
+        Arrays.sort(sorted);
+        double p50 = sorted[sorted.length / 2] / 1e6;
+        double p99 = sorted[(int) Math.ceil(sorted.length * 0.99) - 1] / 1e6;
+        double throughput = sorted.length / (elapsedNs / 1e9);
+        double serialThroughput = 1000.0 / STUB_BASE_LATENCY_MS;
+        String stats = String.format(Locale.US, "%s: p50 %.1f ms, p99 %.1f ms, %.0f calls/s",
+                name, p50, p99, throughput);
+
+        assertTrue(stats, p50 > 0 && p50 <= p99);
+        assertTrue(stats, p99 < budgetMs);
+        assertTrue(stats, throughput > serialThroughput);
+    }
+}
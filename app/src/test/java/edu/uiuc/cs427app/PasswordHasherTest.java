@@ -0,0 +1,106 @@
+package edu.uiuc.cs427app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the PBKDF2 hash format, legacy hash upgrades and cost calibration of PasswordHasher.
+ */
+public class PasswordHasherTest {
+    // Cheap cost so the tests run fast; the format does not depend on it
+    private final PasswordHasher hasher = new PasswordHasher(1_000);
+
+    /**
+     * A hash should verify its own password only, and record its scheme and cost.
+     */
+    @Test
+    public void testHashRoundTrip() {
+        String stored = hasher.hash("password123");
+
+        assertTrue(stored.startsWith("$pbkdf2-sha256$1000$"));
+        assertTrue(hasher.verify("password123", stored));
+        assertFalse(hasher.verify("password124", stored));
+        assertFalse(hasher.verify(null, stored));
+    }
+
+    /**
+     * The same password should hash differently each time, thanks to the salt.
+     */
+    @Test
+    public void testHashesAreSalted() {
+        String first = hasher.hash("password123");
+        String second = hasher.hash("password123");
+
+        assertNotEquals(first, second);
+        assertTrue(hasher.verify("password123", second));
+    }
+
+    /**
+     * Hashes are checked with the cost they were made with, not the current one.
+     */
+    @Test
+    public void testVerifiesHashesOfOtherCosts() {
+        String cheap = new PasswordHasher(500).hash("password123");
+
+        assertTrue(hasher.verify("password123", cheap));
+        assertTrue(hasher.needsRehash(cheap));
+        assertFalse(hasher.needsRehash(hasher.hash("password123")));
+        assertFalse(new PasswordHasher(500).needsRehash(hasher.hash("password123")));
+    }
+
+    /**
+     * Unsalted SHA-256 hashes from before should still log users in, then be upgraded.
+     */
+    @Test
+    public void testLegacyHashesVerifyAndNeedRehash() {
+        String legacy = "ef92b778bafe771e89245b89ecbc08a44a4e166c06659911881f383d4473e94f";
+        assertEquals(legacy, PasswordHasher.legacyHash("password123"));
+
+        assertTrue(hasher.verify("password123", legacy));
+        assertFalse(hasher.verify("password124", legacy));
+        assertTrue(hasher.needsRehash(legacy));
+    }
+
+    /**
+     * Malformed or tampered hashes should fail without throwing.
+     */
+    @Test
+    public void testMalformedHashesFail() {
+        String stored = hasher.hash("password123");
+        String tampered = stored.substring(0, stored.length() - 2) + (stored.endsWith("AA") ? "BB" : "AA");
+
+        assertFalse(hasher.verify("password123", tampered));
+        assertFalse(hasher.verify("password123", "$pbkdf2-sha256$abc$salt$hash"));
+        assertFalse(hasher.verify("password123", "$bcrypt$10$salt$hash"));
+        assertFalse(hasher.verify("password123", "$pbkdf2-sha256$0$AAAA$AAAA"));
+        assertTrue(hasher.needsRehash("$pbkdf2-sha256$abc$salt$hash"));
+    }
+
+    /**
+     * Calibration should pick a cost near the time budget on this machine.
+     */
+    @Test
+    public void testCalibrationMeetsBudget() {
+        int iterations = PasswordHasher.calibrate(PasswordHasher.TARGET_MS);
+        assertTrue(iterations >= PasswordHasher.MIN_ITERATIONS);
+        assertTrue(iterations <= PasswordHasher.MAX_ITERATIONS);
+        assertEquals(0, iterations % 1000);
+
+        PasswordHasher calibrated = new PasswordHasher(iterations);
+        String stored = calibrated.hash("password123");
+        long start = System.nanoTime();
+        assertTrue(calibrated.verify("password123", stored));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(stored.startsWith("$pbkdf2-sha256$" + iterations + "$"));
+        assertFalse(calibrated.needsRehash(stored));
+        // Loose bound: shared CI machines are noisy, and slow ones hit the minimum cost
+        if (iterations > PasswordHasher.MIN_ITERATIONS) {
+            assertTrue("Verify took " + elapsedMs + " ms", elapsedMs < PasswordHasher.TARGET_MS * 5);
+        }
+    }
+}
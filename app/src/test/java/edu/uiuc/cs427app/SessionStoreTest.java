@@ -0,0 +1,130 @@
+package edu.uiuc.cs427app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Tests the binary session record of SessionStore, and benchmarks restoring a session
+ * from it against decoding the Gson user JSON that was stored before.
+ */
+public class SessionStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // Keeps the benchmark loops from being optimized away
+    private static long sink;
+
+    private File file;
+    private SessionStore store;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), "session.bin");
+        store = new SessionStore(file);
+    }
+
+    /**
+     * A written session should read back with its id, name and theme, and nothing secret.
+     */
+    @Test
+    public void testRoundTrip() {
+        User user = new User("7", "alice", "$pbkdf2-sha256$1000$salt$hash", Theme.DARK);
+        user.setThemeJson("{\"background\":\"#101010\"}");
+
+        assertTrue(store.write(user));
+        User restored = store.read();
+
+        assertEquals("7", restored.getUserId());
+        assertEquals("alice", restored.getUsername());
+        assertEquals(Theme.DARK, restored.getTheme());
+        assertNull("The password hash stays in the database", restored.getPasswordHash());
+        assertNull(restored.getThemeJson());
+        assertFalse("No temporary file is left behind", new File(file.getPath() + ".tmp").exists());
+    }
+
+    /**
+     * Missing fields should round trip as null.
+     */
+    @Test
+    public void testRoundTripWithoutIdOrTheme() {
+        store.write(new User(null, "bob", null, null));
+        User restored = store.read();
+
+        assertEquals("bob", restored.getUsername());
+        assertNull(restored.getUserId());
+        assertNull(restored.getTheme());
+    }
+
+    /**
+     * A missing, cleared, truncated or foreign file should mean nobody is logged in.
+     */
+    @Test
+    public void testUnreadableSessionsAreIgnored() throws Exception {
+        assertNull(store.read());
+
+        store.write(new User("7", "alice", null, Theme.LIGHT));
+        store.clear();
+        assertNull(store.read());
+
+        byte[] record = SessionStore.encode(new User("7", "alice", null, Theme.LIGHT));
+        Files.write(file.toPath(), Arrays.copyOf(record, record.length - 3));
+        assertNull(store.read());
+
+        Files.write(file.toPath(), "{\"username\":\"alice\"}".getBytes());
+        assertNull(store.read());
+    }
+
+    /**
+     * Restoring from the binary record should beat decoding the old Gson user JSON.
+     */
+    @Test
+    public void testRestoreBenchmark() {
+        User user = new User("7", "alice", new PasswordHasher(1_000).hash("password123"), Theme.DARK);
+        user.setThemeJson(ThemeCatalog.getInstance().bestMatch("dark forest").toJson());
+        Gson gson = new Gson();
+        String legacyJson = gson.toJson(user);
+        byte[] record = SessionStore.encode(user);
+
+        // First decode in this JVM, as on a cold start
+        long start = System.nanoTime();
+        sink += gson.fromJson(legacyJson, User.class).getUsername().length();
+        long gsonColdUs = (System.nanoTime() - start) / 1000;
+        start = System.nanoTime();
+        sink += SessionStore.decode(record).getUsername().length();
+        long binaryColdUs = (System.nanoTime() - start) / 1000;
+
+        for (int i = 0; i < 2_000; i++) {
+            sink += gson.fromJson(legacyJson, User.class).getUsername().length();
+            sink += SessionStore.decode(record).getUsername().length();
+        }
+
+        int rounds = 20_000;
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) sink += gson.fromJson(legacyJson, User.class).getUsername().length();
+        long gsonNs = (System.nanoTime() - start) / rounds;
+
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) sink += SessionStore.decode(record).getUsername().length();
+        long binaryNs = (System.nanoTime() - start) / rounds;
+
+        assertTrue(sink > 0);
+        assertTrue("Binary record should be smaller (" + record.length + " bytes vs "
+                + legacyJson.length() + " chars)", record.length < legacyJson.length());
+        assertTrue("Binary restore should be faster (Gson cold " + gsonColdUs + " us, warm " + gsonNs
+                + " ns; binary cold " + binaryColdUs + " us, warm " + binaryNs + " ns)", binaryNs < gsonNs);
+    }
+}
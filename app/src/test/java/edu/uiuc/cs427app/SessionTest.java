@@ -0,0 +1,57 @@
+package edu.uiuc.cs427app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests that Session snapshots are isolated from the users they are made from and given out as.
+ */
+public class SessionTest {
+
+    /**
+     * Changing the user a session was made from, or a user it handed out, should not change it.
+     */
+    @Test
+    public void testSnapshotIsIsolatedFromUsers() {
+        User user = new User("7", "alice", "hash", Theme.DARK);
+        Session session = Session.of(user);
+
+        user.setUsername("mallory");
+        User copy = session.toUser();
+        copy.setTheme(Theme.LIGHT);
+
+        assertEquals("alice", session.getUsername());
+        assertEquals(Theme.DARK, session.getTheme());
+        assertNotSame(copy, session.toUser());
+        assertEquals("hash", session.toUser().getPasswordHash());
+    }
+
+    /**
+     * Updates should return new snapshots and leave the original as it was.
+     */
+    @Test
+    public void testWithMethodsCopy() {
+        Session session = Session.of(new User("7", "alice", "old", Theme.LIGHT));
+        Session updated = session.withPasswordHash("new").withThemeJson("{}");
+
+        assertEquals("old", session.toUser().getPasswordHash());
+        assertNull(session.toUser().getThemeJson());
+        assertEquals("new", updated.toUser().getPasswordHash());
+        assertEquals("{}", updated.toUser().getThemeJson());
+        assertTrue(updated.isFor("alice"));
+    }
+
+    @Test
+    public void testLoggedOut() {
+        assertSame(Session.LOGGED_OUT, Session.of(null));
+        assertFalse(Session.LOGGED_OUT.isLoggedIn());
+        assertFalse(Session.LOGGED_OUT.isFor(null));
+        assertNull(Session.LOGGED_OUT.toUser());
+    }
+}
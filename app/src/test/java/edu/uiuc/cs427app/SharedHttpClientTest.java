@@ -0,0 +1,130 @@
+package edu.uiuc.cs427app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.GZIPOutputStream;
+
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Tests the shared Gemini HTTP client against a local server: streamed JSON request
+ * bodies, transparent gzip responses, connection reuse and per-call metrics.
+ */
+public class SharedHttpClientTest {
+    private HttpServer server;
+    private final List<String> requestBodies = new CopyOnWriteArrayList<>();
+    private final List<String> acceptEncodings = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    /**
+     * The prompt body should be valid Gemini JSON, with quotes and newlines escaped.
+     */
+    @Test(timeout = 10000)
+    public void testPromptBodyIsStreamedAsGeminiJson() throws IOException {
+        String prompt = "A \"rainy\" street\nin Urbana";
+        post(prompt).close();
+
+        JSONObject body = new JSONObject(requestBodies.get(0));
+        assertEquals("IMAGE", body.getJSONObject("generationConfig").getJSONArray("responseModalities").getString(1));
+        assertEquals(prompt, body.getJSONArray("contents").getJSONObject(0)
+                .getJSONArray("parts").getJSONObject(0).getString("text"));
+    }
+
+    /**
+     * Responses should be requested and decoded as gzip without any caller code.
+     */
+    @Test(timeout = 10000)
+    public void testGzipResponsesAreDecodedTransparently() throws IOException {
+        try (Response response = post("gzip please")) {
+            assertEquals("{\"candidates\":[]}", response.body().string());
+        }
+        assertTrue(acceptEncodings.get(0).contains("gzip"));
+    }
+
+    /**
+     * Back-to-back calls should share one pooled connection and be counted in the metrics.
+     */
+    @Test(timeout = 10000)
+    public void testSequentialCallsReuseConnection() throws IOException {
+        long callsBefore = SharedHttpClient.getCallCount();
+        long reusedBefore = SharedHttpClient.getReusedConnectionCount();
+
+        for (int i = 0; i < 3; i++) {
+            try (Response response = post("call " + i)) {
+                response.body().string();
+            }
+        }
+
+        assertEquals(3, SharedHttpClient.getCallCount() - callsBefore);
+        assertTrue("Later calls should reuse the first connection",
+                SharedHttpClient.getReusedConnectionCount() - reusedBefore >= 2);
+    }
+
+    private Response post(String prompt) throws IOException {
+        Request request = new Request.Builder()
+                .url("http://127.0.0.1:" + server.getAddress().getPort() + "/v1beta/models/image:generateContent")
+                .post(new WeatherImageGenerator.PromptBody(prompt))
+                .build();
+        return SharedHttpClient.get().newCall(request).execute();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestBodies.add(readAll(exchange.getRequestBody()));
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        acceptEncodings.add(acceptEncoding == null ? "" : acceptEncoding);
+
+        byte[] body = "{\"candidates\":[]}".getBytes(StandardCharsets.UTF_8);
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(body);
+            }
+            body = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private static String readAll(InputStream is) throws IOException {
+        try (InputStream in = is) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            int n;
+            while ((n = in.read(buf)) != -1) out.write(buf, 0, n);
+            return out.toString(StandardCharsets.UTF_8.name());
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package edu.uiuc.cs427app;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local, deterministic {@link LlmBackend} for offline load testing.
+ * <p>
+ * Responses are canned but shaped like real ones (theme JSON, one question per line,
+ * a short answer) and depend only on the prompt. Latency is a base value plus seeded
+ * jitter, and failures can be injected per API key to exercise the failover path.
+ * Requests complete on a scheduler rather than a blocked thread, like a real network
+ * call, and can be cancelled while pending.
+ */
+public class StubLlmBackend implements LlmBackend {
+    private static final String[] THEMES = {
+            "{\"background\":\"#FFFFFF\",\"text\":\"#111111\",\"accent\":\"#3D7DFF\",\"button\":\"#1976D2\",\"secondary\":\"#F5F5F5\"}",
+            "{\"background\":\"#0B1D2A\",\"text\":\"#E6F1FF\",\"accent\":\"#64FFDA\",\"button\":\"#1E88E5\",\"secondary\":\"#12283A\"}",
+            "{\"background\":\"#FFF8E1\",\"text\":\"#3E2723\",\"accent\":\"#FF8F00\",\"button\":\"#EF6C00\",\"secondary\":\"#FFECB3\"}"
+    };
+
+    private final long baseLatencyMs;
+    private final long jitterMs;
+    private final Random random;
+    private final Map<String, Double> failureRates = new ConcurrentHashMap<>();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "stub-llm");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Creates a stub backend.
+     *
+     * @param baseLatencyMs Minimum latency of every response
+     * @param jitterMs      Maximum extra latency, drawn from the seeded random source
+     * @param seed          Seed that makes latency and failure injection repeatable
+     */
+    public StubLlmBackend(long baseLatencyMs, long jitterMs, long seed) {
+        this.baseLatencyMs = baseLatencyMs;
+        this.jitterMs = jitterMs;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Injects failures for one API key.
+     *
+     * @param apiKey API key to fail
+     * @param rate   Fraction of requests that fail, between 0 and 1
+     */
+    public void setFailureRate(String apiKey, double rate) {
+        failureRates.put(apiKey, rate);
+    }
+
+    /**
+     * Gets the number of requests received so far.
+     *
+     * @return Request count
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    @Override
+    public ListenableFuture<String> generate(String apiKey, String prompt) {
+        requestCount.incrementAndGet();
+
+        long latency;
+        boolean fail;
+        synchronized (random) {
+            latency = baseLatencyMs + (jitterMs > 0 ? (long) (random.nextDouble() * jitterMs) : 0);
+            fail = random.nextDouble() < failureRates.getOrDefault(apiKey, 0.0);
+        }
+
+        SettableFuture<String> result = SettableFuture.create();
+        scheduler.schedule(() -> {
+            if (fail) {
+                result.setException(new IOException("Injected failure for key " + apiKey));
+            } else {
+                result.set(respond(prompt));
+            }
+        }, latency, TimeUnit.MILLISECONDS);
+        return result;
+    }
+
+    /**
+     * Builds a canned response of the right shape for the prompt.
+     */
+    private static String respond(String prompt) {
+        int hash = prompt.hashCode() & 0x7fffffff;
+        if (prompt.contains("Return ONLY a JSON object")) {
+            return THEMES[hash % THEMES.length];
+        }
+        if (prompt.contains("generate exactly 2-3")) {
+            return "What should I wear today?\n"
+                    + "Is it a good day for outdoor activities?\n"
+                    + "Should I bring an umbrella?";
+        }
+        return "Dress in layers and check the forecast before heading out. "
+                + "Conditions look manageable for most activities (ref " + (hash % 1000) + ").";
+    }
+}
@@ -0,0 +1,95 @@
+package edu.uiuc.cs427app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Tests delivery of theme changes by ThemeBus.
+ */
+public class ThemeBusTest {
+
+    private final List<Runnable> mainQueue = new ArrayList<>();
+    private ThemeBus bus;
+    private CompiledTheme theme;
+
+    @Before
+    public void setUp() {
+        Executor mainThread = mainQueue::add;
+        bus = new ThemeBus(mainThread);
+        theme = CompiledTheme.of(ThemeSpec.fromJson("{\"background\":\"#101010\",\"text\":\"#EEEEEE\"}"));
+    }
+
+    /**
+     * Changes should reach every listener, and only on the main thread.
+     */
+    @Test
+    public void testPostDeliversOnMainThread() {
+        List<String> received = new ArrayList<>();
+        bus.subscribe((user, t) -> {
+            assertSame(theme, t);
+            received.add("a:" + user);
+        });
+        bus.subscribe((user, t) -> received.add("b:" + user));
+
+        bus.post("alice", theme);
+        assertEquals("Nothing runs before the main thread does", 0, received.size());
+
+        runMainQueue();
+        assertEquals(List.of("a:alice", "b:alice"), received);
+    }
+
+    /**
+     * Unsubscribed listeners, such as those of destroyed screens, should get nothing.
+     */
+    @Test
+    public void testUnsubscribeStopsDelivery() {
+        List<String> received = new ArrayList<>();
+        ThemeBus.Listener listener = (user, t) -> received.add(user);
+        bus.subscribe(listener);
+        bus.subscribe(listener);
+        assertEquals("A listener is only added once", 1, bus.listenerCount());
+
+        bus.unsubscribe(listener);
+        bus.post("alice", theme);
+        runMainQueue();
+
+        assertEquals(0, received.size());
+        assertEquals(0, bus.listenerCount());
+    }
+
+    /**
+     * A listener may unsubscribe itself while a change is being delivered.
+     */
+    @Test
+    public void testListenerCanUnsubscribeDuringDelivery() {
+        List<String> received = new ArrayList<>();
+        bus.subscribe(new ThemeBus.Listener() {
+            @Override
+            public void onThemeChanged(String username, CompiledTheme t) {
+                bus.unsubscribe(this);
+                received.add("once");
+            }
+        });
+        bus.subscribe((user, t) -> received.add("always"));
+
+        bus.post("alice", theme);
+        bus.post("alice", theme);
+        runMainQueue();
+
+        assertEquals(List.of("once", "always", "always"), received);
+    }
+
+    private void runMainQueue() {
+        for (Runnable task : new ArrayList<>(mainQueue)) {
+            task.run();
+        }
+        mainQueue.clear();
+    }
+}
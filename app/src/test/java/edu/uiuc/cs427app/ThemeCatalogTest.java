@@ -0,0 +1,94 @@
+package edu.uiuc.cs427app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the palettes of ThemeCatalog and matching descriptions against them.
+ */
+public class ThemeCatalogTest {
+    private final ThemeCatalog catalog = ThemeCatalog.getInstance();
+
+    /**
+     * The catalog should hold a few hundred valid palettes with readable text.
+     */
+    @Test
+    public void testPalettesAreValidAndReadable() {
+        assertTrue(catalog.size() >= 250);
+        for (int i = 0; i < catalog.size(); i++) {
+            ThemeSpec spec = catalog.palette(i);
+            assertTrue("Palette " + i + " has malformed colors", spec.isValid());
+            assertTrue("Palette " + i + " text is hard to read: " + spec.toJson(),
+                    contrast(spec.textHex, spec.backgroundHex) >= 4.5);
+            assertTrue("Palette " + i + " button text is hard to read: " + spec.toJson(),
+                    contrast(spec.textHex, spec.buttonHex) >= 3);
+            assertTrue("Palette " + i + " title is hard to read: " + spec.toJson(),
+                    contrast(spec.textHex, spec.headerColor) >= 3);
+        }
+    }
+
+    /**
+     * Subjects and tones named in a description should pick their palette.
+     */
+    @Test
+    public void testBestMatch() {
+        assertSame(catalog.get("ocean", ThemeCatalog.Tone.LIGHT), catalog.bestMatch("Ocean"));
+        assertSame(catalog.get("forest", ThemeCatalog.Tone.DARK), catalog.bestMatch("a dark forest with tall pines"));
+        assertSame(catalog.get("cyberpunk", ThemeCatalog.Tone.VIVID), catalog.bestMatch("neon cyberpunk city"));
+        assertSame(catalog.get("illini", ThemeCatalog.Tone.PASTEL), catalog.bestMatch("soft UIUC campus colors"));
+        // Plurals match their singular keyword
+        assertSame(catalog.get("ocean", ThemeCatalog.Tone.LIGHT), catalog.bestMatch("waves"));
+        // A tone alone picks the classic palette in that tone
+        assertSame(catalog.get("classic", ThemeCatalog.Tone.DARK), catalog.bestMatch("dark mode please"));
+    }
+
+    /**
+     * The subject named most often should win, then the one named first.
+     */
+    @Test
+    public void testBestMatchPrefersStrongestSubject() {
+        assertSame(catalog.get("sunset", ThemeCatalog.Tone.LIGHT), catalog.bestMatch("sunset over the ocean"));
+        assertSame(catalog.get("ocean", ThemeCatalog.Tone.LIGHT),
+                catalog.bestMatch("sunset over the ocean, waves and surf"));
+    }
+
+    /**
+     * Descriptions with no known words should get the default theme.
+     */
+    @Test
+    public void testUnknownDescriptionsUseDefault() {
+        assertEquals(ThemeSpec.defaultLight(), catalog.bestMatch(""));
+        assertEquals(ThemeSpec.defaultLight(), catalog.bestMatch(null));
+        assertEquals(ThemeSpec.defaultLight(), catalog.bestMatch("qwerty zxcv"));
+    }
+
+    @Test
+    public void testHslToHex() {
+        assertEquals("#FF0000", ThemeCatalog.hslToHex(0, 1, 0.5));
+        assertEquals("#0000FF", ThemeCatalog.hslToHex(240, 1, 0.5));
+        assertEquals("#808080", ThemeCatalog.hslToHex(120, 0, 0.5));
+        assertEquals("#FFFFFF", ThemeCatalog.hslToHex(45, 0.3, 1));
+    }
+
+    /**
+     * WCAG contrast ratio of two {@code #RRGGBB} colors.
+     */
+    private static double contrast(String a, String b) {
+        double la = luminance(a);
+        double lb = luminance(b);
+        return (Math.max(la, lb) + 0.05) / (Math.min(la, lb) + 0.05);
+    }
+
+    private static double luminance(String hex) {
+        int rgb = Integer.parseInt(hex.substring(1), 16);
+        return 0.2126 * channel(rgb >> 16) + 0.7152 * channel(rgb >> 8) + 0.0722 * channel(rgb);
+    }
+
+    private static double channel(int value) {
+        double c = (value & 0xFF) / 255.0;
+        return c <= 0.03928 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+    }
+}
@@ -0,0 +1,345 @@
+package edu.uiuc.cs427app;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.GradientDrawable;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import androidx.cardview.widget.CardView;
+import androidx.core.view.LayoutInflaterCompat;
+import androidx.core.view.ViewCompat;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that ThemeInflaterFactory themes each view once, including views added in code,
+ * and benchmarks its tree walk against the per-view parsing ThemeManager used to do.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ThemeInflaterFactoryTest {
+    private static final int VIEWS = 1000;
+
+    private Context context;
+    private CompiledTheme theme;
+    private ThemeInflaterFactory factory;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        theme = CompiledTheme.of(ThemeSpec.fromJson("{\"background\":\"#101010\",\"text\":\"#EEEEEE\"}"));
+        factory = new ThemeInflaterFactory(null, theme);
+    }
+
+    @Test
+    public void testThemeTreeColorsEveryView() {
+        LinearLayout root = new LinearLayout(context);
+        TextView label = new TextView(context);
+        root.addView(label);
+
+        factory.themeTree(root);
+
+        assertEquals(theme.text, label.getCurrentTextColor());
+        assertSame(theme, root.getTag(R.id.applied_theme));
+        assertSame(theme, label.getTag(R.id.applied_theme));
+    }
+
+    @Test
+    public void testViewsAddedLaterAreThemed() {
+        // An activity-like context with its own inflater, as ThemeManager.install sets up
+        Context screen = new ContextThemeWrapper(context, 0);
+        LayoutInflaterCompat.setFactory2(LayoutInflater.from(screen), factory);
+        LinearLayout root = new LinearLayout(screen);
+        factory.themeTree(root);
+
+        // Built off-screen like the city rows in MainActivity, then attached
+        LinearLayout row = new LinearLayout(screen);
+        TextView name = new TextView(screen);
+        row.addView(name);
+        root.addView(row);
+        ThemeManager.applyToAdded(screen, row);
+
+        assertEquals(theme.text, name.getCurrentTextColor());
+        assertSame(theme, row.getTag(R.id.applied_theme));
+
+        // Views added to a themed row are themed the same way
+        TextView late = new TextView(screen);
+        row.addView(late);
+        ThemeManager.applyToAdded(screen, late);
+        assertEquals(theme.text, late.getCurrentTextColor());
+    }
+
+    @Test
+    public void testAlreadyThemedViewsAreSkipped() {
+        TextView label = new TextView(context);
+        factory.themeTree(label);
+        label.setTextColor(0xFF00FF00);
+
+        LinearLayout root = new LinearLayout(context);
+        root.addView(label);
+        factory.themeTree(root);
+
+        assertEquals("A view keeps its colors once themed", 0xFF00FF00, label.getCurrentTextColor());
+    }
+
+    @Test
+    public void testNewThemeOnlyChangesDifferingColors() {
+        LinearLayout root = new LinearLayout(context);
+        TextView label = new TextView(context);
+        View divider = new View(context);
+        divider.setTag("border");
+        root.addView(label);
+        root.addView(divider);
+        factory.themeTree(root);
+
+        // Only the background differs, so labels keep colors set after theming
+        label.setTextColor(0xFF00FF00);
+        CompiledTheme next = CompiledTheme.of(ThemeSpec.fromJson("{\"background\":\"#202020\",\"text\":\"#EEEEEE\"}"));
+        factory.setTheme(next);
+        factory.themeTree(root);
+
+        assertEquals(next.background, ((ColorDrawable) root.getBackground()).getColor());
+        assertEquals(0xFF00FF00, label.getCurrentTextColor());
+        assertSame(next, label.getTag(R.id.applied_theme));
+        assertSame(next, divider.getTag(R.id.applied_theme));
+    }
+
+    @Test
+    public void testHierarchyListenerIsLeftToTheApp() {
+        LinearLayout root = new LinearLayout(context);
+        List<String> events = new ArrayList<>();
+        root.setOnHierarchyChangeListener(new ViewGroup.OnHierarchyChangeListener() {
+            @Override
+            public void onChildViewAdded(View parent, View child) {
+                events.add("added");
+            }
+
+            @Override
+            public void onChildViewRemoved(View parent, View child) {
+                events.add("removed");
+            }
+        });
+        factory.themeTree(root);
+
+        TextView label = new TextView(context);
+        root.addView(label);
+        root.removeView(label);
+
+        assertEquals("Theming should not replace the app's listener", List.of("added", "removed"), events);
+    }
+
+    /**
+     * Benchmarks theming a 1,000-view tree the way ThemeManager used to, parsing the
+     * spec's hex strings at every view and building a tint list per button, against
+     * {@link ThemeInflaterFactory#themeTree}. Counts parses, tint lists and color writes
+     * instead of timing, so the result does not depend on the machine.
+     */
+    @Test
+    public void testThemeTreeBenchmark() {
+        ThemeSpec spec = ThemeSpec.fromJson(
+                "{\"background\":\"#101010\",\"text\":\"#EEEEEE\",\"button\":\"#2255AA\",\"borderColor\":\"#333333\"}");
+        CompiledTheme compiled = CompiledTheme.of(spec);
+
+        List<CountingButton> legacyButtons = new ArrayList<>();
+        ViewGroup legacyTree = buildTree(legacyButtons);
+        LegacyThemer legacy = new LegacyThemer(spec);
+        legacy.applyRecursive(legacyTree);
+
+        List<CountingButton> buttons = new ArrayList<>();
+        ViewGroup tree = buildTree(buttons);
+        ThemeInflaterFactory compiledFactory = new ThemeInflaterFactory(null, compiled);
+        compiledFactory.themeTree(tree);
+
+        assertSameColors(legacyTree, tree);
+        assertFalse(buttons.isEmpty());
+        assertTrue("The old walk parsed at every view (" + legacy.parses + " parses)", legacy.parses >= VIEWS);
+        assertEquals("The old walk built a tint list per button", buttons.size(), distinctTints(legacyButtons));
+        assertEquals("Every button should share one tint list", 1, distinctTints(buttons));
+        assertSame(compiled.buttonTint, buttons.get(0).tint);
+
+        // Theming the same tree again: the old walk repeats every write, themeTree none
+        int legacyWrites = tintWrites(legacyButtons);
+        int writes = tintWrites(buttons);
+        legacy.applyRecursive(legacyTree);
+        compiledFactory.themeTree(tree);
+        assertEquals(legacyWrites + legacyButtons.size(), tintWrites(legacyButtons));
+        assertEquals("An already themed tree should not be written again", writes, tintWrites(buttons));
+    }
+
+    /**
+     * Builds a view tree in a mix typical of the app's screens: layouts, labels,
+     * buttons, cards and tagged dividers, each added to a random earlier layout.
+     */
+    private ViewGroup buildTree(List<CountingButton> buttons) {
+        Random random = new Random(427);
+        LinearLayout root = new LinearLayout(context);
+        List<ViewGroup> groups = new ArrayList<>();
+        groups.add(root);
+        for (int i = 1; i < VIEWS; i++) {
+            ViewGroup parent = groups.get(random.nextInt(groups.size()));
+            int roll = random.nextInt(10);
+            View view;
+            if (roll < 2) {
+                LinearLayout layout = new LinearLayout(context);
+                groups.add(layout);
+                view = layout;
+            } else if (roll < 6) {
+                view = new TextView(context);
+            } else if (roll < 8) {
+                CountingButton button = new CountingButton(context);
+                buttons.add(button);
+                view = button;
+            } else if (roll < 9) {
+                view = new CardView(context);
+            } else {
+                view = new View(context);
+                view.setTag("border");
+            }
+            parent.addView(view);
+        }
+        return root;
+    }
+
+    private static void assertSameColors(View expected, View actual) {
+        if (expected instanceof TextView) {
+            assertEquals(((TextView) expected).getCurrentTextColor(), ((TextView) actual).getCurrentTextColor());
+        }
+        if (expected.getBackground() instanceof ColorDrawable) {
+            assertEquals(((ColorDrawable) expected.getBackground()).getColor(),
+                    ((ColorDrawable) actual.getBackground()).getColor());
+        }
+        if (expected instanceof ViewGroup group) {
+            for (int i = 0; i < group.getChildCount(); i++) {
+                assertSameColors(group.getChildAt(i), ((ViewGroup) actual).getChildAt(i));
+            }
+        }
+    }
+
+    private static int distinctTints(List<CountingButton> buttons) {
+        Set<ColorStateList> tints = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (CountingButton button : buttons) {
+            tints.add(button.tint);
+        }
+        return tints.size();
+    }
+
+    private static int tintWrites(List<CountingButton> buttons) {
+        int writes = 0;
+        for (CountingButton button : buttons) {
+            writes += button.tintWrites;
+        }
+        return writes;
+    }
+
+    /**
+     * A button that records the tint lists it is given.
+     */
+    private static final class CountingButton extends Button {
+        ColorStateList tint;
+        int tintWrites;
+
+        CountingButton(Context context) {
+            super(context);
+            setBackground(new GradientDrawable());
+            tint = null;
+            tintWrites = 0;
+        }
+
+        @Override
+        public void setBackgroundTintList(ColorStateList tint) {
+            super.setBackgroundTintList(tint);
+            this.tint = tint;
+            tintWrites++;
+        }
+    }
+
+    /**
+     * ThemeManager's theming walk before themes were compiled, counting its color parses.
+     */
+    private static final class LegacyThemer {
+        private final ThemeSpec spec;
+        int parses;
+
+        LegacyThemer(ThemeSpec spec) {
+            this.spec = spec;
+        }
+
+        void applyRecursive(ViewGroup group) {
+            group.setBackgroundColor(parseColorSafe(spec.backgroundHex));
+
+            for (int i = 0; i < group.getChildCount(); i++) {
+                View v = group.getChildAt(i);
+
+                if (v instanceof TextView && !(v instanceof Button)) {
+                    ((TextView) v).setTextColor(parseColorSafe(spec.textHex));
+                }
+
+                if (v instanceof Button b) {
+                    b.setTextColor(colorOr(spec.textHex, "#111111"));
+                    if (b.getBackground() != null) {
+                        b.getBackground().mutate();
+                        ViewCompat.setBackgroundTintList(b, ColorStateList.valueOf(colorOr(spec.buttonHex, "#1976D2")));
+                    }
+                }
+
+                if (v instanceof CardView) {
+                    ((CardView) v).setCardBackgroundColor(colorOr(
+                            (spec.cardBackground != null && !spec.cardBackground.isEmpty())
+                                    ? spec.cardBackground : spec.secondaryHex,
+                            "#F5F5F5"));
+                }
+
+                if (v.getTag() instanceof String t) {
+                    if ("border".equals(t)) {
+                        v.setBackgroundColor(colorOr(spec.borderColor, "#DDDDDD"));
+                    } else if ("accent".equals(t)) {
+                        v.setBackgroundColor(colorOr(spec.accentHex, "#3D7DFF"));
+                    }
+                }
+
+                if (v instanceof ViewGroup) {
+                    applyRecursive((ViewGroup) v);
+                }
+            }
+        }
+
+        private int parseColorSafe(String hex) {
+            parses++;
+            try {
+                return Color.parseColor(hex);
+            } catch (Exception e) {
+                return Color.BLACK;
+            }
+        }
+
+        private int colorOr(String hex, String fallbackHex) {
+            parses++;
+            try {
+                if (hex != null && !hex.isEmpty()) return Color.parseColor(hex);
+            } catch (Exception ignored) {
+            }
+            parses++;
+            return Color.parseColor(fallbackHex);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package edu.uiuc.cs427app;
+
+import android.content.Context;
+import android.os.Looper;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.common.util.concurrent.SettableFuture;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Tests the write-through per-user theme cache of ThemeManager.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ThemeManagerCacheTest {
+
+    private Context context;
+    private AuthenticationManager authManager;
+    private DatabaseHelper databaseHelper;
+    private String username;
+
+    @Before
+    public void setUp() throws Exception {
+        context = ApplicationProvider.getApplicationContext();
+        authManager = AuthenticationManager.getInstance(context);
+
+        Field dbField = AuthenticationManager.class.getDeclaredField("databaseHelper");
+        dbField.setAccessible(true);
+        databaseHelper = (DatabaseHelper) dbField.get(authManager);
+
+        ThemeManager.clearCache();
+        username = "theme_cache_" + System.nanoTime();
+        assertTrue(authManager.register(username, "password123", Theme.LIGHT));
+    }
+
+    @Test
+    public void testLoadAfterPreloadDoesNotReadDatabase() {
+        ThemeSpec saved = ThemeSpec.fromJson("{\"background\":\"#101010\",\"text\":\"#EEEEEE\"}");
+        authManager.saveThemeSpecForUser(username, saved);
+
+        ThemeSpec preloaded = ThemeManager.preloadForUser(context, username);
+        assertEquals(saved, preloaded);
+
+        // Change the stored theme behind the cache's back; screens keep the cached one
+        databaseHelper.updateUserThemeJson(username, ThemeSpec.defaultLight().toJson());
+        assertSame(ThemeManager.loadForUser(context, username), ThemeManager.loadForUser(context, username));
+        assertEquals(saved, ThemeManager.loadForUser(context, username));
+    }
+
+    @Test
+    public void testPreloadWithoutSavedThemeCachesDefault() {
+        assertNull(ThemeManager.preloadForUser(context, username));
+        assertEquals(ThemeSpec.defaultLight(), ThemeManager.loadForUser(context, username));
+    }
+
+    @Test
+    public void testSaveForUserReplacesCachedTheme() {
+        assertEquals(ThemeSpec.defaultLight(), ThemeManager.loadForUser(context, username));
+
+        ThemeSpec generated = ThemeSpec.fromJson("{\"background\":\"#202020\",\"text\":\"#FAFAFA\",\"emoji\":\"🌲\"}");
+        ThemeManager.saveForUser(context, username, generated);
+
+        assertSame(generated, ThemeManager.loadForUser(context, username));
+        assertEquals(generated, authManager.loadThemeSpecForUser(username));
+    }
+
+    @Test
+    public void testOlderGeneratedThemeDoesNotReplaceNewer() throws Exception {
+        Map<String, SettableFuture<String>> sent = new ConcurrentHashMap<>();
+        LLMClient.useBackend((apiKey, prompt) -> {
+            SettableFuture<String> future = SettableFuture.create();
+            sent.put(prompt.startsWith("ocean") ? "ocean" : "forest", future);
+            return future;
+        }, "primary", "");
+        GeminiRateLimiter.setInstance(new GeminiRateLimiter(Integer.MAX_VALUE, 1_000_000, System::currentTimeMillis));
+        String oceanJson = "{\"background\":\"#003366\",\"text\":\"#FFFFFF\",\"accent\":\"#00AAFF\","
+                + "\"button\":\"#0077CC\",\"secondary\":\"#004488\"}";
+        String forestJson = "{\"background\":\"#113311\",\"text\":\"#EEFFEE\",\"accent\":\"#66AA44\","
+                + "\"button\":\"#228822\",\"secondary\":\"#224422\"}";
+        try {
+            // Registered with one description, then logged in with another
+            ThemeManager.generateForUser(context, username, "forest");
+            ThemeManager.generateForUser(context, username, "ocean");
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!sent.containsKey("ocean") && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            sent.get("ocean").set(oceanJson);
+            ThemeSpec ocean = ThemeSpec.fromJson(oceanJson);
+            while (!ocean.equals(ThemeManager.loadForUser(context, username)) && System.currentTimeMillis() < deadline) {
+                shadowOf(Looper.getMainLooper()).idle();
+                Thread.sleep(10);
+            }
+            assertEquals(ocean, ThemeManager.loadForUser(context, username));
+
+            // The older request finishing last must not win
+            SettableFuture<String> forest = sent.get("forest");
+            if (forest != null) {
+                forest.set(forestJson);
+            }
+            Thread.sleep(200);
+            shadowOf(Looper.getMainLooper()).idle();
+            assertEquals(ocean, ThemeManager.loadForUser(context, username));
+            assertEquals(ocean, authManager.loadThemeSpecForUser(username));
+        } finally {
+            LLMClient.resetBackend();
+            GeminiRateLimiter.setInstance(null);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package edu.uiuc.cs427app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Tests that ToolbarStyler resolves bar ids once per activity class.
+ */
+public class ToolbarStylerTest {
+
+    // Stand-ins for activity classes; only the class identity matters
+    private static class ListScreen {
+    }
+
+    private static class DetailScreen {
+    }
+
+    private final List<String> lookups = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        ToolbarStyler.clearCache();
+        lookups.clear();
+    }
+
+    /**
+     * The first name of each group that exists should win, and missing groups resolve to 0.
+     */
+    @Test
+    public void testResolvesFirstExistingName() {
+        ToolbarStyler styler = ToolbarStyler.forClass(ListScreen.class,
+                lookup(Map.of("topAppBar", 11, "materialToolbar", 12, "app_bar", 21)));
+
+        assertEquals(11, styler.toolbarId);
+        assertEquals(21, styler.appBarId);
+        assertEquals(0, styler.collapsingId);
+        assertNull("Strategy is picked when the screen is first styled", styler.getStrategy());
+    }
+
+    /**
+     * Styling the same screen again should not look any resource names up.
+     */
+    @Test
+    public void testIdsAreResolvedOncePerClass() {
+        ToIntFunction<String> lookup = lookup(Map.of("toolbar", 1));
+        ToolbarStyler first = ToolbarStyler.forClass(ListScreen.class, lookup);
+        int resolved = lookups.size();
+
+        for (int i = 0; i < 100; i++) {
+            assertSame(first, ToolbarStyler.forClass(ListScreen.class, lookup));
+        }
+        assertEquals(resolved, lookups.size());
+
+        ToolbarStyler.forClass(DetailScreen.class, lookup);
+        assertEquals("Another screen resolves its own ids", 2 * resolved, lookups.size());
+    }
+
+    /**
+     * The emoji should be appended once, with a space after an existing title.
+     */
+    @Test
+    public void testWithEmoji() {
+        assertEquals("Team 12 🌲", ToolbarStyler.withEmoji("Team 12", "", "🌲"));
+        assertEquals("🌲", ToolbarStyler.withEmoji(null, "", "🌲"));
+        assertNull(ToolbarStyler.withEmoji("Team 12 🌲", "", "🌲"));
+        assertNull(ToolbarStyler.withEmoji("Team 12", "", ""));
+    }
+
+    /**
+     * Switching themes should replace the old emoji rather than add a second one.
+     */
+    @Test
+    public void testWithEmojiReplacesPreviousEmoji() {
+        assertEquals("Team 12 🌊", ToolbarStyler.withEmoji("Team 12 🌲", "🌲", "🌊"));
+        assertEquals("Team 12", ToolbarStyler.withEmoji("Team 12 🌲", "🌲", ""));
+        assertNull(ToolbarStyler.withEmoji("Team 12 🌲", "🌲", "🌲"));
+        // A title the user changed keeps its text
+        assertEquals("Weather 🌲 🌊", ToolbarStyler.withEmoji("Weather 🌲", "🚀", "🌊"));
+    }
+
+    private ToIntFunction<String> lookup(Map<String, Integer> ids) {
+        return name -> {
+            lookups.add(name);
+            return ids.getOrDefault(name, 0);
+        };
+    }
+}
@@ -0,0 +1,64 @@
+package edu.uiuc.cs427app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests location keys, freshness and dashboard summaries of the shared weather cache.
+ */
+public class WeatherCacheTest {
+
+    @After
+    public void tearDown() {
+        WeatherCache.clear();
+    }
+
+    /**
+     * Nearby coordinates of the same city should share an entry.
+     */
+    @Test
+    public void testNearbyCoordinatesShareEntry() {
+        WeatherInfo weather = new WeatherInfo();
+        WeatherCache.put(40.1106, -88.2073, weather, 0);
+
+        assertSame(weather, WeatherCache.get(40.1121, -88.2059));
+        assertNull(WeatherCache.get(41.8781, -87.6298));
+    }
+
+    /**
+     * Entries older than the max age should be refetched but still be shown meanwhile.
+     */
+    @Test
+    public void testStaleEntriesAreKeptButNotFresh() {
+        WeatherInfo weather = new WeatherInfo();
+        WeatherCache.put(40.11, -88.21, weather, 1_000);
+
+        assertTrue(WeatherCache.isFresh(40.11, -88.21, 1_000 + WeatherCache.MAX_AGE_MS - 1));
+        assertFalse(WeatherCache.isFresh(40.11, -88.21, 1_000 + WeatherCache.MAX_AGE_MS));
+        assertSame(weather, WeatherCache.get(40.11, -88.21));
+    }
+
+    /**
+     * Dashboard rows summarize temperature and conditions, tolerating missing conditions.
+     */
+    @Test
+    public void testDashboardSummary() {
+        WeatherSpecifics specifics = new WeatherSpecifics();
+        specifics.description = "light rain";
+        WeatherInfo weather = new WeatherInfo();
+        weather.current = new WeatherInfo.WeatherCurrent();
+        weather.current.temp = 71.6;
+        weather.current.weather = new WeatherSpecifics[]{specifics};
+
+        assertEquals("72°F, light rain", CityDashboard.summary(weather));
+
+        weather.current.weather = null;
+        assertEquals("72°F", CityDashboard.summary(weather));
+    }
+}
@@ -0,0 +1,192 @@
+package edu.uiuc.cs427app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tests that city image generation shares a bounded worker pool across screens and
+ * that cancelled requests are skipped and release their callbacks.
+ */
+public class WeatherImageGeneratorTest {
+    private static final int SCREENS = 100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<String> fetched = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() {
+        GeminiRateLimiter.setInstance(new GeminiRateLimiter(Integer.MAX_VALUE, 1_000_000, System::currentTimeMillis));
+    }
+
+    @After
+    public void tearDown() {
+        WeatherImageGenerator.useFetcher(null);
+        GeminiRateLimiter.setInstance(null);
+    }
+
+    /**
+     * Opening a hundred screens, each with its own generator, should not grow the
+     * number of threads beyond the shared pool.
+     */
+    @Test(timeout = 30000)
+    public void testHundredScreensShareBoundedWorkers() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(SCREENS);
+        WeatherImageGenerator.useFetcher((prompt, request) -> {
+            Thread.sleep(5);
+            done.countDown();
+            return null;
+        });
+        int threadsBefore = Thread.activeCount();
+
+        int peakWorkers = 0;
+        for (int i = 0; i < SCREENS; i++) {
+            WeatherImageGenerator generator = new WeatherImageGenerator();
+            generator.generateCityImageAsync("City " + i, "", "", "clear", "daytime", new NoOpCallback());
+            peakWorkers = Math.max(peakWorkers, countImageWorkers());
+        }
+        assertTrue("All generations should run", done.await(20, TimeUnit.SECONDS));
+        peakWorkers = Math.max(peakWorkers, countImageWorkers());
+
+        assertTrue("Image workers should be bounded (saw " + peakWorkers + ")", peakWorkers <= 2);
+        assertTrue("Thread count should stay flat", Thread.activeCount() - threadsBefore <= 2);
+    }
+
+    /**
+     * A request cancelled while queued should never reach Gemini.
+     */
+    @Test(timeout = 10000)
+    public void testCancelledQueuedRequestIsSkipped() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch busy = new CountDownLatch(2);
+        CountDownLatch sentinel = new CountDownLatch(1);
+        WeatherImageGenerator.useFetcher((prompt, request) -> {
+            fetched.add(prompt);
+            if (prompt.contains("Sentinel")) {
+                sentinel.countDown();
+            } else {
+                busy.countDown();
+                release.await();
+            }
+            return null;
+        });
+
+        // Occupy both workers, then queue a third request and cancel it
+        new WeatherImageGenerator().generateCityImageAsync("Busy A", "", "", "clear", "daytime", new NoOpCallback());
+        new WeatherImageGenerator().generateCityImageAsync("Busy B", "", "", "clear", "daytime", new NoOpCallback());
+        assertTrue(busy.await(5, TimeUnit.SECONDS));
+
+        WeatherImageGenerator generator = new WeatherImageGenerator();
+        WeatherImageGenerator.ImageRequest request = generator.generateCityImageAsync(
+                "Cancelled City", "", "", "clear", "daytime", new NoOpCallback());
+        generator.cancelAll();
+        assertTrue(request.isCancelled());
+
+        // The queue is FIFO, so once the sentinel runs the cancelled request has been passed over
+        new WeatherImageGenerator().generateCityImageAsync("Sentinel", "", "", "clear", "daytime", new NoOpCallback());
+        release.countDown();
+        assertTrue(sentinel.await(5, TimeUnit.SECONDS));
+
+        assertEquals(3, fetched.size());
+        for (String prompt : fetched) {
+            assertFalse(prompt.contains("Cancelled City"));
+        }
+    }
+
+    /**
+     * Cancelling an in-flight request should drop the only reference to its callback,
+     * so a destroyed screen is not kept alive by a slow generation.
+     */
+    @Test(timeout = 10000)
+    public void testCancelledRequestReleasesCallback() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        WeatherImageGenerator.useFetcher((prompt, request) -> {
+            started.countDown();
+            release.await();
+            return null;
+        });
+
+        WeatherImageGenerator generator = new WeatherImageGenerator();
+        NoOpCallback callback = new NoOpCallback();
+        WeakReference<NoOpCallback> ref = new WeakReference<>(callback);
+        WeatherImageGenerator.ImageRequest request = generator.generateCityImageAsync(
+                "Slow City", "", "", "clear", "daytime", callback);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        request.cancel();
+        callback = null;
+        for (int i = 0; i < 20 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        release.countDown();
+
+        assertNull("Callback should be collectable while the generation is still running", ref.get());
+    }
+
+    /**
+     * A library run should stop at its generation budget and report that it is incomplete.
+     */
+    @Test(timeout = 10000)
+    public void testLibraryRunRespectsBudget() throws Exception {
+        WeatherImageGenerator.useFetcher((prompt, request) -> {
+            fetched.add(prompt);
+            return null;
+        });
+        CityImageLibrary library = new CityImageLibrary(folder.newFolder("library"));
+        WeatherImageGenerator generator = new WeatherImageGenerator(null, library);
+
+        CountDownLatch finished = new CountDownLatch(1);
+        AtomicBoolean complete = new AtomicBoolean(true);
+        generator.generateLibraryAsync(Arrays.asList("Urbana", "Chicago"), 5, (generated, done) -> {
+            complete.set(done);
+            finished.countDown();
+        });
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(5, fetched.size());
+        assertEquals(5, new HashSet<>(fetched).size());
+        assertFalse(complete.get());
+    }
+
+    private static int countImageWorkers() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("image-worker-")) count++;
+        }
+        return count;
+    }
+
+    private static class NoOpCallback implements WeatherImageGenerator.ImageCallback {
+        @Override
+        public void onImageReady(@NonNull Bitmap bitmap) {
+        }
+
+        @Override
+        public void onError(@NonNull Throwable t) {
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package edu.uiuc.cs427app;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Tests for the in-memory cache used to prefetch weather insight questions.
+ */
+public class WeatherQuestionCacheTest {
+
+    @Before
+    public void setUp() {
+        WeatherQuestionCache.clear();
+    }
+
+    /**
+     * A second claim for the same weather data should join the first request.
+     */
+    @Test
+    public void testClaimReturnsExistingRequest() {
+        CompletableFuture<String[]> first = new CompletableFuture<>();
+        CompletableFuture<String[]> second = new CompletableFuture<>();
+
+        assertSame(first, WeatherQuestionCache.claim("Temperature: 70°F", first));
+        assertSame(first, WeatherQuestionCache.claim("Temperature: 70°F", second));
+    }
+
+    /**
+     * peek should only return questions once the request has completed.
+     */
+    @Test
+    public void testPeekOnlyReturnsCompletedQuestions() {
+        String weatherData = "Temperature: 40°F\nConditions: light rain";
+        CompletableFuture<String[]> pending = new CompletableFuture<>();
+        WeatherQuestionCache.claim(weatherData, pending);
+
+        assertNull("In-flight request should not be visible", WeatherQuestionCache.peek(weatherData));
+
+        String[] questions = {"Do I need an umbrella?", "Should I drive or walk?"};
+        pending.complete(questions);
+        assertArrayEquals(questions, WeatherQuestionCache.peek(weatherData));
+    }
+
+    /**
+     * Removed requests should no longer be served.
+     */
+    @Test
+    public void testRemoveDropsFailedRequest() {
+        CompletableFuture<String[]> pending = new CompletableFuture<>();
+        WeatherQuestionCache.claim("Conditions: snow", pending);
+        pending.complete(new String[]{"Is it safe to drive?", "What should I wear today?"});
+
+        WeatherQuestionCache.remove("Conditions: snow", pending);
+        assertNull(WeatherQuestionCache.peek("Conditions: snow"));
+    }
+
+    /**
+     * The cache should evict the least recently used entries once full.
+     */
+    @Test
+    public void testEvictsOldestEntries() {
+        for (int i = 0; i < 40; i++) {
+            CompletableFuture<String[]> pending = CompletableFuture.completedFuture(new String[]{"Q" + i});
+            WeatherQuestionCache.claim("weather " + i, pending);
+        }
+
+        assertNull("Oldest entry should be evicted", WeatherQuestionCache.peek("weather 0"));
+        assertArrayEquals(new String[]{"Q39"}, WeatherQuestionCache.peek("weather 39"));
+    }
+}